@@ -0,0 +1,18 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+/**A recipe as seen by the matching code: a matcher for the input and one for the ingredient.
+ *
+ * @param <S> The stack type
+ * @param <I> The item type
+ * */
+public interface BrewingRecipe<S, I> {
+
+    StackMatcher<S, I> getInput();
+
+    StackMatcher<S, I> getIngredient();
+
+    /**Returns true if both the input and the ingredient match this recipe*/
+    default boolean matches(S input, S ingredient){
+        return getIngredient().matches(ingredient) && getInput().matches(input);
+    }
+}
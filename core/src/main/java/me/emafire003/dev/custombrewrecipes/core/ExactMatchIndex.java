@@ -0,0 +1,217 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**Finds the recipes whose side (the input or the ingredient) matches a stack exactly,
+ * like the ones using a whole ComponentMap or a whole nbt compound, with a hash lookup.
+ * <p>
+ * When a lot of recipes use the same item and only differ in their component values, the {@link RecipeIndex}
+ * would still have to test each of them. Here the recipes are grouped by the {@link KeyShape} of their matcher
+ * and then by their {@link StackMatcher#key()}, so a lookup reads the key of the stack once per shape
+ * (there usually is only one shape for an item) and only tests the recipes with that same key.
+ * The recipes found are still fully tested, so a hash collision or a key that is equal but
+ * doesn't match can't give a wrong result.
+ * <p>
+ * The keys of each shape are kept in an open addressing table, which is probed with {@link KeyShape#hashOf(Object)}
+ * and {@link KeyShape#hasKey(Object, Object)}, so the key of the stack is never created and a lookup doesn't allocate.
+ * <p>
+ * Recipes are identified by their position in the list this is built from, and the ones with the
+ * same key are kept in that order.
+ *
+ * @param <S> The stack type
+ * @param <I> The item type
+ * @param <R> The recipe type
+ * */
+public final class ExactMatchIndex<S, I, R> {
+
+    private static final int[] NONE = new int[0];
+
+    private final List<R> recipes;
+    private final StackAccess<S, I> access;
+    /**The keys of every shape used by the recipes of an item*/
+    private final Map<I, KeyTable<S>[]> tables;
+
+    private ExactMatchIndex(List<R> recipes, StackAccess<S, I> access, Map<I, KeyTable<S>[]> tables) {
+        this.recipes = recipes;
+        this.access = access;
+        this.tables = tables;
+    }
+
+    /**Returns true if the side of the recipe can be indexed here*/
+    public static <S, I> boolean isExact(StackMatcher<S, I> matcher){
+        return matcher.item() != null && matcher.keyShape() != null;
+    }
+
+    /**Builds the index for one side of the recipes. Only the recipes where that side {@link #isExact(StackMatcher)} are indexed.
+     *
+     * @param recipes The recipes, in the order they should be checked
+     * @param side Gets the matcher of the side to build this for, like {@link BrewingRecipe#getInput()}
+     * */
+    public static <S, I, R> ExactMatchIndex<S, I, R> build(StackAccess<S, I> access, List<R> recipes, Function<R, StackMatcher<S, I>> side){
+        Map<I, Set<KeyShape<S>>> shapes = new HashMap<>();
+        Map<KeyShape<S>, Map<Object, List<Integer>>> by_key = new HashMap<>();
+        for(int i = 0; i < recipes.size(); i++){
+            StackMatcher<S, I> matcher = side.apply(recipes.get(i));
+            if(!isExact(matcher)){
+                continue;
+            }
+            KeyShape<S> shape = matcher.keyShape();
+            shapes.computeIfAbsent(matcher.item(), k -> new LinkedHashSet<>()).add(shape);
+            by_key.computeIfAbsent(shape, k -> new HashMap<>()).computeIfAbsent(matcher.key(), k -> new ArrayList<>()).add(i);
+        }
+
+        //The items using the same shape share its table
+        Map<KeyShape<S>, KeyTable<S>> key_tables = new HashMap<>();
+        by_key.forEach((shape, keys) -> key_tables.put(shape, new KeyTable<>(shape, keys)));
+        Map<I, KeyTable<S>[]> tables = new HashMap<>();
+        shapes.forEach((item, set) -> tables.put(item, toArray(set.stream().map(key_tables::get).toList())));
+        return new ExactMatchIndex<>(recipes, access, tables);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <S> KeyTable<S>[] toArray(List<KeyTable<S>> tables){
+        //An array of a generic type can't be created, but the list only holds tables of S
+        return tables.toArray((KeyTable<S>[]) new KeyTable<?>[0]);
+    }
+
+    /**Returns the position of the first indexed recipe matching the input and the ingredient,
+     * looking only before a given position
+     *
+     * @param keyed The stack of the side this index has been built for, either the input or the ingredient
+     * @param limit Only recipes before this position are looked at
+     * @param scanned Gets the number of candidates tested, if not null
+     * @return The position of the recipe, or -1 if there isn't one
+     * */
+    public int findFirst(S keyed, S input, S ingredient, RecipeIndex.PairMatcher<R, S> matcher, int limit, @Nullable IntConsumer scanned){
+        KeyTable<S>[] item_tables = tables.get(access.getItem(keyed));
+        if(item_tables == null){
+            return -1;
+        }
+        int found = -1;
+        int tested = 0;
+        for(KeyTable<S> table : item_tables){
+            int[] candidates = table.get(keyed);
+            for(int i : candidates){
+                if(i >= limit){
+                    break;
+                }
+                tested++;
+                if(matcher.matches(recipes.get(i), input, ingredient)){
+                    //Later shapes can only give a better result if it's before this one
+                    found = i;
+                    limit = i;
+                    break;
+                }
+            }
+        }
+        if(scanned != null){
+            scanned.accept(tested);
+        }
+        return found;
+    }
+
+    /**Returns true if any indexed recipe matches the stack
+     *
+     * @param scanned Gets the number of candidates tested, if not null
+     * */
+    public boolean anyMatch(S stack, RecipeIndex.SingleMatcher<R, S> matcher, @Nullable IntConsumer scanned){
+        KeyTable<S>[] item_tables = tables.get(access.getItem(stack));
+        if(item_tables == null){
+            return false;
+        }
+        int tested = 0;
+        boolean found = false;
+        for(int s = 0; s < item_tables.length && !found; s++){
+            for(int i : item_tables[s].get(stack)){
+                tested++;
+                if(matcher.matches(recipes.get(i), stack)){
+                    found = true;
+                    break;
+                }
+            }
+        }
+        if(scanned != null){
+            scanned.accept(tested);
+        }
+        return found;
+    }
+
+    /**Marks the position of every indexed recipe matching the stack
+     *
+     * @param matches Where the positions are set
+     * @param scanned Gets the number of candidates tested, if not null
+     * */
+    public void collectMatches(S stack, RecipeIndex.SingleMatcher<R, S> matcher, BitSet matches, @Nullable IntConsumer scanned){
+        KeyTable<S>[] item_tables = tables.get(access.getItem(stack));
+        if(item_tables == null){
+            return;
+        }
+        int tested = 0;
+        for(KeyTable<S> table : item_tables){
+            for(int i : table.get(stack)){
+                tested++;
+                if(matcher.matches(recipes.get(i), stack)){
+                    matches.set(i);
+                }
+            }
+        }
+        if(scanned != null){
+            scanned.accept(tested);
+        }
+    }
+
+    /**The positions of the recipes of one shape, by their key*/
+    private static final class KeyTable<S> {
+
+        private final KeyShape<S> shape;
+        private final Object[] keys;
+        private final int[] hashes;
+        private final int[][] positions;
+        private final int mask;
+
+        private KeyTable(KeyShape<S> shape, Map<Object, List<Integer>> by_key) {
+            this.shape = shape;
+            //At most half full, so the probes stay short
+            int capacity = Integer.highestOneBit(by_key.size()) << 2;
+            this.keys = new Object[capacity];
+            this.hashes = new int[capacity];
+            this.positions = new int[capacity][];
+            this.mask = capacity - 1;
+            by_key.forEach((key, list) -> {
+                int hash = key.hashCode();
+                int slot = spread(hash) & mask;
+                while(keys[slot] != null){
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                hashes[slot] = hash;
+                positions[slot] = list.stream().mapToInt(Integer::intValue).toArray();
+            });
+        }
+
+        /**Returns the positions of the recipes with the same key as the stack*/
+        private int[] get(S stack){
+            int hash = shape.hashOf(stack);
+            for(int slot = spread(hash) & mask; keys[slot] != null; slot = (slot + 1) & mask){
+                if(hashes[slot] == hash && shape.hasKey(stack, keys[slot])){
+                    return positions[slot];
+                }
+            }
+            return NONE;
+        }
+
+        private static int spread(int hash){
+            return hash ^ (hash >>> 16);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Function;
+
+/**Used to quickly tell that a stack can't be the input or the ingredient of any recipe.
+ * <p>
+ * Most of the items that get offered to a brewing stand (by hoppers, or by clicking on a slot) aren't
+ * part of any custom recipe, so before running any component or nbt check a single bit,
+ * indexed by the raw id of the item, tells if there is a recipe using that item at all.
+ * Recipes accepting a set of items (like the ones of a tag) set the bits of all of them.
+ * Recipes that don't check the item (like the ones only checking for a component type or an nbt field)
+ * are covered by checking if the stack has that component type instead.
+ * <p>
+ * Raw ids are read when this is built.
+ * */
+public final class ItemPrefilter<S, I> {
+
+    private final StackAccess<S, I> access;
+    private final BitSet items;
+    private final Object[] any_item_types;
+    private final boolean any_item;
+
+    private ItemPrefilter(StackAccess<S, I> access, BitSet items, Object[] any_item_types, boolean any_item) {
+        this.access = access;
+        this.items = items;
+        this.any_item_types = any_item_types;
+        this.any_item = any_item;
+    }
+
+    /**Builds the prefilter for one side of the recipes
+     *
+     * @param recipes The recipes
+     * @param side Gets the matcher of the side to build this for, like {@link BrewingRecipe#getInput()}
+     * */
+    public static <S, I, R> ItemPrefilter<S, I> build(StackAccess<S, I> access, List<R> recipes, Function<R, StackMatcher<S, I>> side){
+        BitSet items = new BitSet();
+        List<Object> any_item_types = new ArrayList<>();
+        boolean any_item = false;
+        for(R recipe : recipes){
+            StackMatcher<S, I> matcher = side.apply(recipe);
+            I item = matcher.item();
+            if(item != null){
+                items.set(access.getRawId(item));
+                continue;
+            }
+            if(matcher.items() != null){
+                items.or(matcher.items());
+                continue;
+            }
+            Object type = matcher.requiredComponent();
+            if(type == null){
+                //Can't tell anything about the stacks this matches, so nothing can be filtered out
+                any_item = true;
+            }else if(!any_item_types.contains(type)){
+                any_item_types.add(type);
+            }
+        }
+        return new ItemPrefilter<>(access, items, any_item_types.toArray(), any_item);
+    }
+
+    /**Returns false if the stack surely doesn't match any of the recipes,
+     * true if it might match one of them and the full check is needed*/
+    public boolean mightMatch(S stack){
+        if(any_item || items.get(access.getRawId(access.getItem(stack)))){
+            return true;
+        }
+        for(Object type : any_item_types){
+            if(access.contains(stack, type)){
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,35 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import org.jetbrains.annotations.Nullable;
+
+/**What an exact {@link StackMatcher} reads from a stack to compare it, for example the values of a
+ * certain set of component types, or the whole custom data.
+ * <p>
+ * Matchers with equal shapes read the same thing, so the key of a stack only has to be read once
+ * to find all of them with a single hash lookup, see {@link ExactMatchIndex}.
+ * Implementations must implement equals and hashCode.
+ * <p>
+ * A lookup only uses {@link #hashOf(Object)} and {@link #hasKey(Object, Object)}, so a shape whose
+ * key has to be created (like the values of more than one component type) can override them to read
+ * the stack without allocating.
+ *
+ * @param <S> The stack type
+ * */
+public interface KeyShape<S> {
+
+    /**Reads the key of the stack, which is equal to the {@link StackMatcher#key()} of the matchers
+     * of this shape that the stack matches. Null if the stack can't match any of them.*/
+    @Nullable
+    Object keyOf(S stack);
+
+    /**Returns the hash code of the key of the stack, any number if it doesn't have one*/
+    default int hashOf(S stack){
+        Object key = keyOf(stack);
+        return key != null ? key.hashCode() : 0;
+    }
+
+    /**Returns true if the key of the stack is equal to the given one, which is never null*/
+    default boolean hasKey(S stack, Object key){
+        return key.equals(keyOf(stack));
+    }
+}
@@ -0,0 +1,123 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**Finds the recipes that can never be used, because an earlier recipe matches every input and ingredient they match.
+ * <p>
+ * Since the first recipe matching is the one used, these are either duplicates of an earlier recipe
+ * or shadowed by a broader one, like a recipe only checking the items in front of one also checking their components.
+ * They can be left out of the {@link RecipeLookup} without changing any result, so they aren't tested on every miss.
+ * <p>
+ * Each recipe is only compared with the earlier ones that could cover it: the ones with the same item or any item,
+ * and for exact matchers the same key (see {@link StackMatcher#covers(StackMatcher)}).
+ * At most {@link #MAX_CANDIDATES} of them are compared, a recipe with more is just kept.
+ *
+ * @param <R> The recipe type
+ * */
+public final class RecipeAnalysis<R> {
+
+    static final int MAX_CANDIDATES = 1024;
+
+    private final List<R> kept;
+    private final List<Unreachable<R>> unreachable;
+
+    private RecipeAnalysis(List<R> kept, List<Unreachable<R>> unreachable) {
+        this.kept = kept;
+        this.unreachable = unreachable;
+    }
+
+    /**A recipe that is never used, because of an earlier one
+     *
+     * @param duplicate True if the two recipes match exactly the same stacks
+     * */
+    public record Unreachable<R>(R recipe, R covered_by, boolean duplicate) {
+    }
+
+    /**Analyzes the recipes
+     *
+     * @param recipes The recipes, in the order they should be checked
+     * */
+    public static <S, I, R extends BrewingRecipe<S, I>> RecipeAnalysis<R> analyze(List<R> recipes){
+        List<R> kept = new ArrayList<>(recipes.size());
+        List<Unreachable<R>> unreachable = new ArrayList<>();
+        //The recipes kept so far, by the sides they could cover
+        Map<Sides, List<R>> by_sides = new HashMap<>();
+        for(R recipe : recipes){
+            Unreachable<R> found = findCovering(recipe, by_sides);
+            if(found != null){
+                unreachable.add(found);
+                continue;
+            }
+            kept.add(recipe);
+            by_sides.computeIfAbsent(new Sides(Side.of(recipe.getInput()), Side.of(recipe.getIngredient())), k -> new ArrayList<>()).add(recipe);
+        }
+        return new RecipeAnalysis<>(Collections.unmodifiableList(kept), Collections.unmodifiableList(unreachable));
+    }
+
+    @Nullable
+    private static <S, I, R extends BrewingRecipe<S, I>> Unreachable<R> findCovering(R recipe, Map<Sides, List<R>> by_sides){
+        int compared = 0;
+        for(Side input : Side.coveringCandidates(recipe.getInput())){
+            for(Side ingredient : Side.coveringCandidates(recipe.getIngredient())){
+                List<R> candidates = by_sides.get(new Sides(input, ingredient));
+                if(candidates == null){
+                    continue;
+                }
+                for(R candidate : candidates){
+                    if(++compared > MAX_CANDIDATES){
+                        return null;
+                    }
+                    if(candidate.getInput().covers(recipe.getInput()) && candidate.getIngredient().covers(recipe.getIngredient())){
+                        boolean duplicate = recipe.getInput().covers(candidate.getInput()) && recipe.getIngredient().covers(candidate.getIngredient());
+                        return new Unreachable<>(recipe, candidate, duplicate);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**The recipes that can be used, in order*/
+    public List<R> getKept() {
+        return kept;
+    }
+
+    /**The recipes that can never be used, in order*/
+    public List<Unreachable<R>> getUnreachable() {
+        return unreachable;
+    }
+
+    /**What one side of a recipe is limited to: an item (or any item), and for exact matchers their key*/
+    private record Side(@Nullable Object item, @Nullable KeyShape<?> shape, @Nullable Object key) {
+
+        private static final Side ANY = new Side(null, null, null);
+
+        static Side of(StackMatcher<?, ?> matcher){
+            KeyShape<?> shape = matcher.keyShape();
+            return new Side(matcher.item(), shape, shape != null ? matcher.key() : null);
+        }
+
+        /**The sides of the matchers that could cover this one: exact ones with the same key,
+         * the ones with the same item, and the ones matching any item*/
+        static Set<Side> coveringCandidates(StackMatcher<?, ?> matcher){
+            Set<Side> sides = new LinkedHashSet<>();
+            sides.add(of(matcher));
+            if(matcher.item() != null){
+                sides.add(new Side(matcher.item(), null, null));
+            }
+            sides.add(ANY);
+            return sides;
+        }
+    }
+
+    private record Sides(Side input, Side ingredient) {
+    }
+}
@@ -0,0 +1,296 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+/**Used to avoid scanning every registered recipe on each brewing check.
+ * <p>
+ * Recipes are bucketed by their (input, ingredient) key pair and by their ingredient key alone,
+ * so that a lookup only has to test the few recipes that can actually match those items.
+ * A recipe side with a null key (for example a recipe that only checks for the presence of a
+ * component type or an nbt field) is treated as matching any item, and is kept in separate buckets
+ * that every lookup also goes through.
+ * <p>
+ * The order in which the recipes have been registered is kept, so the first matching
+ * recipe is still the same one that a linear scan of the list would find.
+ *
+ * @param <K> The key type of the recipe sides, for example an Item
+ * @param <R> The recipe type
+ * */
+public final class RecipeIndex<K, R> {
+
+    private static final int[] NONE = new int[0];
+
+    private final Object[] recipes;
+
+    private final Map<K, Map<K, int[]>> byPair;
+    private final Map<K, int[]> anyInputByIngredient;
+    private final Map<K, int[]> anyIngredientByInput;
+    private final int[] anyPair;
+
+    private final Map<K, int[]> byIngredient;
+    private final int[] anyIngredient;
+    private final Map<K, int[]> byInput;
+    private final int[] anyInput;
+
+    private RecipeIndex(Object[] recipes, Map<K, Map<K, int[]>> byPair, Map<K, int[]> anyInputByIngredient, Map<K, int[]> anyIngredientByInput, int[] anyPair,
+                              Map<K, int[]> byIngredient, int[] anyIngredient, Map<K, int[]> byInput, int[] anyInput) {
+        this.recipes = recipes;
+        this.byPair = byPair;
+        this.anyInputByIngredient = anyInputByIngredient;
+        this.anyIngredientByInput = anyIngredientByInput;
+        this.anyPair = anyPair;
+        this.byIngredient = byIngredient;
+        this.anyIngredient = anyIngredient;
+        this.byInput = byInput;
+        this.anyInput = anyInput;
+    }
+
+    /**Builds a new index from a list of recipes, keeping their order
+     *
+     * @param recipes The recipes to index, in the order they have been registered
+     * @param inputKey Gets the key of the input side of a recipe, or null if that side can match any item
+     * @param ingredientKey Gets the key of the ingredient side of a recipe, or null if that side can match any item
+     * */
+    public static <K, R> RecipeIndex<K, R> build(List<R> recipes, Function<R, K> inputKey, Function<R, K> ingredientKey){
+        return build(recipes, inputKey, ingredientKey, recipe -> true, recipe -> true, recipe -> true);
+    }
+
+    /**Builds a new index from a list of recipes, keeping their order, but leaving out of each lookup
+     * the recipes that are found in another way (like with an {@link ExactMatchIndex})
+     *
+     * @param recipes The recipes to index, in the order they have been registered
+     * @param inputKey Gets the key of the input side of a recipe, or null if that side can match any item
+     * @param ingredientKey Gets the key of the ingredient side of a recipe, or null if that side can match any item
+     * @param inPairs The recipes that {@link #findFirst} should look at
+     * @param inInputs The recipes that {@link #anyInputMatch} should look at
+     * @param inIngredients The recipes that {@link #anyIngredientMatch} should look at
+     * */
+    public static <K, R> RecipeIndex<K, R> build(List<R> recipes, Function<R, K> inputKey, Function<R, K> ingredientKey,
+                                                 Predicate<R> inPairs, Predicate<R> inInputs, Predicate<R> inIngredients){
+        Map<K, Map<K, List<Integer>>> byPair = new HashMap<>();
+        Map<K, List<Integer>> anyInputByIngredient = new HashMap<>();
+        Map<K, List<Integer>> anyIngredientByInput = new HashMap<>();
+        List<Integer> anyPair = new ArrayList<>();
+        Map<K, List<Integer>> byIngredient = new HashMap<>();
+        List<Integer> anyIngredient = new ArrayList<>();
+        Map<K, List<Integer>> byInput = new HashMap<>();
+        List<Integer> anyInput = new ArrayList<>();
+
+        for(int i = 0; i < recipes.size(); i++){
+            R recipe = recipes.get(i);
+            K input = inputKey.apply(recipe);
+            K ingredient = ingredientKey.apply(recipe);
+
+            if(!inPairs.test(recipe)){
+                //Not looked up by pair
+            }else if(input != null && ingredient != null){
+                byPair.computeIfAbsent(input, k -> new HashMap<>()).computeIfAbsent(ingredient, k -> new ArrayList<>()).add(i);
+            }else if(ingredient != null){
+                anyInputByIngredient.computeIfAbsent(ingredient, k -> new ArrayList<>()).add(i);
+            }else if(input != null){
+                anyIngredientByInput.computeIfAbsent(input, k -> new ArrayList<>()).add(i);
+            }else{
+                anyPair.add(i);
+            }
+
+            if(!inIngredients.test(recipe)){
+                //Not looked up as an ingredient
+            }else if(ingredient != null){
+                byIngredient.computeIfAbsent(ingredient, k -> new ArrayList<>()).add(i);
+            }else{
+                anyIngredient.add(i);
+            }
+            if(!inInputs.test(recipe)){
+                //Not looked up as an input
+            }else if(input != null){
+                byInput.computeIfAbsent(input, k -> new ArrayList<>()).add(i);
+            }else{
+                anyInput.add(i);
+            }
+        }
+
+        Map<K, Map<K, int[]>> pairs = new HashMap<>();
+        byPair.forEach((input, ingredients) -> pairs.put(input, toArrays(ingredients)));
+
+        return new RecipeIndex<>(recipes.toArray(), pairs, toArrays(anyInputByIngredient), toArrays(anyIngredientByInput), toArray(anyPair),
+                toArrays(byIngredient), toArray(anyIngredient), toArrays(byInput), toArray(anyInput));
+    }
+
+    private static <K> Map<K, int[]> toArrays(Map<K, List<Integer>> map){
+        Map<K, int[]> arrays = new HashMap<>();
+        map.forEach((key, list) -> arrays.put(key, toArray(list)));
+        return arrays;
+    }
+
+    private static int[] toArray(List<Integer> list){
+        if(list.isEmpty()){
+            return NONE;
+        }
+        int[] array = new int[list.size()];
+        for(int i = 0; i < array.length; i++){
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+
+    private static <K> int[] get(Map<K, int[]> map, K key){
+        int[] found = map.get(key);
+        return found != null ? found : NONE;
+    }
+
+    /**Returns the first recipe, in registration order, that could be used
+     * with the given input and ingredient, or null if there isn't one.
+     *
+     * @param inputKey The key of the input, like its Item
+     * @param ingredientKey The key of the ingredient, like its Item
+     * @param input The input, passed to the matcher
+     * @param ingredient The ingredient, passed to the matcher
+     * @param matcher Checks if one of the candidate recipes actually matches the input and ingredient
+     * */
+    @Nullable
+    public <S> R findFirst(K inputKey, K ingredientKey, S input, S ingredient, PairMatcher<R, S> matcher){
+        return findFirst(inputKey, ingredientKey, input, ingredient, matcher, Integer.MAX_VALUE, null);
+    }
+
+    /**Same as {@link #findFirst(Object, Object, Object, Object, PairMatcher)}, but only looking at the recipes
+     * before a given position, and also telling how many candidate recipes have been tested
+     *
+     * @param limit Only the recipes before this position in the list this has been built from are looked at
+     * @param scanned Gets the number of candidates tested, if not null
+     * */
+    @Nullable
+    @SuppressWarnings("unchecked")
+    public <S> R findFirst(K inputKey, K ingredientKey, S input, S ingredient, PairMatcher<R, S> matcher, int limit, @Nullable IntConsumer scanned){
+        Map<K, int[]> ingredients = byPair.get(inputKey);
+        int[] a = ingredients != null ? get(ingredients, ingredientKey) : NONE;
+        int[] b = get(anyInputByIngredient, ingredientKey);
+        int[] c = get(anyIngredientByInput, inputKey);
+        int[] d = anyPair;
+        int ia = 0, ib = 0, ic = 0, id = 0;
+        int tested = 0;
+
+        //The four buckets are disjoint and each one is sorted, so merging them gives back the registration order
+        while(true){
+            int next = Integer.MAX_VALUE;
+            int from = -1;
+            if(ia < a.length && a[ia] < next){ next = a[ia]; from = 0; }
+            if(ib < b.length && b[ib] < next){ next = b[ib]; from = 1; }
+            if(ic < c.length && c[ic] < next){ next = c[ic]; from = 2; }
+            if(id < d.length && d[id] < next){ next = d[id]; from = 3; }
+            if(from == -1 || next >= limit){
+                if(scanned != null){
+                    scanned.accept(tested);
+                }
+                return null;
+            }
+            switch (from) {
+                case 0 -> ia++;
+                case 1 -> ib++;
+                case 2 -> ic++;
+                default -> id++;
+            }
+            R recipe = (R) recipes[next];
+            tested++;
+            if(matcher.matches(recipe, input, ingredient)){
+                if(scanned != null){
+                    scanned.accept(tested);
+                }
+                return recipe;
+            }
+        }
+    }
+
+    /**Returns true if any recipe that could use the given key as ingredient matches the ingredient*/
+    public <S> boolean anyIngredientMatch(K key, S ingredient, SingleMatcher<R, S> matcher){
+        return anyIngredientMatch(key, ingredient, matcher, null);
+    }
+
+    /**Same as {@link #anyIngredientMatch(Object, Object, SingleMatcher)}, but also tells how many candidate recipes have been tested
+     *
+     * @param scanned Gets the number of candidates tested, if not null
+     * */
+    public <S> boolean anyIngredientMatch(K key, S ingredient, SingleMatcher<R, S> matcher, @Nullable IntConsumer scanned){
+        return anyMatch(get(byIngredient, key), anyIngredient, ingredient, matcher, scanned);
+    }
+
+    /**Returns true if any recipe that could use the given key as input matches the input*/
+    public <S> boolean anyInputMatch(K key, S input, SingleMatcher<R, S> matcher){
+        return anyInputMatch(key, input, matcher, null);
+    }
+
+    /**Same as {@link #anyInputMatch(Object, Object, SingleMatcher)}, but also tells how many candidate recipes have been tested
+     *
+     * @param scanned Gets the number of candidates tested, if not null
+     * */
+    public <S> boolean anyInputMatch(K key, S input, SingleMatcher<R, S> matcher, @Nullable IntConsumer scanned){
+        return anyMatch(get(byInput, key), anyInput, input, matcher, scanned);
+    }
+
+    /**Marks the position of every recipe that could use the given key as ingredient and matches the ingredient
+     *
+     * @param matches Where the positions are set
+     * @param scanned Gets the number of candidates tested, if not null
+     * */
+    @SuppressWarnings("unchecked")
+    public <S> void collectIngredientMatches(K key, S ingredient, SingleMatcher<R, S> matcher, BitSet matches, @Nullable IntConsumer scanned){
+        int[] keyed = get(byIngredient, key);
+        for(int i : keyed){
+            if(matcher.matches((R) recipes[i], ingredient)){
+                matches.set(i);
+            }
+        }
+        for(int i : anyIngredient){
+            if(matcher.matches((R) recipes[i], ingredient)){
+                matches.set(i);
+            }
+        }
+        if(scanned != null){
+            scanned.accept(keyed.length + anyIngredient.length);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <S> boolean anyMatch(int[] keyed, int[] any, S stack, SingleMatcher<R, S> matcher, @Nullable IntConsumer scanned){
+        int tested = 0;
+        boolean found = false;
+        for(int i : keyed){
+            tested++;
+            if(matcher.matches((R) recipes[i], stack)){
+                found = true;
+                break;
+            }
+        }
+        if(!found){
+            for(int i : any){
+                tested++;
+                if(matcher.matches((R) recipes[i], stack)){
+                    found = true;
+                    break;
+                }
+            }
+        }
+        if(scanned != null){
+            scanned.accept(tested);
+        }
+        return found;
+    }
+
+    @FunctionalInterface
+    public interface PairMatcher<R, S> {
+        boolean matches(R recipe, S input, S ingredient);
+    }
+
+    @FunctionalInterface
+    public interface SingleMatcher<R, S> {
+        boolean matches(R recipe, S stack);
+    }
+}
@@ -0,0 +1,217 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntConsumer;
+
+/**Everything needed to look up the recipes for a brewing stand: the {@link RecipeIndex},
+ * the {@link ExactMatchIndex} and the {@link ItemPrefilter} for the inputs and the ingredients.
+ * <p>
+ * The recipes with an exact input or ingredient are found through their {@link ExactMatchIndex},
+ * and left out of the {@link RecipeIndex} for the lookups that use it.
+ * <p>
+ * This is immutable and built from the recipes in the order they should be checked,
+ * the first one matching is the one used.
+ *
+ * @param <S> The stack type
+ * @param <I> The item type
+ * @param <R> The recipe type
+ * */
+public final class RecipeLookup<S, I, R extends BrewingRecipe<S, I>> {
+
+    private final StackAccess<S, I> access;
+    private final List<R> recipes;
+    private final RecipeIndex<I, R> index;
+    private final ExactMatchIndex<S, I, R> exact_inputs;
+    private final ExactMatchIndex<S, I, R> exact_ingredients;
+    private final ItemPrefilter<S, I> inputs;
+    private final ItemPrefilter<S, I> ingredients;
+    /**The recipes matched by the ingredient in {@link #findEach}, kept for each thread so a lookup doesn't allocate*/
+    private final ThreadLocal<BitSet> shortlists = ThreadLocal.withInitial(BitSet::new);
+
+    private RecipeLookup(StackAccess<S, I> access, List<R> recipes, RecipeIndex<I, R> index, ExactMatchIndex<S, I, R> exact_inputs,
+                         ExactMatchIndex<S, I, R> exact_ingredients, ItemPrefilter<S, I> inputs, ItemPrefilter<S, I> ingredients) {
+        this.access = access;
+        this.recipes = recipes;
+        this.index = index;
+        this.exact_inputs = exact_inputs;
+        this.exact_ingredients = exact_ingredients;
+        this.inputs = inputs;
+        this.ingredients = ingredients;
+    }
+
+    /**Builds the lookup for the given recipes
+     *
+     * @param access Used to read the stacks
+     * @param recipes The recipes, in the order they should be checked
+     * */
+    public static <S, I, R extends BrewingRecipe<S, I>> RecipeLookup<S, I, R> build(StackAccess<S, I> access, List<R> recipes){
+        return build(access, recipes, false);
+    }
+
+    /**Builds the lookup for the given recipes
+     *
+     * @param access Used to read the stacks
+     * @param recipes The recipes, in the order they should be checked
+     * @param parallel If true, the indexes and the prefilters are built at the same time on the common fork/join pool.
+     *                 They don't depend on each other, so the result is the same
+     * */
+    public static <S, I, R extends BrewingRecipe<S, I>> RecipeLookup<S, I, R> build(StackAccess<S, I> access, List<R> recipes, boolean parallel){
+        List<R> copy = List.copyOf(recipes);
+        ForkJoinTask<RecipeIndex<I, R>> index = ForkJoinTask.adapt(() ->
+                RecipeIndex.build(copy, recipe -> recipe.getInput().item(), recipe -> recipe.getIngredient().item(),
+                        recipe -> !ExactMatchIndex.isExact(recipe.getInput()) && !ExactMatchIndex.isExact(recipe.getIngredient()),
+                        recipe -> !ExactMatchIndex.isExact(recipe.getInput()),
+                        recipe -> !ExactMatchIndex.isExact(recipe.getIngredient())));
+        ForkJoinTask<ExactMatchIndex<S, I, R>> exact_inputs = ForkJoinTask.adapt(() -> ExactMatchIndex.build(access, copy, BrewingRecipe::getInput));
+        ForkJoinTask<ExactMatchIndex<S, I, R>> exact_ingredients = ForkJoinTask.adapt(() -> ExactMatchIndex.build(access, copy, BrewingRecipe::getIngredient));
+        ForkJoinTask<ItemPrefilter<S, I>> inputs = ForkJoinTask.adapt(() -> ItemPrefilter.build(access, copy, BrewingRecipe::getInput));
+        ForkJoinTask<ItemPrefilter<S, I>> ingredients = ForkJoinTask.adapt(() -> ItemPrefilter.build(access, copy, BrewingRecipe::getIngredient));
+        if(parallel){
+            ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(index, exact_inputs, exact_ingredients, inputs, ingredients)));
+        }else{
+            index.invoke();
+            exact_inputs.invoke();
+            exact_ingredients.invoke();
+            inputs.invoke();
+            ingredients.invoke();
+        }
+        return new RecipeLookup<>(access, copy, index.join(), exact_inputs.join(), exact_ingredients.join(), inputs.join(), ingredients.join());
+    }
+
+    /**Returns the first recipe matching the input and the ingredient, or null if there isn't one*/
+    @Nullable
+    public R find(S input, S ingredient){
+        return find(input, ingredient, null);
+    }
+
+    /**Returns the first recipe matching the input and the ingredient, or null if there isn't one
+     *
+     * @param scanned Gets the number of candidate recipes tested, if not null, possibly split across more than one call.
+     *                Zero if the prefilter rejected the stacks
+     * */
+    @Nullable
+    public R find(S input, S ingredient, @Nullable IntConsumer scanned){
+        if(!ingredients.mightMatch(ingredient)){
+            if(scanned != null){
+                scanned.accept(0);
+            }
+            return null;
+        }
+        //Each lookup only looks before the best recipe found so far, so the first recipe in order wins
+        int exact = exact_inputs.findFirst(input, input, ingredient, BrewingRecipe::matches, Integer.MAX_VALUE, scanned);
+        int exact_ingredient = exact_ingredients.findFirst(ingredient, input, ingredient, BrewingRecipe::matches, exact < 0 ? Integer.MAX_VALUE : exact, scanned);
+        if(exact_ingredient >= 0){
+            exact = exact_ingredient;
+        }
+        R recipe = index.findFirst(access.getItem(input), access.getItem(ingredient), input, ingredient, BrewingRecipe::matches,
+                exact < 0 ? Integer.MAX_VALUE : exact, scanned);
+        if(recipe != null){
+            return recipe;
+        }
+        return exact >= 0 ? recipes.get(exact) : null;
+    }
+
+    /**Finds the first recipe matching each of the inputs together with the same ingredient,
+     * like calling {@link #find(Object, Object)} for each of them.
+     * <p>
+     * The ingredient is only matched once: every recipe it matches is collected first,
+     * then each input is only tested against those, in order.
+     *
+     * @param ingredient The ingredient shared by all the inputs
+     * @param inputs The inputs, the null ones are skipped
+     * @param found Gets the recipe found for each input at the same position, or null if there isn't one
+     * @param scanned Gets the number of candidate recipes tested, if not null, possibly split across more than one call.
+     *                Zero if the prefilter rejected the ingredient
+     * */
+    public void findEach(S ingredient, S[] inputs, R[] found, @Nullable IntConsumer scanned){
+        for(int i = 0; i < inputs.length; i++){
+            found[i] = null;
+        }
+        if(!ingredients.mightMatch(ingredient)){
+            if(scanned != null){
+                scanned.accept(0);
+            }
+            return;
+        }
+        BitSet shortlist = shortlists.get();
+        shortlist.clear();
+        exact_ingredients.collectMatches(ingredient, (recipe, stack) -> recipe.getIngredient().matches(stack), shortlist, scanned);
+        index.collectIngredientMatches(access.getItem(ingredient), ingredient, (recipe, stack) -> recipe.getIngredient().matches(stack), shortlist, scanned);
+
+        int tested = 0;
+        for(int i = 0; i < inputs.length; i++){
+            S input = inputs[i];
+            if(input == null){
+                continue;
+            }
+            I item = access.getItem(input);
+            for(int p = shortlist.nextSetBit(0); p >= 0; p = shortlist.nextSetBit(p + 1)){
+                StackMatcher<S, I> matcher = recipes.get(p).getInput();
+                //Comparing the item is enough to skip most of them
+                if(matcher.item() != null && !matcher.item().equals(item)){
+                    continue;
+                }
+                tested++;
+                if(matcher.matches(input)){
+                    found[i] = recipes.get(p);
+                    break;
+                }
+            }
+        }
+        if(scanned != null){
+            scanned.accept(tested);
+        }
+    }
+
+    /**Returns true if the stack is the input of any recipe*/
+    public boolean isInput(S stack){
+        return isInput(stack, null);
+    }
+
+    /**Returns true if the stack is the input of any recipe
+     *
+     * @param scanned Gets the number of candidate recipes tested, if not null, possibly split across more than one call.
+     *                Zero if the prefilter rejected the stack
+     * */
+    public boolean isInput(S stack, @Nullable IntConsumer scanned){
+        if(!inputs.mightMatch(stack)){
+            if(scanned != null){
+                scanned.accept(0);
+            }
+            return false;
+        }
+        return exact_inputs.anyMatch(stack, (recipe, input) -> recipe.getInput().matches(input), scanned)
+                || index.anyInputMatch(access.getItem(stack), stack, (recipe, input) -> recipe.getInput().matches(input), scanned);
+    }
+
+    /**Returns true if the stack is the ingredient of any recipe*/
+    public boolean isIngredient(S stack){
+        return isIngredient(stack, null);
+    }
+
+    /**Returns true if the stack is the ingredient of any recipe
+     *
+     * @param scanned Gets the number of candidate recipes tested, if not null, possibly split across more than one call.
+     *                Zero if the prefilter rejected the stack
+     * */
+    public boolean isIngredient(S stack, @Nullable IntConsumer scanned){
+        if(!ingredients.mightMatch(stack)){
+            if(scanned != null){
+                scanned.accept(0);
+            }
+            return false;
+        }
+        return exact_ingredients.anyMatch(stack, (recipe, ingredient) -> recipe.getIngredient().matches(ingredient), scanned)
+                || index.anyIngredientMatch(access.getItem(stack), stack, (recipe, ingredient) -> recipe.getIngredient().matches(ingredient), scanned);
+    }
+
+    /**The recipes of this lookup, in the order they are checked*/
+    public List<R> getRecipes() {
+        return recipes;
+    }
+}
@@ -0,0 +1,46 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import org.jetbrains.annotations.Nullable;
+
+/**Gives the matching code access to the item and the components of a stack,
+ * without it needing to know what a stack actually is.
+ * <p>
+ * The mod implements this for Minecraft's ItemStack, while tests and benchmarks can use something
+ * much simpler that doesn't need the game to be loaded. Implementations are expected to be stateless
+ * singletons, since matchers keep a reference to the one they have been compiled with.
+ *
+ * @param <S> The stack type, like an ItemStack
+ * @param <I> The item type, like an Item. Items are compared by identity
+ * */
+public interface StackAccess<S, I> {
+
+    /**The item of the stack*/
+    I getItem(S stack);
+
+    /**A small non-negative number that identifies the item, like the raw id of the item in its registry*/
+    int getRawId(I item);
+
+    /**Returns true if the stack has the component type*/
+    boolean contains(S stack, Object type);
+
+    /**Returns the value of the component type on the stack, or null if it isn't there*/
+    @Nullable
+    Object get(S stack, Object type);
+
+    /**Returns true if the stack only has the default components of its item*/
+    boolean hasDefaultComponentsOnly(S stack);
+
+    /**The component type holding the custom data (what used to be the nbt of the stack)*/
+    Object getCustomDataType();
+
+    /**Returns the custom data of the stack, or null if it doesn't have any. This must not be modified.*/
+    @Nullable
+    Object getCustomData(S stack);
+
+    /**Returns true if the custom data of the stack has the field*/
+    boolean hasCustomDataField(S stack, String field);
+
+    /**Returns the value of the field in the custom data of the stack, or null if it isn't there*/
+    @Nullable
+    Object getCustomDataField(S stack, String field);
+}
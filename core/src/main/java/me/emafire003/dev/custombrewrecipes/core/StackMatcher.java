@@ -0,0 +1,63 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.BitSet;
+
+/**One side of a recipe (the input or the ingredient) compiled into a single check.
+ * <p>
+ * Recipes are compiled once when they are registered, so when brewing only the check
+ * for that kind of recipe runs, instead of figuring out again which fields of the recipe are set.
+ * Matchers are immutable (what they match never changes), see {@link StackMatchers} for the different kinds.
+ * The only state one may hold is statistics about the stacks it has seen, to order its own checks,
+ * which has to be safe to update from any thread (see {@link StackMatchers.ComponentConstraints}).
+ *
+ * @param <S> The stack type
+ * @param <I> The item type
+ * */
+public interface StackMatcher<S, I> {
+
+    /**Returns true if the stack can be used as this side of the recipe*/
+    boolean matches(S stack);
+
+    /**The item this matcher is limited to, or null if it can match any item,
+     * for example when only the presence of a component type is checked*/
+    @Nullable
+    I item();
+
+    /**When {@link #item()} is null, the raw ids of the items that this can match, if it's limited to some of them
+     * (see {@link StackAccess#getRawId(Object)}). Null if there isn't such a limit. This must not be modified.*/
+    @Nullable
+    default BitSet items(){
+        return null;
+    }
+
+    /**When {@link #item()} is null, a component type that every stack matching this
+     * has to have, used to quickly skip the stacks that don't have it.
+     * Null if there isn't one.*/
+    @Nullable
+    default Object requiredComponent(){
+        return null;
+    }
+
+    /**Set when this only matches stacks of {@link #item()} that have exactly a certain value for
+     * something, like a set of components or their custom data, so that recipes can be found by that
+     * value instead of being tested one after the other. Null otherwise.*/
+    @Nullable
+    default KeyShape<S> keyShape(){
+        return null;
+    }
+
+    /**The key that a stack must have to match this, when {@link #keyShape()} isn't null*/
+    @Nullable
+    default Object key(){
+        return null;
+    }
+
+    /**Returns true if every stack matching the other matcher matches this one too, used to find the recipes
+     * that can never be used. This can return false when it's not sure, which only means less is found.
+     * By default, only an equal matcher is covered.*/
+    default boolean covers(StackMatcher<S, I> other){
+        return equals(other);
+    }
+}
@@ -0,0 +1,614 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntToDoubleFunction;
+
+/**The different kinds of {@link StackMatcher}.
+ * <p>
+ * Which one is used for a recipe is decided once when the recipe is compiled, depending on which
+ * of its fields are set. Component types, component values and custom data are only
+ * compared with equals, and read through the {@link StackAccess}.
+ * */
+public final class StackMatchers {
+
+    private StackMatchers() {
+    }
+
+    /**Only the item has to be the same, used by the recipes without components or nbt*/
+    public static <S, I> StackMatcher<S, I> item(StackAccess<S, I> access, I item){
+        return new ItemOnly<>(access, item);
+    }
+
+    /**The item has to be one of a set, like the items in a tag. Nothing else is checked
+     *
+     * @param items The raw ids of the items, see {@link StackAccess#getRawId(Object)}
+     * */
+    public static <S, I> StackMatcher<S, I> itemSet(StackAccess<S, I> access, BitSet items){
+        return new ItemSet<>(access, (BitSet) items.clone());
+    }
+
+    /**The item has to be the same and not have any component besides the default ones*/
+    public static <S, I> StackMatcher<S, I> defaultComponentsOnly(StackAccess<S, I> access, I item){
+        return new DefaultComponentsOnly<>(access, item);
+    }
+
+    /**The item has to be the same and have all the given components, with the same values
+     *
+     * @param types The component types
+     * @param values The value of each component type, in the same order
+     * */
+    public static <S, I> StackMatcher<S, I> hasComponents(StackAccess<S, I> access, I item, Object[] types, Object[] values){
+        if(types.length != values.length){
+            throw new IllegalArgumentException("Every component type needs a value");
+        }
+        return new HasComponents<>(access, item, types.clone(), values.clone());
+    }
+
+    /**Any item that has the component type, regardless of its value*/
+    public static <S, I> StackMatcher<S, I> componentPresence(StackAccess<S, I> access, Object type){
+        return new ComponentPresence<>(access, type);
+    }
+
+    /**Any item that has the component type with the same value*/
+    public static <S, I> StackMatcher<S, I> componentValue(StackAccess<S, I> access, Object type, Object value){
+        return new ComponentValue<>(access, type, value);
+    }
+
+    /**The stack has to have all the component types, and the given values for some of them.
+     * The checks run from the one most likely to reject a stack for its cost, see {@link ComponentConstraints}
+     *
+     * @param item The item the stack has to be, or null for any item
+     * @param types The component types that have to be on the stack
+     * @param values The value each type must have, in the same order, or null to only check that the type is there
+     * */
+    public static <S, I> StackMatcher<S, I> componentConstraints(StackAccess<S, I> access, @Nullable I item, Object[] types, Object[] values){
+        if(types.length != values.length){
+            throw new IllegalArgumentException("Every component type needs a value, or null");
+        }
+        return new ComponentConstraints<>(access, item, types.clone(), values.clone());
+    }
+
+    /**The item has to be the same and not have any custom data*/
+    public static <S, I> StackMatcher<S, I> noCustomData(StackAccess<S, I> access, I item){
+        return new NoCustomData<>(access, item);
+    }
+
+    /**The item has to be the same and have exactly the same custom data*/
+    public static <S, I> StackMatcher<S, I> sameCustomData(StackAccess<S, I> access, I item, Object data){
+        return new SameCustomData<>(access, item, data);
+    }
+
+    /**Any item that has the field in its custom data, regardless of its value*/
+    public static <S, I> StackMatcher<S, I> customDataField(StackAccess<S, I> access, String field){
+        return new CustomDataField<>(access, field);
+    }
+
+    /**Any item that has the field in its custom data with the same value*/
+    public static <S, I> StackMatcher<S, I> customDataFieldValue(StackAccess<S, I> access, String field, Object value){
+        return new CustomDataFieldValue<>(access, field, value);
+    }
+
+    /**Returns true if every stack matching the matcher has the component type*/
+    static boolean requiresComponent(StackMatcher<?, ?> matcher, Object type){
+        if(type.equals(matcher.requiredComponent())){
+            return true;
+        }
+        if(matcher instanceof HasComponents<?, ?> components){
+            return indexOf(components.types(), type) >= 0;
+        }
+        if(matcher instanceof ComponentConstraints<?, ?> constraints){
+            return indexOf(constraints.types, type) >= 0;
+        }
+        return matcher instanceof SameCustomData<?, ?> data && type.equals(data.access().getCustomDataType());
+    }
+
+    /**Returns true if every stack matching the matcher has the component type with the value*/
+    static boolean requiresValue(StackMatcher<?, ?> matcher, Object type, Object value){
+        if(matcher instanceof ComponentValue<?, ?> component){
+            return component.type().equals(type) && component.value().equals(value);
+        }
+        if(matcher instanceof HasComponents<?, ?> components){
+            int i = indexOf(components.types(), type);
+            return i >= 0 && value.equals(components.values()[i]);
+        }
+        if(matcher instanceof ComponentConstraints<?, ?> constraints){
+            int i = indexOf(constraints.types, type);
+            return i >= 0 && value.equals(constraints.values[i]);
+        }
+        return false;
+    }
+
+    private static int indexOf(Object[] types, Object type){
+        for(int i = 0; i < types.length; i++){
+            if(types[i].equals(type)){
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    record ItemOnly<S, I>(StackAccess<S, I> access, I item) implements StackMatcher<S, I> {
+        @Override
+        public boolean matches(S stack) {
+            return access.getItem(stack) == item;
+        }
+
+        @Override
+        public boolean covers(StackMatcher<S, I> other) {
+            if(other.item() != null){
+                return other.item() == item;
+            }
+            BitSet items = other.items();
+            return items != null && items.cardinality() == 1 && items.get(access.getRawId(item));
+        }
+    }
+
+    record ItemSet<S, I>(StackAccess<S, I> access, BitSet items) implements StackMatcher<S, I> {
+        @Override
+        public boolean matches(S stack) {
+            return items.get(access.getRawId(access.getItem(stack)));
+        }
+
+        @Override
+        public @Nullable I item() {
+            return null;
+        }
+
+        @Override
+        public BitSet items() {
+            return items;
+        }
+
+        @Override
+        public boolean covers(StackMatcher<S, I> other) {
+            if(other.item() != null){
+                return items.get(access.getRawId(other.item()));
+            }
+            BitSet other_items = other.items();
+            if(other_items == null){
+                return false;
+            }
+            BitSet outside = (BitSet) other_items.clone();
+            outside.andNot(items);
+            return outside.isEmpty();
+        }
+    }
+
+    record DefaultComponentsOnly<S, I>(StackAccess<S, I> access, I item) implements StackMatcher<S, I> {
+        @Override
+        public boolean matches(S stack) {
+            return access.getItem(stack) == item && access.hasDefaultComponentsOnly(stack);
+        }
+    }
+
+    record HasComponents<S, I>(StackAccess<S, I> access, I item, Object[] types, Object[] values) implements StackMatcher<S, I> {
+        @Override
+        public boolean matches(S stack) {
+            if(access.getItem(stack) != item){
+                return false;
+            }
+            for(int i = 0; i < types.length; i++){
+                if(!access.contains(stack, types[i]) || !Objects.equals(access.get(stack, types[i]), values[i])){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public @Nullable KeyShape<S> keyShape() {
+            for(Object value : values){
+                if(value == null){
+                    return null;
+                }
+            }
+            return new ComponentValues<>(access, types);
+        }
+
+        @Override
+        public Object key() {
+            return types.length == 1 ? values[0] : new ValuesKey(values);
+        }
+
+        @Override
+        public boolean covers(StackMatcher<S, I> other) {
+            if(other.item() != item){
+                return false;
+            }
+            for(int i = 0; i < types.length; i++){
+                if(values[i] == null || !requiresValue(other, types[i], values[i])){
+                    return equals(other);
+                }
+            }
+            return true;
+        }
+
+        //Arrays are compared by content, so that two recipes with the same components are equal
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof HasComponents<?, ?> other && access == other.access && item == other.item
+                    && Arrays.equals(types, other.types) && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * Objects.hashCode(item) + Arrays.hashCode(types)) + Arrays.hashCode(values);
+        }
+
+        @Override
+        public String toString() {
+            return "HasComponents[item=" + item + ", types=" + Arrays.toString(types) + ", values=" + Arrays.toString(values) + "]";
+        }
+    }
+
+    record ComponentPresence<S, I>(StackAccess<S, I> access, Object type) implements StackMatcher<S, I> {
+        @Override
+        public boolean matches(S stack) {
+            return access.contains(stack, type);
+        }
+
+        @Override
+        public @Nullable I item() {
+            return null;
+        }
+
+        @Override
+        public Object requiredComponent() {
+            return type;
+        }
+
+        @Override
+        public boolean covers(StackMatcher<S, I> other) {
+            return requiresComponent(other, type);
+        }
+    }
+
+    record ComponentValue<S, I>(StackAccess<S, I> access, Object type, Object value) implements StackMatcher<S, I> {
+        @Override
+        public boolean matches(S stack) {
+            Object found = access.get(stack, type);
+            return found != null && found.equals(value);
+        }
+
+        @Override
+        public @Nullable I item() {
+            return null;
+        }
+
+        @Override
+        public Object requiredComponent() {
+            return type;
+        }
+
+        @Override
+        public boolean covers(StackMatcher<S, I> other) {
+            return requiresValue(other, type, value);
+        }
+    }
+
+    /**Checks several component types, stopping at the first one that fails.
+     * <p>
+     * The checks start out ordered by cost: the presence ones first, then comparing values,
+     * and comparing the custom data (which can be a whole nbt tree) last.
+     * One call in {@link #SAMPLE_EVERY} (picked at random on each thread) also counts which check rejected the stack,
+     * and every {@link #ADAPT_EVERY} of those the checks are reordered so the ones rejecting the most stacks
+     * for their cost run first. The order never changes what matches.
+     * <p>
+     * So unlike the other matchers, this one holds some statistics. Only the sampled calls touch them,
+     * under the lock of the matcher, so the threads matching the same recipe don't keep writing to shared memory
+     * and only one of them reorders the checks. The other calls only read the current order.
+     * */
+    static final class ComponentConstraints<S, I> implements StackMatcher<S, I> {
+
+        static final int SAMPLE_EVERY = 1 << 6;
+        static final int ADAPT_EVERY = 1 << 8;
+
+        private final StackAccess<S, I> access;
+        @Nullable
+        private final I item;
+        private final Object[] types;
+        private final Object[] values;
+        private final int[] costs;
+        /**Every type has to be there whether its value is checked or not, so any of them will do. The cheapest one*/
+        @Nullable
+        private final Object required;
+
+        /**The positions of the checks in the order they run, replaced as a whole when they are reordered*/
+        private volatile int[] order;
+        /**How many sampled stacks each check rejected, guarded by the matcher*/
+        private final int[] rejected;
+        /**How many stacks have been sampled since the last reorder, guarded by the matcher*/
+        private int sampled;
+        /**Where the next order is sorted, guarded by the matcher*/
+        private final int[] next_order;
+
+        ComponentConstraints(StackAccess<S, I> access, @Nullable I item, Object[] types, Object[] values) {
+            this.access = access;
+            this.item = item;
+            this.types = types;
+            this.values = values;
+            this.costs = new int[types.length];
+            for(int i = 0; i < types.length; i++){
+                if(values[i] == null){
+                    costs[i] = 1;
+                }else if(types[i].equals(access.getCustomDataType())){
+                    costs[i] = 8;
+                }else{
+                    costs[i] = 2;
+                }
+            }
+            this.rejected = new int[types.length];
+            this.next_order = new int[types.length];
+            this.order = sortedBy(i -> costs[i]);
+            this.required = types.length > 0 ? types[order[0]] : null;
+        }
+
+        @Override
+        public boolean matches(S stack) {
+            if(item != null && access.getItem(stack) != item){
+                return false;
+            }
+            int[] order = this.order;
+            for(int i : order){
+                if(!check(stack, i)){
+                    if(ThreadLocalRandom.current().nextInt(SAMPLE_EVERY) == 0){
+                        sample(i);
+                    }
+                    return false;
+                }
+            }
+            if(ThreadLocalRandom.current().nextInt(SAMPLE_EVERY) == 0){
+                sample(-1);
+            }
+            return true;
+        }
+
+        private boolean check(S stack, int i){
+            if(values[i] == null){
+                return access.contains(stack, types[i]);
+            }
+            Object found = access.get(stack, types[i]);
+            return found != null && found.equals(values[i]);
+        }
+
+        /**Counts a sampled stack, rejected by the given check or -1 if it matched*/
+        synchronized void sample(int rejected_by){
+            if(rejected_by >= 0){
+                rejected[rejected_by]++;
+            }
+            if(++sampled >= ADAPT_EVERY){
+                adapt();
+            }
+        }
+
+        /**Puts first the checks rejecting the most stacks for their cost, and halves the counts
+         * so that what happened recently weighs more.
+         * The new order is only allocated when it's different, so once it settles this doesn't allocate*/
+        private void adapt(){
+            //An insertion sort, stable so the checks with the same rank keep their order
+            int[] next = next_order;
+            for(int i = 0; i < next.length; i++){
+                double rank = rank(i);
+                int j = i;
+                for(; j > 0 && rank(next[j - 1]) > rank; j--){
+                    next[j] = next[j - 1];
+                }
+                next[j] = i;
+            }
+            if(!Arrays.equals(next, order)){
+                order = next.clone();
+            }
+            for(int i = 0; i < rejected.length; i++){
+                rejected[i] /= 2;
+            }
+            sampled = 0;
+        }
+
+        /**A copy of the positions of the checks in the order they currently run*/
+        int[] order(){
+            return order.clone();
+        }
+
+        private double rank(int i){
+            return -(double) rejected[i] / costs[i];
+        }
+
+        private int[] sortedBy(IntToDoubleFunction rank){
+            Integer[] sorted = new Integer[types.length];
+            for(int i = 0; i < sorted.length; i++){
+                sorted[i] = i;
+            }
+            //Stable, so the checks with the same rank keep their order
+            Arrays.sort(sorted, (a, b) -> Double.compare(rank.applyAsDouble(a), rank.applyAsDouble(b)));
+            int[] order = new int[sorted.length];
+            for(int i = 0; i < order.length; i++){
+                order[i] = sorted[i];
+            }
+            return order;
+        }
+
+        @Override
+        public @Nullable I item() {
+            return item;
+        }
+
+        @Override
+        public @Nullable Object requiredComponent() {
+            return required;
+        }
+
+        @Override
+        public boolean covers(StackMatcher<S, I> other) {
+            if(item != null && other.item() != item){
+                return false;
+            }
+            for(int i = 0; i < types.length; i++){
+                if(values[i] == null ? !requiresComponent(other, types[i]) : !requiresValue(other, types[i], values[i])){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return "ComponentConstraints[item=" + item + ", types=" + Arrays.toString(types) + ", values=" + Arrays.toString(values) + "]";
+        }
+    }
+
+    record NoCustomData<S, I>(StackAccess<S, I> access, I item) implements StackMatcher<S, I> {
+        @Override
+        public boolean matches(S stack) {
+            return access.getItem(stack) == item && !access.contains(stack, access.getCustomDataType());
+        }
+    }
+
+    record SameCustomData<S, I>(StackAccess<S, I> access, I item, Object data) implements StackMatcher<S, I> {
+        @Override
+        public boolean matches(S stack) {
+            Object found = access.getCustomData(stack);
+            return found != null && data.equals(found) && access.getItem(stack) == item;
+        }
+
+        @Override
+        public KeyShape<S> keyShape() {
+            return new CustomData<>(access);
+        }
+
+        @Override
+        public Object key() {
+            return data;
+        }
+    }
+
+    /**The values of a set of component types, in order.
+     * With a single type the key is the value itself, with more they are put in a {@link ValuesKey},
+     * which a lookup never creates: the hash and the values are read from the stack one by one.*/
+    record ComponentValues<S>(StackAccess<S, ?> access, Object[] types) implements KeyShape<S> {
+        @Override
+        public @Nullable Object keyOf(S stack) {
+            if(types.length == 1){
+                return access.get(stack, types[0]);
+            }
+            Object[] values = new Object[types.length];
+            for(int i = 0; i < types.length; i++){
+                values[i] = access.get(stack, types[i]);
+                if(values[i] == null){
+                    return null;
+                }
+            }
+            return new ValuesKey(values);
+        }
+
+        @Override
+        public int hashOf(S stack) {
+            if(types.length == 1){
+                return Objects.hashCode(access.get(stack, types[0]));
+            }
+            //The same as Arrays.hashCode of the values, which is the hash of the ValuesKey
+            int hash = 1;
+            for(Object type : types){
+                hash = 31 * hash + Objects.hashCode(access.get(stack, type));
+            }
+            return hash;
+        }
+
+        @Override
+        public boolean hasKey(S stack, Object key) {
+            if(types.length == 1){
+                return key.equals(access.get(stack, types[0]));
+            }
+            if(!(key instanceof ValuesKey values_key) || values_key.values().length != types.length){
+                return false;
+            }
+            for(int i = 0; i < types.length; i++){
+                if(!values_key.values()[i].equals(access.get(stack, types[i]))){
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ComponentValues<?> other && access == other.access && Arrays.equals(types, other.types);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(types);
+        }
+    }
+
+    /**The key made by the values of more than one component type*/
+    record ValuesKey(Object[] values) {
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof ValuesKey other && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(values);
+        }
+    }
+
+    /**The whole custom data of the stack*/
+    record CustomData<S>(StackAccess<S, ?> access) implements KeyShape<S> {
+        @Override
+        public @Nullable Object keyOf(S stack) {
+            return access.getCustomData(stack);
+        }
+    }
+
+    record CustomDataField<S, I>(StackAccess<S, I> access, String field) implements StackMatcher<S, I> {
+        @Override
+        public boolean matches(S stack) {
+            return access.hasCustomDataField(stack, field);
+        }
+
+        @Override
+        public @Nullable I item() {
+            return null;
+        }
+
+        @Override
+        public Object requiredComponent() {
+            return access.getCustomDataType();
+        }
+
+        @Override
+        public boolean covers(StackMatcher<S, I> other) {
+            return equals(other) || (other instanceof CustomDataFieldValue<S, I> value && value.field().equals(field));
+        }
+    }
+
+    record CustomDataFieldValue<S, I>(StackAccess<S, I> access, String field, Object value) implements StackMatcher<S, I> {
+        @Override
+        public boolean matches(S stack) {
+            //The value is null when the field isn't there, which is never equal
+            return value.equals(access.getCustomDataField(stack, field));
+        }
+
+        @Override
+        public @Nullable I item() {
+            return null;
+        }
+
+        @Override
+        public Object requiredComponent() {
+            return access.getCustomDataType();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Item;
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Recipe;
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Stack;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntFunction;
+
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.ACCESS;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.DIAMOND;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.ITEMS;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.STICK;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**The allocation budgets of the lookups: finding a recipe must not allocate, whatever kind of recipes are registered.
+ * <p>
+ * The bytes are counted with the allocation counter of the thread, after the lookups have been warmed up
+ * so they are compiled. This runs with the other tests, so a lookup that starts allocating fails the build.
+ * */
+class AllocationBudgetTest {
+
+    private static final int RECIPES = 300;
+    private static final int QUERIES = 1024;
+    private static final int WARMUP = 100_000;
+    private static final int MEASURED = 50_000;
+    /**For all the measured lookups together, not for each one: a lookup allocating even a single object
+     * would go well over it, but it leaves room for anything the JVM might do on the thread meanwhile*/
+    private static final long BUDGET = 1024;
+
+    /**The kinds of recipes, each being the matcher of a recipe and a stack matching it*/
+    enum Kind {
+        PLAIN(i -> TestStacks.item(item(i)), i -> new Stack(item(i))),
+        ONE_COMPONENT(i -> TestStacks.components(item(i), "t1", i), i -> new Stack(item(i)).with("t1", i)),
+        TWO_COMPONENTS(i -> StackMatchers.hasComponents(ACCESS, item(i), new Object[]{"t1", "t2"}, new Object[]{i, i % 7}),
+                i -> new Stack(item(i)).with("t1", i).with("t2", i % 7)),
+        PRESENCE(i -> TestStacks.presence("t" + i % 5), i -> new Stack(item(i)).with("t" + i % 5, 0)),
+        COMPONENT_VALUE(i -> StackMatchers.componentValue(ACCESS, "t1", i), i -> new Stack(item(i)).with("t1", i)),
+        CONSTRAINTS(i -> StackMatchers.componentConstraints(ACCESS, item(i), new Object[]{"t1", "t2"}, new Object[]{i, null}),
+                i -> new Stack(item(i)).with("t1", i).with("t2", 0)),
+        //Comparing two maps allocates an iterator, which is the doing of the data and not of the lookup, so it's a record here
+        CUSTOM_DATA(i -> StackMatchers.sameCustomData(ACCESS, item(i), new Data(i)), i -> new Stack(item(i)).with(TestStacks.CUSTOM_DATA, new Data(i))),
+        CUSTOM_DATA_FIELD(i -> StackMatchers.customDataFieldValue(ACCESS, "x", i), i -> new Stack(item(i)).withData("x", i)),
+        ITEM_SET(i -> {
+            BitSet items = new BitSet();
+            items.set(item(i).id());
+            items.set(item(i + 1).id());
+            return StackMatchers.itemSet(ACCESS, items);
+        }, i -> new Stack(item(i))),
+        //A bit of everything, so the lookup goes through all the indexes
+        MIXED(i -> values()[i % 9].matcher.apply(i), i -> values()[i % 9].stack.apply(i));
+
+        private final IntFunction<StackMatcher<Stack, Item>> matcher;
+        private final IntFunction<Stack> stack;
+
+        Kind(IntFunction<StackMatcher<Stack, Item>> matcher, IntFunction<Stack> stack) {
+            this.matcher = matcher;
+            this.stack = stack;
+        }
+
+        private static Item item(int i){
+            return ITEMS[i % 3];
+        }
+    }
+
+    private record Data(int value) {
+    }
+
+    @ParameterizedTest
+    @EnumSource(Kind.class)
+    void lookupsDontAllocate(Kind kind) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        List<Recipe> recipes = new ArrayList<>();
+        for(int i = 0; i < RECIPES; i++){
+            recipes.add(new Recipe(kind + " " + i, kind.matcher.apply(i), TestStacks.item(DIAMOND)));
+        }
+        RecipeLookup<Stack, Item, Recipe> lookup = RecipeLookup.build(ACCESS, RecipeAnalysis.analyze(recipes).getKept());
+
+        //Half of them match a recipe, the others have the right components on an item that no recipe uses
+        Random random = new Random(42);
+        Stack[] inputs = new Stack[QUERIES];
+        for(int q = 0; q < QUERIES; q++){
+            Stack stack = kind.stack.apply(random.nextInt(RECIPES));
+            inputs[q] = q % 2 == 0 ? stack : new Stack(STICK, stack.components());
+        }
+        Stack ingredient = new Stack(DIAMOND);
+        Stack[] slots = new Stack[3];
+        Recipe[] found = new Recipe[3];
+
+        run(lookup, inputs, ingredient, slots, found, WARMUP);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        int hits = run(lookup, inputs, ingredient, slots, found, MEASURED);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(hits > 0, "Nothing has been found, so nothing has been measured");
+        assertTrue(allocated <= BUDGET, kind + " lookups allocated " + allocated + " bytes in " + MEASURED + " runs, the budget is " + BUDGET);
+    }
+
+    /**Runs every kind of lookup the given number of times, returning how many times a recipe has been found*/
+    private static int run(RecipeLookup<Stack, Item, Recipe> lookup, Stack[] inputs, Stack ingredient, Stack[] slots, Recipe[] found, int times){
+        int hits = 0;
+        for(int n = 0; n < times; n++){
+            Stack input = inputs[n & (QUERIES - 1)];
+            if(lookup.find(input, ingredient) != null){
+                hits++;
+            }
+            lookup.isInput(input);
+            lookup.isIngredient(input);
+            slots[n % 3] = input;
+            lookup.findEach(ingredient, slots, found, null);
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,118 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Item;
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Recipe;
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Stack;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.ACCESS;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.DIAMOND;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.EMERALD;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.POTION;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.components;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.item;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExactMatchIndexTest {
+
+    private static final List<Recipe> RECIPES = List.of(
+            new Recipe("t1=1 with emerald", components(POTION, "t1", 1), item(EMERALD)),
+            new Recipe("t1=2", components(POTION, "t1", 2), item(DIAMOND)),
+            new Recipe("t1=1", components(POTION, "t1", 1), item(DIAMOND)),
+            new Recipe("t1=1 t2=5", StackMatchers.hasComponents(ACCESS, POTION, new Object[]{"t1", "t2"}, new Object[]{1, 5}), item(DIAMOND)),
+            new Recipe("not exact", item(POTION), item(DIAMOND)),
+            new Recipe("t1=3 t2=5", StackMatchers.hasComponents(ACCESS, POTION, new Object[]{"t1", "t2"}, new Object[]{3, 5}), item(DIAMOND)));
+
+    private static final ExactMatchIndex<Stack, Item, Recipe> INDEX = ExactMatchIndex.build(ACCESS, RECIPES, Recipe::getInput);
+
+    private static int findFirst(Stack input, Stack ingredient, int limit){
+        return INDEX.findFirst(input, input, ingredient, Recipe::matches, limit, null);
+    }
+
+    @Test
+    void onlyExactSidesAreIndexed() {
+        assertTrue(ExactMatchIndex.isExact(RECIPES.get(0).getInput()));
+        assertFalse(ExactMatchIndex.isExact(RECIPES.get(4).getInput()));
+        assertFalse(ExactMatchIndex.isExact(TestStacks.presence("t1")));
+    }
+
+    @Test
+    void findsTheFirstRecipeWithTheSameKey() {
+        Stack potion = new Stack(POTION).with("t1", 1);
+        assertEquals(0, findFirst(potion, new Stack(EMERALD), Integer.MAX_VALUE));
+        //The first one with that key wants an emerald, so the next one with that key
+        assertEquals(2, findFirst(potion, new Stack(DIAMOND), Integer.MAX_VALUE));
+        assertEquals(1, findFirst(new Stack(POTION).with("t1", 2), new Stack(DIAMOND), Integer.MAX_VALUE));
+        assertEquals(-1, findFirst(new Stack(POTION).with("t1", 3), new Stack(DIAMOND), Integer.MAX_VALUE));
+        //Not indexed, even if the item would match
+        assertEquals(-1, findFirst(new Stack(POTION), new Stack(DIAMOND), Integer.MAX_VALUE));
+    }
+
+    @Test
+    void theEarliestRecipeWinsAcrossShapes() {
+        Stack potion = new Stack(POTION).with("t1", 1).with("t2", 5);
+        //Both shapes have a recipe for this stack, the one registered first is used
+        assertEquals(2, findFirst(potion, new Stack(DIAMOND), Integer.MAX_VALUE));
+        assertEquals(5, findFirst(new Stack(POTION).with("t1", 3).with("t2", 5), new Stack(DIAMOND), Integer.MAX_VALUE));
+    }
+
+    @Test
+    void onlyLooksBeforeTheLimit() {
+        Stack potion = new Stack(POTION).with("t1", 1);
+        assertEquals(-1, findFirst(potion, new Stack(DIAMOND), 2));
+        assertEquals(2, findFirst(potion, new Stack(DIAMOND), 3));
+        assertEquals(-1, findFirst(potion, new Stack(EMERALD), 0));
+    }
+
+    @Test
+    void anyMatchAndCollectMatches() {
+        Stack potion = new Stack(POTION).with("t1", 1);
+        assertTrue(INDEX.anyMatch(potion, (recipe, stack) -> recipe.getInput().matches(stack), null));
+        assertFalse(INDEX.anyMatch(new Stack(POTION).with("t1", 7), (recipe, stack) -> recipe.getInput().matches(stack), null));
+        assertFalse(INDEX.anyMatch(new Stack(DIAMOND).with("t1", 1), (recipe, stack) -> recipe.getInput().matches(stack), null));
+
+        BitSet matches = new BitSet();
+        INDEX.collectMatches(potion, (recipe, stack) -> recipe.getInput().matches(stack), matches, null);
+        BitSet expected = new BitSet();
+        expected.set(0);
+        expected.set(2);
+        assertEquals(expected, matches);
+    }
+
+    @Test
+    void recipesWithTheSameKeyAreStillTested() {
+        //Every stack has the same key, but the matcher only accepts the ones with t1
+        StackMatcher<Stack, Item> same_key = new StackMatcher<>() {
+            @Override
+            public boolean matches(Stack stack) {
+                return stack.components().containsKey("t1");
+            }
+
+            @Override
+            public Item item() {
+                return POTION;
+            }
+
+            @Override
+            public @Nullable KeyShape<Stack> keyShape() {
+                return stack -> "same";
+            }
+
+            @Override
+            public Object key() {
+                return "same";
+            }
+        };
+        List<Recipe> recipes = List.of(new Recipe("same key", same_key, item(DIAMOND)));
+        ExactMatchIndex<Stack, Item, Recipe> index = ExactMatchIndex.build(ACCESS, recipes, Recipe::getInput);
+        assertEquals(-1, index.findFirst(new Stack(POTION), new Stack(POTION), new Stack(DIAMOND), Recipe::matches, Integer.MAX_VALUE, null));
+        Stack with_t1 = new Stack(POTION).with("t1", 0);
+        assertEquals(0, index.findFirst(with_t1, with_t1, new Stack(DIAMOND), Recipe::matches, Integer.MAX_VALUE, null));
+    }
+}
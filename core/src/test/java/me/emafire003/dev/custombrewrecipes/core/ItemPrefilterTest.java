@@ -0,0 +1,65 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Item;
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Recipe;
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Stack;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.ACCESS;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.DIAMOND;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.EMERALD;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.POTION;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.STICK;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.item;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.presence;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ItemPrefilterTest {
+
+    @SafeVarargs
+    private static ItemPrefilter<Stack, Item> inputs(StackMatcher<Stack, Item>... inputs){
+        Recipe[] recipes = new Recipe[inputs.length];
+        for(int i = 0; i < inputs.length; i++){
+            recipes[i] = new Recipe("recipe " + i, inputs[i], item(DIAMOND));
+        }
+        return ItemPrefilter.build(ACCESS, List.of(recipes), Recipe::getInput);
+    }
+
+    @Test
+    void rejectsTheItemsOfNoRecipe() {
+        ItemPrefilter<Stack, Item> prefilter = inputs(item(POTION), TestStacks.components(DIAMOND, "t1", 1));
+        assertTrue(prefilter.mightMatch(new Stack(POTION)));
+        //Only the item is checked here
+        assertTrue(prefilter.mightMatch(new Stack(DIAMOND)));
+        assertFalse(prefilter.mightMatch(new Stack(EMERALD)));
+    }
+
+    @Test
+    void itemSetsAddAllTheirItems() {
+        BitSet items = new BitSet();
+        items.set(EMERALD.id());
+        items.set(STICK.id());
+        ItemPrefilter<Stack, Item> prefilter = inputs(StackMatchers.itemSet(ACCESS, items));
+        assertTrue(prefilter.mightMatch(new Stack(EMERALD)));
+        assertTrue(prefilter.mightMatch(new Stack(STICK)));
+        assertFalse(prefilter.mightMatch(new Stack(POTION)));
+    }
+
+    @Test
+    void anyItemRecipesNeedTheirComponent() {
+        ItemPrefilter<Stack, Item> prefilter = inputs(item(POTION), presence("t1"), StackMatchers.customDataField(ACCESS, "x"));
+        assertFalse(prefilter.mightMatch(new Stack(EMERALD)));
+        assertTrue(prefilter.mightMatch(new Stack(EMERALD).with("t1", 0)));
+        assertTrue(prefilter.mightMatch(new Stack(EMERALD).withData("y", 0)));
+    }
+
+    @Test
+    void aRecipeThatCanMatchAnythingDisablesTheFilter() {
+        ItemPrefilter<Stack, Item> prefilter = inputs(item(POTION), StackMatchers.componentConstraints(ACCESS, null, new Object[0], new Object[0]));
+        assertTrue(prefilter.mightMatch(new Stack(EMERALD)));
+    }
+}
@@ -0,0 +1,102 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Recipe;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.ACCESS;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.DIAMOND;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.EMERALD;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.POTION;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.components;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.item;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.presence;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecipeAnalysisTest {
+
+    @Test
+    void findsDuplicates() {
+        Recipe first = new Recipe("first", item(POTION), item(DIAMOND));
+        Recipe again = new Recipe("again", item(POTION), item(DIAMOND));
+        RecipeAnalysis<Recipe> analysis = RecipeAnalysis.analyze(List.of(first, again));
+
+        assertEquals(List.of(first), analysis.getKept());
+        RecipeAnalysis.Unreachable<Recipe> unreachable = analysis.getUnreachable().get(0);
+        assertSame(again, unreachable.recipe());
+        assertSame(first, unreachable.covered_by());
+        assertTrue(unreachable.duplicate());
+    }
+
+    @Test
+    void findsRecipesShadowedByABroaderOne() {
+        Recipe broad = new Recipe("broad", item(POTION), item(DIAMOND));
+        Recipe narrow = new Recipe("narrow", components(POTION, "t1", 1), item(DIAMOND));
+        RecipeAnalysis<Recipe> analysis = RecipeAnalysis.analyze(List.of(broad, narrow));
+
+        assertEquals(List.of(broad), analysis.getKept());
+        assertSame(narrow, analysis.getUnreachable().get(0).recipe());
+        assertFalse(analysis.getUnreachable().get(0).duplicate());
+    }
+
+    @Test
+    void keepsTheBroaderRecipeAfterANarrowOne() {
+        Recipe narrow = new Recipe("narrow", components(POTION, "t1", 1), item(DIAMOND));
+        Recipe broad = new Recipe("broad", item(POTION), item(DIAMOND));
+        assertEquals(List.of(narrow, broad), RecipeAnalysis.analyze(List.of(narrow, broad)).getKept());
+    }
+
+    @Test
+    void bothSidesHaveToBeCovered() {
+        Recipe first = new Recipe("first", item(POTION), item(DIAMOND));
+        Recipe other_ingredient = new Recipe("other ingredient", item(POTION), item(EMERALD));
+        assertEquals(2, RecipeAnalysis.analyze(List.of(first, other_ingredient)).getKept().size());
+    }
+
+    @Test
+    void anyItemMatchersCoverTheNarrowerOnes() {
+        Recipe presence = new Recipe("presence", presence("t1"), item(DIAMOND));
+        Recipe value = new Recipe("value", StackMatchers.componentValue(ACCESS, "t1", 1), item(DIAMOND));
+        Recipe exact = new Recipe("exact", components(EMERALD, "t1", 2), item(DIAMOND));
+        BitSet items = new BitSet();
+        items.set(POTION.id());
+        items.set(EMERALD.id());
+        Recipe set = new Recipe("set", item(EMERALD), StackMatchers.itemSet(ACCESS, items));
+        Recipe in_set = new Recipe("in set", item(EMERALD), item(POTION));
+
+        RecipeAnalysis<Recipe> analysis = RecipeAnalysis.analyze(List.of(presence, value, exact, set, in_set));
+        assertEquals(List.of(presence, set), analysis.getKept());
+        assertEquals(List.of(value, exact, in_set), analysis.getUnreachable().stream().map(RecipeAnalysis.Unreachable::recipe).toList());
+    }
+
+    @Test
+    void givesUpAfterTooManyCandidates() {
+        Recipe covering = new Recipe("t1=-1 on any item", StackMatchers.componentValue(ACCESS, "t1", -1), item(DIAMOND));
+        Recipe covered = new Recipe("t1=-1 on potions", constraint(-1), item(DIAMOND));
+
+        List<Recipe> few = new ArrayList<>(List.of(covering));
+        for(int i = 0; i < RecipeAnalysis.MAX_CANDIDATES / 2; i++){
+            few.add(new Recipe("t1=" + i, constraint(i), item(DIAMOND)));
+        }
+        few.add(covered);
+        assertSame(covered, RecipeAnalysis.analyze(few).getUnreachable().get(0).recipe());
+
+        //The recipes with the same item are compared first, so the covering one is never reached
+        List<Recipe> many = new ArrayList<>(List.of(covering));
+        for(int i = 0; i < RecipeAnalysis.MAX_CANDIDATES + 1; i++){
+            many.add(new Recipe("t1=" + i, constraint(i), item(DIAMOND)));
+        }
+        many.add(covered);
+        assertTrue(RecipeAnalysis.analyze(many).getUnreachable().isEmpty());
+    }
+
+    private static StackMatcher<TestStacks.Stack, TestStacks.Item> constraint(int value){
+        return StackMatchers.componentConstraints(ACCESS, POTION, new Object[]{"t1"}, new Object[]{value});
+    }
+}
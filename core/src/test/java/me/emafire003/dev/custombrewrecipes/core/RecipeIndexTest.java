@@ -0,0 +1,119 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.DIAMOND;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.EMERALD;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.POTION;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.STICK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecipeIndexTest {
+
+    /**Only the keys matter to the index, a null key matches any item*/
+    record Entry(int position, @Nullable TestStacks.Item input, @Nullable TestStacks.Item ingredient) {
+    }
+
+    //One recipe in each bucket a (potion, stick) lookup goes through, and one it must skip
+    private static final List<Entry> ENTRIES = List.of(
+            new Entry(0, DIAMOND, EMERALD),
+            new Entry(1, null, STICK),
+            new Entry(2, POTION, null),
+            new Entry(3, null, null),
+            new Entry(4, POTION, STICK));
+
+    private static RecipeIndex<TestStacks.Item, Entry> index(){
+        return RecipeIndex.build(ENTRIES, Entry::input, Entry::ingredient);
+    }
+
+    @Test
+    void findFirstGoesThroughTheBucketsInRegistrationOrder() {
+        List<Integer> tested = new ArrayList<>();
+        Entry found = index().findFirst(POTION, STICK, null, null, (entry, input, ingredient) -> {
+            tested.add(entry.position());
+            return false;
+        });
+        assertNull(found);
+        assertEquals(List.of(1, 2, 3, 4), tested);
+    }
+
+    @Test
+    void findFirstReturnsTheFirstMatch() {
+        RecipeIndex<TestStacks.Item, Entry> index = index();
+        assertSame(ENTRIES.get(1), index.findFirst(POTION, STICK, null, null, (entry, input, ingredient) -> true));
+        assertSame(ENTRIES.get(4), index.findFirst(POTION, STICK, null, null, (entry, input, ingredient) -> entry.position() == 4));
+        assertSame(ENTRIES.get(0), index.findFirst(DIAMOND, EMERALD, null, null, (entry, input, ingredient) -> true));
+    }
+
+    @Test
+    void findFirstStopsAtTheLimit() {
+        List<Integer> tested = new ArrayList<>();
+        int[] scanned = new int[1];
+        Entry found = index().findFirst(POTION, STICK, null, null, (entry, input, ingredient) -> {
+            tested.add(entry.position());
+            return false;
+        }, 3, count -> scanned[0] += count);
+        assertNull(found);
+        assertEquals(List.of(1, 2), tested);
+        assertEquals(2, scanned[0]);
+    }
+
+    @Test
+    void anyInputMatchTestsTheKeyedRecipesThenTheOthers() {
+        List<Integer> tested = new ArrayList<>();
+        assertFalse(index().anyInputMatch(POTION, null, (entry, stack) -> {
+            tested.add(entry.position());
+            return false;
+        }));
+        assertEquals(List.of(2, 4, 1, 3), tested);
+        assertTrue(index().anyInputMatch(EMERALD, null, (entry, stack) -> entry.position() == 3));
+    }
+
+    @Test
+    void anyIngredientMatchOnlyTestsWhatCanUseTheIngredient() {
+        List<Integer> tested = new ArrayList<>();
+        index().anyIngredientMatch(EMERALD, null, (entry, stack) -> {
+            tested.add(entry.position());
+            return false;
+        });
+        assertEquals(List.of(0, 2, 3), tested);
+    }
+
+    @Test
+    void collectIngredientMatchesMarksEveryMatch() {
+        BitSet matches = new BitSet();
+        index().collectIngredientMatches(STICK, null, (entry, stack) -> entry.position() != 3, matches, null);
+        BitSet expected = new BitSet();
+        expected.set(1);
+        expected.set(2);
+        expected.set(4);
+        assertEquals(expected, matches);
+    }
+
+    @Test
+    void filteredRecipesAreLeftOutOfTheirLookups() {
+        RecipeIndex<TestStacks.Item, Entry> index = RecipeIndex.build(ENTRIES, Entry::input, Entry::ingredient,
+                entry -> entry.position() != 4, entry -> entry.position() != 2, entry -> true);
+        List<Integer> tested = new ArrayList<>();
+        index.findFirst(POTION, STICK, null, null, (entry, input, ingredient) -> {
+            tested.add(entry.position());
+            return false;
+        });
+        assertEquals(List.of(1, 2, 3), tested);
+        tested.clear();
+        index.anyInputMatch(POTION, null, (entry, stack) -> {
+            tested.add(entry.position());
+            return false;
+        });
+        assertEquals(List.of(4, 1, 3), tested);
+    }
+}
@@ -0,0 +1,169 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Item;
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Recipe;
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Stack;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.ACCESS;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.DIAMOND;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.EMERALD;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.ITEMS;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.POTION;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.STICK;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.components;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.item;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.presence;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecipeLookupTest {
+
+    @Test
+    void theFirstRecipeWinsBetweenTheIndexes() {
+        Recipe any_with_t1 = new Recipe("any with t1", presence("t1"), item(DIAMOND));
+        Recipe exact = new Recipe("exact", components(POTION, "t1", 1), item(DIAMOND));
+        Recipe plain = new Recipe("plain", item(POTION), item(DIAMOND));
+        Stack potion = new Stack(POTION).with("t1", 1);
+
+        assertSame(any_with_t1, RecipeLookup.build(ACCESS, List.of(any_with_t1, exact, plain)).find(potion, new Stack(DIAMOND)));
+        assertSame(exact, RecipeLookup.build(ACCESS, List.of(exact, any_with_t1, plain)).find(potion, new Stack(DIAMOND)));
+        assertSame(plain, RecipeLookup.build(ACCESS, List.of(exact, any_with_t1, plain)).find(new Stack(POTION), new Stack(DIAMOND)));
+        assertNull(RecipeLookup.build(ACCESS, List.of(exact, any_with_t1, plain)).find(potion, new Stack(EMERALD)));
+    }
+
+    @Test
+    void findEachIsLikeFindForEveryInput() {
+        Recipe exact = new Recipe("exact", components(POTION, "t1", 1), item(DIAMOND));
+        Recipe plain = new Recipe("plain", item(STICK), item(DIAMOND));
+        Recipe other = new Recipe("other ingredient", item(POTION), item(EMERALD));
+        RecipeLookup<Stack, Item, Recipe> lookup = RecipeLookup.build(ACCESS, List.of(exact, plain, other));
+
+        Stack[] inputs = {new Stack(POTION).with("t1", 1), null, new Stack(STICK)};
+        Recipe[] found = {other, other, other};
+        lookup.findEach(new Stack(DIAMOND), inputs, found, null);
+        assertArrayEquals(new Recipe[]{exact, null, plain}, found);
+
+        lookup.findEach(new Stack(STICK), inputs, found, null);
+        assertArrayEquals(new Recipe[3], found);
+    }
+
+    @Test
+    void isInputAndIsIngredient() {
+        RecipeLookup<Stack, Item, Recipe> lookup = RecipeLookup.build(ACCESS, List.of(
+                new Recipe("exact", components(POTION, "t1", 1), item(DIAMOND)),
+                new Recipe("any with t2", presence("t2"), item(EMERALD))));
+        assertTrue(lookup.isInput(new Stack(POTION).with("t1", 1)));
+        assertFalse(lookup.isInput(new Stack(POTION).with("t1", 2)));
+        assertTrue(lookup.isInput(new Stack(STICK).with("t2", 0)));
+        assertTrue(lookup.isIngredient(new Stack(EMERALD)));
+        assertFalse(lookup.isIngredient(new Stack(STICK)));
+    }
+
+    @Test
+    void rejectedByThePrefilterScansNothing() {
+        RecipeLookup<Stack, Item, Recipe> lookup = RecipeLookup.build(ACCESS, List.of(new Recipe("plain", item(POTION), item(DIAMOND))));
+        int[] scanned = {-1};
+        assertNull(lookup.find(new Stack(POTION), new Stack(STICK), count -> scanned[0] = count));
+        assertEquals(0, scanned[0]);
+    }
+
+    /**Random recipes of every kind, compared with testing each recipe in order*/
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void givesTheSameResultsAsALinearScan(boolean parallel) {
+        Random random = new Random(42);
+        for(int round = 0; round < 200; round++){
+            List<Recipe> recipes = new ArrayList<>();
+            int count = random.nextInt(40);
+            for(int i = 0; i < count; i++){
+                recipes.add(new Recipe("recipe " + i, randomMatcher(random), randomMatcher(random)));
+            }
+            //The recipes left out by the analysis can't change any result
+            List<Recipe> kept = RecipeAnalysis.analyze(recipes).getKept();
+            RecipeLookup<Stack, Item, Recipe> lookup = RecipeLookup.build(ACCESS, kept, parallel);
+            for(int query = 0; query < 200; query++){
+                Stack input = randomStack(random);
+                Stack ingredient = randomStack(random);
+                Recipe expected = null;
+                for(Recipe recipe : recipes){
+                    if(recipe.matches(input, ingredient)){
+                        expected = recipe;
+                        break;
+                    }
+                }
+                assertSame(expected, lookup.find(input, ingredient), "round " + round);
+
+                Stack[] inputs = {input, random.nextBoolean() ? null : randomStack(random), randomStack(random)};
+                Recipe[] found = new Recipe[inputs.length];
+                lookup.findEach(ingredient, inputs, found, null);
+                for(int i = 0; i < inputs.length; i++){
+                    assertSame(inputs[i] == null ? null : lookup.find(inputs[i], ingredient), found[i], "round " + round);
+                }
+
+                assertEquals(recipes.stream().anyMatch(recipe -> recipe.getInput().matches(input)), lookup.isInput(input), "round " + round);
+                assertEquals(recipes.stream().anyMatch(recipe -> recipe.getIngredient().matches(ingredient)), lookup.isIngredient(ingredient), "round " + round);
+            }
+        }
+    }
+
+    private static Item randomItem(Random random){
+        return ITEMS[random.nextInt(3)];
+    }
+
+    static StackMatcher<Stack, Item> randomMatcher(Random random){
+        return switch (random.nextInt(11)) {
+            case 0 -> item(randomItem(random));
+            case 1 -> components(randomItem(random), "t1", random.nextInt(3));
+            case 2 -> StackMatchers.hasComponents(ACCESS, randomItem(random), new Object[]{"t1", "t2"}, new Object[]{random.nextInt(3), random.nextInt(2)});
+            case 3 -> presence("t2");
+            case 4 -> StackMatchers.sameCustomData(ACCESS, randomItem(random), Map.of("x", random.nextInt(3)));
+            case 5 -> StackMatchers.customDataField(ACCESS, "x");
+            case 6 -> StackMatchers.defaultComponentsOnly(ACCESS, randomItem(random));
+            case 7 -> {
+                BitSet items = new BitSet();
+                items.set(random.nextInt(3));
+                if(random.nextBoolean()){
+                    items.set(random.nextInt(3));
+                }
+                yield StackMatchers.itemSet(ACCESS, items);
+            }
+            case 8 -> StackMatchers.componentValue(ACCESS, "t1", random.nextInt(3));
+            case 9 -> {
+                Object[] types = random.nextBoolean() ? new Object[]{"t1"} : new Object[]{"t1", "t2"};
+                Object[] values = new Object[types.length];
+                for(int i = 0; i < types.length; i++){
+                    values[i] = random.nextBoolean() ? null : random.nextInt(i == 0 ? 3 : 2);
+                }
+                yield StackMatchers.componentConstraints(ACCESS, random.nextBoolean() ? null : randomItem(random), types, values);
+            }
+            default -> StackMatchers.customDataFieldValue(ACCESS, "x", random.nextInt(3));
+        };
+    }
+
+    static Stack randomStack(Random random){
+        Stack stack = new Stack(randomItem(random));
+        if(random.nextBoolean()){
+            stack = stack.with("t1", random.nextInt(3));
+        }
+        if(random.nextBoolean()){
+            stack = stack.with("t2", random.nextInt(2));
+        }
+        if(random.nextBoolean()){
+            stack = stack.withData("x", random.nextInt(3));
+        }
+        return stack;
+    }
+}
@@ -0,0 +1,94 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Item;
+import me.emafire003.dev.custombrewrecipes.core.TestStacks.Stack;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.ACCESS;
+import static me.emafire003.dev.custombrewrecipes.core.TestStacks.POTION;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StackMatchersTest {
+
+    /**The stacks rejected by the last check, so the checks get reordered, from several threads at once*/
+    @Test
+    void reorderingTheConstraintsNeverChangesWhatMatches() throws Exception {
+        StackMatchers.ComponentConstraints<Stack, Item> constraints = constraints();
+        Stack[] stacks = {
+                new Stack(POTION).with("t1", 0).with("t2", 1).with("t3", 2),
+                new Stack(POTION).with("t1", 0).with("t2", 1).with("t3", 3),
+                new Stack(POTION).with("t1", 0).with("t2", 1),
+                new Stack(POTION).with("t2", 1).with("t3", 2)
+        };
+        boolean[] expected = {true, false, false, false};
+        int runs = StackMatchers.ComponentConstraints.SAMPLE_EVERY * StackMatchers.ComponentConstraints.ADAPT_EVERY * 4;
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try{
+            List<Future<Integer>> wrong = new ArrayList<>();
+            for(int thread = 0; thread < 4; thread++){
+                wrong.add(executor.submit(() -> {
+                    int count = 0;
+                    for(int n = 0; n < runs; n++){
+                        //Mostly the ones failing the last check
+                        int i = n % 8 == 0 ? n / 8 % 4 : 1;
+                        if(constraints.matches(stacks[i]) != expected[i]){
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            for(Future<Integer> future : wrong){
+                assertEquals(0, future.get());
+            }
+        }finally{
+            executor.shutdown();
+        }
+        //The t3 check rejects almost all the stacks, so it ended up first
+        assertEquals(2, constraints.order()[0]);
+    }
+
+    @Test
+    void theChecksRejectingTheMostForTheirCostRunFirst() {
+        StackMatchers.ComponentConstraints<Stack, Item> constraints = constraints();
+        //The presence check is the cheapest
+        assertArrayEquals(new int[]{0, 1, 2}, constraints.order());
+
+        for(int n = 1; n < StackMatchers.ComponentConstraints.ADAPT_EVERY; n++){
+            constraints.sample(2);
+        }
+        assertArrayEquals(new int[]{0, 1, 2}, constraints.order());
+        constraints.sample(-1);
+        assertArrayEquals(new int[]{2, 0, 1}, constraints.order());
+    }
+
+    @Test
+    void theCountsAreHalvedOnEachReorder() {
+        StackMatchers.ComponentConstraints<Stack, Item> constraints = constraints();
+        for(int n = 0; n < StackMatchers.ComponentConstraints.ADAPT_EVERY; n++){
+            constraints.sample(2);
+        }
+        assertArrayEquals(new int[]{2, 0, 1}, constraints.order());
+
+        //t3 is left with 255 / 2 = 127 rejections at cost 2, so 64 at cost 1 are enough to overtake it.
+        //Without the halving it would still weigh 255 / 2 and stay first
+        for(int n = 0; n < StackMatchers.ComponentConstraints.ADAPT_EVERY; n++){
+            constraints.sample(n < 64 ? 0 : -1);
+        }
+        assertArrayEquals(new int[]{0, 2, 1}, constraints.order());
+    }
+
+    /**A presence check on t1, then the values of t2 and t3*/
+    private static StackMatchers.ComponentConstraints<Stack, Item> constraints(){
+        return (StackMatchers.ComponentConstraints<Stack, Item>) StackMatchers.componentConstraints(ACCESS, POTION,
+                new Object[]{"t1", "t2", "t3"}, new Object[]{null, 1, 2});
+    }
+}
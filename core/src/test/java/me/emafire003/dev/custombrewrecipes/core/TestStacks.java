@@ -0,0 +1,122 @@
+package me.emafire003.dev.custombrewrecipes.core;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**A tiny stand-in for Minecraft's items and itemstacks, so the core can be tested without loading the game.
+ * <p>
+ * Items are identified by their raw id, components are a plain map from a type to its value,
+ * and the custom data is a map stored under {@link #CUSTOM_DATA}.
+ * */
+final class TestStacks {
+
+    static final Object CUSTOM_DATA = "custom_data";
+    static final StackAccess<Stack, Item> ACCESS = new Access();
+
+    static final Item POTION = new Item("potion", 0);
+    static final Item DIAMOND = new Item("diamond", 1);
+    static final Item EMERALD = new Item("emerald", 2);
+    static final Item STICK = new Item("stick", 3);
+    static final Item[] ITEMS = {POTION, DIAMOND, EMERALD, STICK};
+
+    private TestStacks() {
+    }
+
+    record Item(String name, int id) {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    record Stack(Item item, Map<Object, Object> components) {
+        Stack(Item item) {
+            this(item, Map.of());
+        }
+
+        /**A copy of this stack with one more component*/
+        Stack with(Object type, Object value){
+            Map<Object, Object> components = new HashMap<>(this.components);
+            components.put(type, value);
+            return new Stack(item, components);
+        }
+
+        /**A copy of this stack with a field in its custom data*/
+        @SuppressWarnings("unchecked")
+        Stack withData(String field, Object value){
+            Object data = components.get(CUSTOM_DATA);
+            Map<String, Object> fields = data != null ? new HashMap<>((Map<String, Object>) data) : new HashMap<>();
+            fields.put(field, value);
+            return with(CUSTOM_DATA, fields);
+        }
+    }
+
+    /**A recipe that is only its two matchers, and a name to read the failures*/
+    record Recipe(String name, StackMatcher<Stack, Item> getInput, StackMatcher<Stack, Item> getIngredient) implements BrewingRecipe<Stack, Item> {
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    static StackMatcher<Stack, Item> item(Item item){
+        return StackMatchers.item(ACCESS, item);
+    }
+
+    static StackMatcher<Stack, Item> components(Item item, Object type, Object value){
+        return StackMatchers.hasComponents(ACCESS, item, new Object[]{type}, new Object[]{value});
+    }
+
+    static StackMatcher<Stack, Item> presence(Object type){
+        return StackMatchers.componentPresence(ACCESS, type);
+    }
+
+    private static final class Access implements StackAccess<Stack, Item> {
+        @Override
+        public Item getItem(Stack stack) {
+            return stack.item();
+        }
+
+        @Override
+        public int getRawId(Item item) {
+            return item.id();
+        }
+
+        @Override
+        public boolean contains(Stack stack, Object type) {
+            return stack.components().containsKey(type);
+        }
+
+        @Override
+        public @Nullable Object get(Stack stack, Object type) {
+            return stack.components().get(type);
+        }
+
+        @Override
+        public boolean hasDefaultComponentsOnly(Stack stack) {
+            return stack.components().isEmpty();
+        }
+
+        @Override
+        public Object getCustomDataType() {
+            return CUSTOM_DATA;
+        }
+
+        @Override
+        public @Nullable Object getCustomData(Stack stack) {
+            return stack.components().get(CUSTOM_DATA);
+        }
+
+        @Override
+        public boolean hasCustomDataField(Stack stack, String field) {
+            return stack.components().get(CUSTOM_DATA) instanceof Map<?, ?> data && data.containsKey(field);
+        }
+
+        @Override
+        public @Nullable Object getCustomDataField(Stack stack, String field) {
+            return stack.components().get(CUSTOM_DATA) instanceof Map<?, ?> data ? data.get(field) : null;
+        }
+    }
+}
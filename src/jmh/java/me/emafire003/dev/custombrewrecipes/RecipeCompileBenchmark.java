@@ -0,0 +1,92 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import me.emafire003.dev.custombrewrecipes.core.RecipeLookup;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.component.ComponentMap;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.CustomModelDataComponent;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.registry.Registries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**Measures freezing a big set of recipes: compiling them and building the lookup, on one thread or on the fork/join pool.
+ * <p>
+ * It's in the package of the mod to reach the compilation without registering the recipes, so every invocation starts over.
+ * Run with {@code ./gradlew jmh}.
+ * */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeCompileBenchmark {
+
+    /**The smaller sizes are around {@link ParallelCompiler#PARALLEL_THRESHOLD}, to find where going parallel starts to pay off,
+     * the bigger ones are the big recipe sets it's meant for*/
+    @Param({"512", "2048", "8192", "10000", "100000"})
+    public int recipes;
+
+    /**If the recipes are compiled and indexed in parallel*/
+    @Param({"true", "false"})
+    public boolean parallel;
+
+    private RecipeBatch batch;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        ParallelCompiler.ENABLED = parallel;
+
+        List<Item> items = new ArrayList<>();
+        for(Item item : Registries.ITEM){
+            if(item != Items.AIR){
+                items.add(item);
+            }
+        }
+        int size = items.size();
+
+        batch = new RecipeBatch();
+        for(int i = 0; i < recipes; i++){
+            Item input = items.get(i % size);
+            Item ingredient = items.get((i / size + i + 1) % size);
+            //Half plain and half with components, the components being what makes compiling expensive
+            if(i % 2 == 0){
+                batch.add(input, ingredient, Items.POTION);
+            }else{
+                ComponentMap components = ComponentMap.builder().add(DataComponentTypes.CUSTOM_MODEL_DATA, new CustomModelDataComponent(i)).build();
+                batch.addWithComponents(input, ingredient, Items.POTION, components, components, null);
+            }
+        }
+    }
+
+    @Benchmark
+    public RecipeSet compile(){
+        return batch.compile();
+    }
+
+    /**What freeze() does: compiling the recipes, then analyzing them and building the lookup*/
+    @Benchmark
+    public RecipeLookup<ItemStack, Item, CompiledRecipe> compileAndIndex(){
+        return RecipeSnapshot.EMPTY.withAll(batch.compile()).getLookup();
+    }
+}
@@ -0,0 +1,231 @@
+package me.emafire003.dev.custombrewrecipes.benchmark;
+
+import me.emafire003.dev.custombrewrecipes.CompiledRecipe;
+import me.emafire003.dev.custombrewrecipes.CustomBrewRecipeRegister;
+import me.emafire003.dev.custombrewrecipes.RecipeBatch;
+import me.emafire003.dev.custombrewrecipes.RecipeMetrics;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.component.ComponentMap;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.CustomModelDataComponent;
+import net.minecraft.component.type.NbtComponent;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.registry.Registries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**Measures the recipe matching paths used by the mixins, with different amounts and kinds of recipes.
+ * <p>
+ * Every trial runs in its own fork, so the recipes registered by one trial don't leak into the next one.
+ * Run with {@code ./gradlew jmh}, the gc profiler is enabled to also report the allocation rate.
+ * */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RecipeMatchingBenchmark {
+
+    /**How many queries are prepared, a power of two so the next one is picked with a mask*/
+    private static final int QUERIES = 1024;
+    /**Items at the end of the registry that are never used by a recipe, used for the misses*/
+    private static final int MISS_ITEMS = 64;
+
+    @Param({"10", "1000", "50000"})
+    public int recipes;
+
+    /**Which kind of recipes get registered: plain, components, multi (components of two types), nbt,
+     * presence (of a component type), defaults (components, but only the default ones) or mixed (plain, components and nbt, in turn)*/
+    @Param({"plain", "components", "multi", "nbt", "presence", "defaults", "mixed"})
+    public String mix;
+
+    /**The fraction of queries that match a registered recipe*/
+    @Param({"0.1", "0.9"})
+    public double hitRatio;
+
+    private final ItemStack[] inputs = new ItemStack[QUERIES];
+    private final ItemStack[] ingredients = new ItemStack[QUERIES];
+    private final Item[] recipe_inputs = new Item[QUERIES];
+    private final ComponentMap[] recipe_components = new ComponentMap[QUERIES];
+    private final NbtCompound[] recipe_nbt = new NbtCompound[QUERIES];
+    private final ItemStack[] slots = new ItemStack[3];
+    private final CompiledRecipe[] found = new CompiledRecipe[3];
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup(){
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+
+        List<Item> items = new ArrayList<>();
+        for(Item item : Registries.ITEM){
+            if(item != Items.AIR){
+                items.add(item);
+            }
+        }
+        List<Item> recipe_items = items.subList(0, items.size() - MISS_ITEMS);
+        List<Item> miss_items = items.subList(items.size() - MISS_ITEMS, items.size());
+        int size = recipe_items.size();
+
+        RecipeBatch batch = CustomBrewRecipeRegister.batch();
+        for(int i = 0; i < recipes; i++){
+            Item input = recipe_items.get(i % size);
+            Item ingredient = recipe_items.get((i / size + i + 1) % size);
+            switch (kind(i)) {
+                case 0 -> batch.add(input, ingredient, Items.POTION);
+                case 1 -> batch.addWithComponents(input, ingredient, Items.POTION, components(i), components(i), null);
+                case 2 -> batch.addWithNbt(input, ingredient, Items.POTION, nbt(i), nbt(i), null);
+                case 3 -> batch.add(new CustomBrewRecipeRegister.CustomRecipeComponents(input, ingredient, Items.POTION, DataComponentTypes.CUSTOM_MODEL_DATA, DataComponentTypes.CUSTOM_MODEL_DATA, null));
+                case 5 -> batch.addWithComponents(input, ingredient, Items.POTION, twoComponents(i), twoComponents(i), null);
+                default -> batch.addWithComponents(input, ingredient, Items.POTION, null, null, null);
+            }
+        }
+        batch.register();
+        CustomBrewRecipeRegister.freeze();
+
+        Random random = new Random(42);
+        for(int q = 0; q < QUERIES; q++){
+            int i = random.nextInt(recipes);
+            Item input = recipe_items.get(i % size);
+            Item ingredient = recipe_items.get((i / size + i + 1) % size);
+            recipe_inputs[q] = input;
+            recipe_components[q] = kind(i) == 5 ? twoComponents(i) : components(i);
+            recipe_nbt[q] = nbt(i);
+            if(random.nextDouble() < hitRatio){
+                inputs[q] = stack(input, i);
+                ingredients[q] = stack(ingredient, i);
+            }else{
+                inputs[q] = new ItemStack(miss_items.get(random.nextInt(MISS_ITEMS)));
+                ingredients[q] = new ItemStack(miss_items.get(random.nextInt(MISS_ITEMS)));
+            }
+        }
+    }
+
+    private int kind(int recipe){
+        return switch (mix) {
+            case "plain" -> 0;
+            case "components" -> 1;
+            case "nbt" -> 2;
+            case "presence" -> 3;
+            case "defaults" -> 4;
+            case "multi" -> 5;
+            default -> recipe % 3;
+        };
+    }
+
+    private static ComponentMap components(int recipe){
+        return ComponentMap.builder().add(DataComponentTypes.CUSTOM_MODEL_DATA, new CustomModelDataComponent(recipe)).build();
+    }
+
+    private static ComponentMap twoComponents(int recipe){
+        return ComponentMap.builder().add(DataComponentTypes.CUSTOM_MODEL_DATA, new CustomModelDataComponent(recipe))
+                .add(DataComponentTypes.MAX_STACK_SIZE, recipe % 64 + 1).build();
+    }
+
+    private static NbtCompound nbt(int recipe){
+        NbtCompound nbt = new NbtCompound();
+        nbt.putInt("recipe", recipe);
+        return nbt;
+    }
+
+    /**Creates a stack matching the given recipe*/
+    private ItemStack stack(Item item, int recipe){
+        ItemStack stack = new ItemStack(item);
+        switch (kind(recipe)) {
+            case 1, 3 -> stack.set(DataComponentTypes.CUSTOM_MODEL_DATA, new CustomModelDataComponent(recipe));
+            case 2 -> NbtComponent.set(DataComponentTypes.CUSTOM_DATA, stack, nbt(recipe));
+            case 5 -> {
+                stack.set(DataComponentTypes.CUSTOM_MODEL_DATA, new CustomModelDataComponent(recipe));
+                stack.set(DataComponentTypes.MAX_STACK_SIZE, recipe % 64 + 1);
+            }
+            default -> {
+            }
+        }
+        return stack;
+    }
+
+    private int next(){
+        next = (next + 1) & (QUERIES - 1);
+        return next;
+    }
+
+    @Benchmark
+    public boolean isValidCustomInput(){
+        return CustomBrewRecipeRegister.isValidCustomInput(inputs[next()]);
+    }
+
+    @Benchmark
+    public boolean equalsComponents(){
+        int q = next();
+        return CustomBrewRecipeRegister.equalsComponents(inputs[q], recipe_inputs[q], recipe_components[q], null);
+    }
+
+    @Benchmark
+    public boolean equalsNbt(){
+        int q = next();
+        return CustomBrewRecipeRegister.equalsNbt(inputs[q], recipe_inputs[q], recipe_nbt[q], null);
+    }
+
+    /**The path of the craft injection*/
+    @Benchmark
+    public ItemStack craft(){
+        int q = next();
+        return CustomBrewRecipeRegister.craftCustomRecipe(ingredients[q], inputs[q]);
+    }
+
+    /**The path of the hasRecipe injection*/
+    @Benchmark
+    public boolean hasRecipe(){
+        int q = next();
+        return CustomBrewRecipeRegister.hasCustomRecipe(inputs[q], ingredients[q]);
+    }
+
+    /**The path of the isValidIngredient injection*/
+    @Benchmark
+    public boolean isValidIngredient(){
+        return CustomBrewRecipeRegister.isCustomRecipeIngredient(ingredients[next()]);
+    }
+
+    /**The three potion slots of a brewing stand looked up one by one*/
+    @Benchmark
+    public CompiledRecipe brewingStandSlots(){
+        int q = next();
+        CompiledRecipe last = null;
+        for(int i = 0; i < 3; i++){
+            CompiledRecipe recipe = CustomBrewRecipeRegister.findCustomRecipe(ingredients[q], inputs[(q + i) & (QUERIES - 1)], RecipeMetrics.EntryPoint.HAS_RECIPE);
+            last = recipe != null ? recipe : last;
+        }
+        return last;
+    }
+
+    /**The three potion slots of a brewing stand looked up together, like the brewing stand does*/
+    @Benchmark
+    public CompiledRecipe[] brewingStandSlotsBatched(){
+        int q = next();
+        for(int i = 0; i < 3; i++){
+            slots[i] = inputs[(q + i) & (QUERIES - 1)];
+        }
+        CustomBrewRecipeRegister.findCustomRecipes(ingredients[q], slots, found, RecipeMetrics.EntryPoint.HAS_RECIPE, null);
+        return found;
+    }
+}
@@ -0,0 +1,247 @@
+package me.emafire003.dev.custombrewrecipes.loadtest;
+
+import me.emafire003.dev.custombrewrecipes.CustomBrewRecipeRegister;
+import me.emafire003.dev.custombrewrecipes.RecipeBatch;
+import me.emafire003.dev.custombrewrecipes.RecipeMetrics;
+import net.fabricmc.api.DedicatedServerModInitializer;
+import net.fabricmc.loader.api.FabricLoader;
+import net.minecraft.SharedConstants;
+import net.minecraft.block.Blocks;
+import net.minecraft.block.HopperBlock;
+import net.minecraft.block.entity.BrewingStandBlockEntity;
+import net.minecraft.block.entity.HopperBlockEntity;
+import net.minecraft.component.ComponentMap;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.CustomModelDataComponent;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.registry.Registries;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.world.ServerWorld;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.Direction;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**A load test of the brewing stand injections on a dedicated server, with nobody connected.
+ * <p>
+ * When the world is loaded, it places brewing stands in force loaded chunks, each one with a hopper on top
+ * feeding its ingredient and a hopper on the side feeding blaze powder. Some of them are fed a custom ingredient,
+ * which brews their glass bottles into experience bottles and back forever, the others are fed an item that isn't
+ * an ingredient of any recipe, which the hopper keeps trying to insert. A number of other recipes are registered
+ * too, so the lookups run against a realistically sized set of recipes.
+ * <p>
+ * After some ticks to warm up, the time and the bytes allocated by every server tick are recorded, then a report
+ * with their percentiles is written and the server stops. The layout is always the same and the world is created
+ * again for every run, so two runs of different versions can be compared.
+ * <p>
+ * Run it with {@code ./gradlew runLoadTest}, and configure it with these system properties
+ * (or the gradle properties with the same name without {@code custombrewrecipes.}):
+ * <ul>
+ *     <li>{@code custombrewrecipes.loadTest.stands}: how many brewing stands, 1024 by default</li>
+ *     <li>{@code custombrewrecipes.loadTest.customShare}: the fraction of them fed a custom ingredient, 0.5 by default</li>
+ *     <li>{@code custombrewrecipes.loadTest.recipes}: how many other recipes are registered, 1000 by default</li>
+ *     <li>{@code custombrewrecipes.loadTest.warmupTicks}: the ticks that aren't measured, 600 by default</li>
+ *     <li>{@code custombrewrecipes.loadTest.ticks}: the ticks that are measured, 2400 by default</li>
+ *     <li>{@code custombrewrecipes.loadTest.report}: where the report is written, {@code brewing-load-test.txt} by default</li>
+ * </ul>
+ * If {@code custombrewrecipes.metrics} is on, the {@link RecipeMetrics} are written next to the report.
+ * */
+public final class BrewingLoadTest implements DedicatedServerModInitializer {
+
+    private static final int STANDS = Integer.getInteger("custombrewrecipes.loadTest.stands", 1024);
+    private static final double CUSTOM_SHARE = Double.parseDouble(System.getProperty("custombrewrecipes.loadTest.customShare", "0.5"));
+    private static final int RECIPES = Integer.getInteger("custombrewrecipes.loadTest.recipes", 1000);
+    private static final int WARMUP_TICKS = Integer.getInteger("custombrewrecipes.loadTest.warmupTicks", 600);
+    private static final int TICKS = Integer.getInteger("custombrewrecipes.loadTest.ticks", 2400);
+    private static final Path REPORT = Path.of(System.getProperty("custombrewrecipes.loadTest.report", "brewing-load-test.txt"));
+
+    /**Brews the glass bottles into experience bottles and the other way around*/
+    private static final Item INGREDIENT = Items.AMETHYST_SHARD;
+    /**Fed to the stands that can't brew anything*/
+    private static final Item NOT_AN_INGREDIENT = Items.COBBLESTONE;
+    /**Above the flat world*/
+    private static final int Y = 100;
+    /**Every chunk holds 16 rows of 8 stands, a stand and its side hopper take two blocks*/
+    private static final int STANDS_PER_ROW = 8;
+    private static final int STANDS_PER_CHUNK = STANDS_PER_ROW * 16;
+    private static final int CHUNKS_PER_ROW = 16;
+
+    private static final com.sun.management.ThreadMXBean THREADS = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static boolean running;
+    private static int tick;
+    private static long tick_start;
+    private static long tick_allocated;
+    private static final long[] tick_nanos = new long[TICKS];
+    private static final long[] tick_bytes = new long[TICKS];
+
+    @Override
+    public void onInitializeServer() {
+        CustomBrewRecipeRegister.registerCustomRecipe(Items.GLASS_BOTTLE, INGREDIENT, Items.EXPERIENCE_BOTTLE);
+        CustomBrewRecipeRegister.registerCustomRecipe(Items.EXPERIENCE_BOTTLE, INGREDIENT, Items.GLASS_BOTTLE);
+
+        //Like the recipe matching benchmark, half with items only and half with components
+        Set<Item> used = Set.of(Items.AIR, Items.GLASS_BOTTLE, Items.EXPERIENCE_BOTTLE, INGREDIENT, NOT_AN_INGREDIENT, Items.BLAZE_POWDER);
+        List<Item> items = new ArrayList<>();
+        for(Item item : Registries.ITEM){
+            if(!used.contains(item)){
+                items.add(item);
+            }
+        }
+        int size = items.size();
+        RecipeBatch batch = CustomBrewRecipeRegister.batch();
+        for(int i = 0; i < RECIPES; i++){
+            Item input = items.get(i % size);
+            Item ingredient = items.get((i / size + i + 1) % size);
+            if(i % 2 == 0){
+                batch.add(input, ingredient, Items.POTION);
+            }else{
+                ComponentMap components = ComponentMap.builder().add(DataComponentTypes.CUSTOM_MODEL_DATA, new CustomModelDataComponent(i)).build();
+                batch.addWithComponents(input, ingredient, Items.POTION, components, components, null);
+            }
+        }
+        batch.register();
+        CustomBrewRecipeRegister.freeze();
+    }
+
+    /**Used (internally) to place the brewing stands once the world is loaded*/
+    public static void setUp(MinecraftServer server){
+        ServerWorld world = server.getOverworld();
+        int custom = 0;
+        for(int n = 0; n < STANDS; n++){
+            int chunk = n / STANDS_PER_CHUNK;
+            int in_chunk = n % STANDS_PER_CHUNK;
+            int chunk_x = chunk % CHUNKS_PER_ROW;
+            int chunk_z = chunk / CHUNKS_PER_ROW;
+            if(in_chunk == 0){
+                world.setChunkForced(chunk_x, chunk_z, true);
+            }
+            BlockPos pos = new BlockPos(chunk_x * 16 + (in_chunk % STANDS_PER_ROW) * 2, Y, chunk_z * 16 + in_chunk / STANDS_PER_ROW);
+            //Spreads the custom ones evenly instead of putting them all first
+            boolean is_custom = (int) ((n + 1) * CUSTOM_SHARE) > (int) (n * CUSTOM_SHARE);
+            if(is_custom){
+                custom++;
+            }
+            placeStand(world, pos, is_custom ? INGREDIENT : NOT_AN_INGREDIENT);
+        }
+        CustomBrewRecipeRegister.LOGGER.info("Brewing load test: placed {} brewing stands ({} with a custom ingredient), measuring {} ticks after {} to warm up",
+                STANDS, custom, TICKS, WARMUP_TICKS);
+        tick = -WARMUP_TICKS;
+        running = true;
+    }
+
+    private static void placeStand(ServerWorld world, BlockPos pos, Item ingredient){
+        world.setBlockState(pos, Blocks.BREWING_STAND.getDefaultState());
+        world.setBlockState(pos.up(), Blocks.HOPPER.getDefaultState().with(HopperBlock.FACING, Direction.DOWN));
+        world.setBlockState(pos.east(), Blocks.HOPPER.getDefaultState().with(HopperBlock.FACING, Direction.WEST));
+        if(world.getBlockEntity(pos) instanceof BrewingStandBlockEntity brewing_stand){
+            for(int slot = 0; slot < 3; slot++){
+                brewing_stand.setStack(slot, new ItemStack(Items.GLASS_BOTTLE));
+            }
+        }
+        if(world.getBlockEntity(pos.up()) instanceof HopperBlockEntity top){
+            for(int slot = 0; slot < top.size(); slot++){
+                top.setStack(slot, new ItemStack(ingredient, 64));
+            }
+        }
+        if(world.getBlockEntity(pos.east()) instanceof HopperBlockEntity side){
+            side.setStack(0, new ItemStack(Items.BLAZE_POWDER, 64));
+        }
+    }
+
+    /**Used (internally) at the start of every server tick*/
+    public static void onTickStart(){
+        if(!running){
+            return;
+        }
+        tick_allocated = THREADS.getCurrentThreadAllocatedBytes();
+        tick_start = System.nanoTime();
+    }
+
+    /**Used (internally) at the end of every server tick*/
+    public static void onTickEnd(MinecraftServer server){
+        if(!running){
+            return;
+        }
+        long nanos = System.nanoTime() - tick_start;
+        long bytes = THREADS.getCurrentThreadAllocatedBytes() - tick_allocated;
+        if(tick == 0 && RecipeMetrics.isEnabled()){
+            //Only the measured ticks are counted
+            RecipeMetrics.reset();
+        }
+        if(tick >= 0){
+            tick_nanos[tick] = nanos;
+            tick_bytes[tick] = bytes;
+        }
+        if(++tick < TICKS){
+            return;
+        }
+        running = false;
+        report();
+        server.stop(false);
+    }
+
+    private static void report(){
+        long[] nanos = tick_nanos.clone();
+        long[] bytes = tick_bytes.clone();
+        Arrays.sort(nanos);
+        Arrays.sort(bytes);
+        StringBuilder report = new StringBuilder();
+        report.append("CustomBrewRecipes brewing load test\n\n");
+        report.append("minecraft: ").append(SharedConstants.getGameVersion().getName()).append('\n');
+        report.append("custombrewrecipes: ").append(FabricLoader.getInstance().getModContainer("custombrewrecipes")
+                .map(mod -> mod.getMetadata().getVersion().getFriendlyString()).orElse("unknown")).append('\n');
+        report.append("stands: ").append(STANDS).append('\n');
+        report.append("custom share: ").append(CUSTOM_SHARE).append('\n');
+        report.append("recipes: ").append(CustomBrewRecipeRegister.getCustomRecipes().size() + CustomBrewRecipeRegister.getCustomRecipesComponents().size()).append('\n');
+        report.append("measured ticks: ").append(TICKS).append(" after ").append(WARMUP_TICKS).append('\n');
+        report.append('\n');
+        report.append(String.format("mspt mean: %.3f%n", mean(nanos) / 1_000_000));
+        for(String percentile : new String[]{"50", "90", "99", "99.9"}){
+            report.append(String.format("mspt p%s: %.3f%n", percentile, percentile(nanos, Double.parseDouble(percentile)) / 1_000_000d));
+        }
+        report.append(String.format("mspt max: %.3f%n", nanos[nanos.length - 1] / 1_000_000d));
+        report.append(String.format("bytes per tick mean: %.0f%n", mean(bytes)));
+        report.append("bytes per tick p50: ").append(percentile(bytes, 50)).append('\n');
+        report.append("bytes per tick p99: ").append(percentile(bytes, 99)).append('\n');
+        CustomBrewRecipeRegister.LOGGER.info("Brewing load test finished:\n{}", report);
+        try{
+            Path parent = REPORT.toAbsolutePath().getParent();
+            if(parent != null){
+                Files.createDirectories(parent);
+            }
+            Files.writeString(REPORT, report);
+            if(RecipeMetrics.isEnabled()){
+                RecipeMetrics.dump(REPORT.resolveSibling("brewing-load-test-metrics.txt"));
+            }
+        }catch (IOException e){
+            CustomBrewRecipeRegister.LOGGER.error("Couldn't write the brewing load test report {}", REPORT, e);
+        }
+    }
+
+    private static double mean(long[] values){
+        double sum = 0;
+        for(long value : values){
+            sum += value;
+        }
+        return values.length > 0 ? sum / values.length : 0;
+    }
+
+    /**The nearest rank percentile of sorted values*/
+    private static long percentile(long[] sorted, double percentile){
+        if(sorted.length == 0){
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sorted.length);
+        return sorted[Math.max(0, Math.min(sorted.length, rank) - 1)];
+    }
+}
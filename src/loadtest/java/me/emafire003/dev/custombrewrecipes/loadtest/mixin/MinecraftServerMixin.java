@@ -0,0 +1,30 @@
+package me.emafire003.dev.custombrewrecipes.loadtest.mixin;
+
+import me.emafire003.dev.custombrewrecipes.loadtest.BrewingLoadTest;
+import net.minecraft.server.MinecraftServer;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import java.util.function.BooleanSupplier;
+
+/**Places the brewing stands of the load test when the world is loaded, and measures every tick*/
+@Mixin(MinecraftServer.class)
+public abstract class MinecraftServerMixin {
+
+    @Inject(method = "loadWorld", at = @At("TAIL"))
+    private void setUpLoadTest(CallbackInfo ci) {
+        BrewingLoadTest.setUp((MinecraftServer) (Object) this);
+    }
+
+    @Inject(method = "tick", at = @At("HEAD"))
+    private void startTick(BooleanSupplier shouldKeepTicking, CallbackInfo ci) {
+        BrewingLoadTest.onTickStart();
+    }
+
+    @Inject(method = "tick", at = @At("TAIL"))
+    private void endTick(BooleanSupplier shouldKeepTicking, CallbackInfo ci) {
+        BrewingLoadTest.onTickEnd((MinecraftServer) (Object) this);
+    }
+}
@@ -0,0 +1,110 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**An immutable list which can be appended to without copying it, used by {@link RecipeSet}.
+ * <p>
+ * Appending creates a new list, which shares the array of this one and writes the new elements in its free room.
+ * Since a list only ever reads its own first elements, which are never written again, the old list doesn't change.
+ * Only one of the lists sharing an array can write past its end: when another one is appended to, or the array is full,
+ * the elements are copied into a new array twice as big. So registering recipes one by one takes
+ * constant time for each of them, not the time to copy all the recipes registered before.
+ * */
+final class AppendList<T> extends AbstractList<T> implements RandomAccess {
+
+    private static final AppendList<?> EMPTY = new AppendList<>(new Elements(new Object[0], 0), 0);
+    private static final int MIN_CAPACITY = 8;
+
+    private final Elements elements;
+    private final int size;
+
+    private AppendList(Elements elements, int size) {
+        this.elements = elements;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> AppendList<T> empty(){
+        return (AppendList<T>) EMPTY;
+    }
+
+    /**Returns the list itself if it's already an AppendList, otherwise a copy of it*/
+    static <T> AppendList<T> of(List<T> list){
+        if(list instanceof AppendList<T> append_list){
+            return append_list;
+        }
+        if(list.isEmpty()){
+            return empty();
+        }
+        Object[] array = list.toArray();
+        return new AppendList<>(new Elements(array, array.length), array.length);
+    }
+
+    /**Returns a list with the elements of this one followed by the given one*/
+    AppendList<T> with(T element){
+        return withAll(List.of(element));
+    }
+
+    /**Returns a list with the elements of this one followed by the given ones*/
+    AppendList<T> withAll(List<? extends T> added){
+        if(added.isEmpty()){
+            return this;
+        }
+        int new_size = size + added.size();
+        Elements target = elements.claim(size, new_size) ? elements : elements.copy(size, new_size, Math.max(MIN_CAPACITY, Math.max(new_size, size * 2)));
+        for(int i = 0; i < added.size(); i++){
+            target.array[size + i] = added.get(i);
+        }
+        return new AppendList<>(target, new_size);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if(index < 0 || index >= size){
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return (T) elements.array[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Object[] toArray() {
+        return Arrays.copyOf(elements.array, size);
+    }
+
+    /**The array shared by the lists, and how much of it is already used by one of them*/
+    private static final class Elements {
+
+        private final Object[] array;
+        private int used;
+
+        private Elements(Object[] array, int used) {
+            this.array = array;
+            this.used = used;
+        }
+
+        /**Takes the room between from and to for the list ending at from, if no other list took it already*/
+        private synchronized boolean claim(int from, int to){
+            if(used != from || to > array.length){
+                return false;
+            }
+            used = to;
+            return true;
+        }
+
+        /**Copies the first elements into a new array, with the room up to used already taken*/
+        private Elements copy(int size, int used, int capacity){
+            Object[] copy = new Object[capacity];
+            System.arraycopy(array, 0, copy, 0, size);
+            return new Elements(copy, used);
+        }
+    }
+}
@@ -0,0 +1,335 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import me.emafire003.dev.custombrewrecipes.core.RecipeLookup;
+import me.emafire003.dev.custombrewrecipes.core.StackMatcher;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**What the custom recipes can brew, as a graph: every item with its components is a node,
+ * and every recipe that accepts it as an input is a step to the output of the recipe.
+ * <p>
+ * Meant for mods that want to know what an item can become, like recipe viewers or automation,
+ * without trying every possible ingredient with {@link CustomBrewRecipeRegister#findCustomRecipe(ItemStack, ItemStack)}.
+ * Get it with {@link CustomBrewRecipeRegister#getBrewingGraph()}.
+ * <p>
+ * The graph is built from the recipes of the lookup, so the recipes that can never be used aren't part of it.
+ * The recipes are indexed by input item when the graph is created, and the steps of a node are found
+ * the first time they are needed. Those and the results of the queries are remembered, so asking again is cheap.
+ * When the recipes change a new graph is created, which keeps the steps of the nodes that no added or removed recipe can brew.
+ * <p>
+ * Only the custom recipes are part of the graph, not the vanilla ones. The stack count is ignored.
+ * Since the first matching recipe is the one used, the ingredient of a step can be partly taken by an earlier
+ * step of the same node: those ingredients brew the earlier one.
+ * A graph never changes, call {@link CustomBrewRecipeRegister#getBrewingGraph()} again to see new recipes.
+ * */
+public final class BrewingGraph {
+
+    private static final int[] NONE = new int[0];
+    /**Past this many remembered results, they are forgotten and computed again when needed*/
+    static final int MAX_MEMOIZED = 1 << 16;
+    /**Past this many added or removed recipes, a new graph starts from scratch*/
+    static final int MAX_CHANGED = 256;
+
+    private final RecipeLookup<ItemStack, Item, CompiledRecipe> lookup;
+    private final List<CompiledRecipe> recipes;
+    /**The outputs of the recipes, as nodes*/
+    private final State[] outputs;
+    /**The positions of the recipes whose input is limited to an item*/
+    private final Map<Item, int[]> by_input;
+    /**The positions of the recipes whose input can be any item*/
+    private final int[] any_input;
+
+    private final Map<State, List<Step>> steps = new ConcurrentHashMap<>();
+    private final Map<Reach, List<State>> reachable = new ConcurrentHashMap<>();
+    private final Map<Chain, Optional<List<Step>>> chains = new ConcurrentHashMap<>();
+
+    private BrewingGraph(RecipeLookup<ItemStack, Item, CompiledRecipe> lookup) {
+        this.lookup = lookup;
+        this.recipes = lookup.getRecipes();
+        this.outputs = new State[recipes.size()];
+        Map<Item, List<Integer>> by_input = new HashMap<>();
+        List<Integer> any_input = new ArrayList<>();
+        for(int i = 0; i < recipes.size(); i++){
+            CompiledRecipe recipe = recipes.get(i);
+            outputs[i] = new State(recipe.craft());
+            Item item = recipe.getInput().item();
+            if(item != null){
+                by_input.computeIfAbsent(item, k -> new ArrayList<>()).add(i);
+            }else{
+                any_input.add(i);
+            }
+        }
+        this.by_input = new HashMap<>();
+        by_input.forEach((item, positions) -> this.by_input.put(item, toArray(positions)));
+        this.any_input = toArray(any_input);
+    }
+
+    /**Creates the graph of the recipes of the lookup*/
+    static BrewingGraph of(RecipeLookup<ItemStack, Item, CompiledRecipe> lookup){
+        return new BrewingGraph(lookup);
+    }
+
+    /**Returns true if this is the graph of the recipes of the lookup*/
+    boolean isFor(RecipeLookup<ItemStack, Item, CompiledRecipe> lookup){
+        return this.lookup == lookup;
+    }
+
+    /**Creates the graph of the recipes of another lookup, keeping the steps already found for the nodes
+     * that none of the recipes added or removed since this graph can brew*/
+    BrewingGraph rebuiltFor(RecipeLookup<ItemStack, Item, CompiledRecipe> lookup){
+        BrewingGraph graph = new BrewingGraph(lookup);
+        if(steps.isEmpty()){
+            return graph;
+        }
+        Set<CompiledRecipe> old_recipes = Collections.newSetFromMap(new IdentityHashMap<>());
+        old_recipes.addAll(recipes);
+        Set<CompiledRecipe> new_recipes = Collections.newSetFromMap(new IdentityHashMap<>());
+        new_recipes.addAll(graph.recipes);
+        List<CompiledRecipe> changed = new ArrayList<>();
+        for(CompiledRecipe recipe : graph.recipes){
+            if(!old_recipes.contains(recipe)){
+                changed.add(recipe);
+            }
+        }
+        for(CompiledRecipe recipe : recipes){
+            if(!new_recipes.contains(recipe)){
+                changed.add(recipe);
+            }
+        }
+        if(changed.size() > MAX_CHANGED){
+            return graph;
+        }
+        //The recipes keep their order when others are added or removed, so a node that no changed recipe
+        //can brew has the very same steps. The other results depend on many nodes, so they are all found again
+        for(Map.Entry<State, List<Step>> entry : steps.entrySet()){
+            if(changed.stream().noneMatch(recipe -> recipe.getInput().matches(entry.getKey().stack))){
+                graph.steps.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return graph;
+    }
+
+    /**Returns the steps that can brew the input, in the order the recipes are checked.
+     * Empty if no custom recipe accepts it as an input*/
+    public List<Step> getSteps(ItemStack input){
+        return steps(new State(input));
+    }
+
+    /**Returns what the ingredients of each step have to match, in the same order as {@link #getSteps(ItemStack)}*/
+    public List<StackMatcher<ItemStack, Item>> getIngredients(ItemStack input){
+        List<Step> found = getSteps(input);
+        List<StackMatcher<ItemStack, Item>> ingredients = new ArrayList<>(found.size());
+        for(Step step : found){
+            ingredients.add(step.getIngredient());
+        }
+        return ingredients;
+    }
+
+    /**Returns the stacks that the input can become in at most the given number of brews,
+     * without the input itself, closest first
+     *
+     * @param max_steps The most brews, 1 for only what it can be brewed into directly
+     * */
+    public List<ItemStack> getReachable(ItemStack input, int max_steps){
+        if(max_steps < 1){
+            return List.of();
+        }
+        Reach key = new Reach(new State(input), max_steps);
+        List<State> found = reachable.get(key);
+        if(found == null){
+            found = findReachable(key.from(), max_steps);
+            remember(reachable, key, found);
+        }
+        List<ItemStack> stacks = new ArrayList<>(found.size());
+        for(State state : found){
+            stacks.add(state.stack.copy());
+        }
+        return stacks;
+    }
+
+    /**Returns the fewest steps needed to brew the input into the target, or null if it can't be done.
+     * Empty if the input already is the target.
+     * <p>
+     * Each step brews the output of the previous one, the first one brews the input.*/
+    @Nullable
+    public List<Step> findChain(ItemStack input, ItemStack target){
+        Chain key = new Chain(new State(input), new State(target));
+        Optional<List<Step>> found = chains.get(key);
+        if(found == null){
+            found = Optional.ofNullable(findChain(key.from(), key.to()));
+            remember(chains, key, found);
+        }
+        return found.orElse(null);
+    }
+
+    private List<Step> steps(State state){
+        List<Step> found = steps.get(state);
+        if(found == null){
+            found = findSteps(state);
+            remember(steps, state, found);
+        }
+        return found;
+    }
+
+    private List<Step> findSteps(State state){
+        int[] with_item = by_input.getOrDefault(state.stack.getItem(), NONE);
+        List<Step> found = new ArrayList<>();
+        //Goes through both in the order the recipes are checked
+        int i = 0;
+        int j = 0;
+        while(i < with_item.length || j < any_input.length){
+            int position = j >= any_input.length || (i < with_item.length && with_item[i] < any_input[j]) ? with_item[i++] : any_input[j++];
+            CompiledRecipe recipe = recipes.get(position);
+            if(recipe.getInput().matches(state.stack)){
+                found.add(new Step(state, recipe, outputs[position]));
+            }
+        }
+        return found.isEmpty() ? List.of() : Collections.unmodifiableList(found);
+    }
+
+    private List<State> findReachable(State from, int max_steps){
+        //Breadth first, so every node is reached with the fewest steps
+        Map<State, Boolean> seen = new LinkedHashMap<>();
+        seen.put(from, Boolean.TRUE);
+        List<State> level = List.of(from);
+        for(int depth = 0; depth < max_steps && !level.isEmpty(); depth++){
+            List<State> next = new ArrayList<>();
+            for(State state : level){
+                for(Step step : steps(state)){
+                    if(seen.putIfAbsent(step.output, Boolean.TRUE) == null){
+                        next.add(step.output);
+                    }
+                }
+            }
+            level = next;
+        }
+        seen.remove(from);
+        return List.copyOf(seen.keySet());
+    }
+
+    @Nullable
+    private List<Step> findChain(State from, State to){
+        if(from.equals(to)){
+            return List.of();
+        }
+        //Breadth first, remembering the step that reached each node first
+        Map<State, Step> reached_by = new HashMap<>();
+        ArrayDeque<State> queue = new ArrayDeque<>();
+        queue.add(from);
+        while(!queue.isEmpty()){
+            State state = queue.poll();
+            for(Step step : steps(state)){
+                if(step.output.equals(from) || reached_by.putIfAbsent(step.output, step) != null){
+                    continue;
+                }
+                if(step.output.equals(to)){
+                    return chainTo(to, reached_by);
+                }
+                queue.add(step.output);
+            }
+        }
+        return null;
+    }
+
+    private List<Step> chainTo(State to, Map<State, Step> reached_by){
+        List<Step> chain = new ArrayList<>();
+        for(Step step = reached_by.get(to); step != null; step = reached_by.get(step.input)){
+            chain.add(step);
+        }
+        Collections.reverse(chain);
+        return Collections.unmodifiableList(chain);
+    }
+
+    private static <K, V> void remember(Map<K, V> memo, K key, V value){
+        if(memo.size() >= MAX_MEMOIZED){
+            memo.clear();
+        }
+        memo.put(key, value);
+    }
+
+    private static int[] toArray(List<Integer> positions){
+        int[] array = new int[positions.size()];
+        for(int i = 0; i < array.length; i++){
+            array[i] = positions.get(i);
+        }
+        return array;
+    }
+
+    /**Brewing a node with a recipe*/
+    public static final class Step {
+
+        private final State input;
+        private final CompiledRecipe recipe;
+        private final State output;
+
+        private Step(State input, CompiledRecipe recipe, State output) {
+            this.input = input;
+            this.recipe = recipe;
+            this.output = output;
+        }
+
+        /**The recipe used*/
+        public CompiledRecipe getRecipe() {
+            return recipe;
+        }
+
+        /**What the ingredient has to match*/
+        public StackMatcher<ItemStack, Item> getIngredient() {
+            return recipe.getIngredient();
+        }
+
+        /**Creates a new itemstack with what this brews*/
+        public ItemStack getOutput() {
+            return output.stack.copy();
+        }
+
+        @Override
+        public String toString() {
+            return "Step{" +
+                    "recipe=" + recipe +
+                    ", output=" + output.stack +
+                    '}';
+        }
+    }
+
+    /**An item with its components, ignoring the count*/
+    private static final class State {
+
+        private final ItemStack stack;
+        private final int hash;
+
+        State(ItemStack stack) {
+            this.stack = stack.copyWithCount(1);
+            this.hash = ItemStack.hashCode(this.stack);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || o instanceof State state && hash == state.hash && ItemStack.areItemsAndComponentsEqual(stack, state.stack);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    private record Reach(State from, int max_steps) {
+    }
+
+    private record Chain(State from, State to) {
+    }
+}
@@ -0,0 +1,138 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.util.collection.DefaultedList;
+import net.minecraft.util.math.BlockPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.BooleanSupplier;
+
+/**Remembers the custom recipes resolved for the three potion slots of a brewing stand.
+ * <p>
+ * Every tick a brewing stand checks if it can brew, which means checking every potion slot against the ingredient.
+ * Most of the time the contents of the stand haven't changed since the last tick, so the result from last time is used
+ * instead. The cache is keyed on the itemstacks in the slots (the same instances, holding the same item),
+ * so putting a different stack in a slot or emptying it invalidates it, and so does registering a new recipe.
+ * <p>
+ * The stack count is not part of the key since it doesn't change which recipe matches.
+ * If you change the components of a stack while it is inside a brewing stand, call {@link #invalidate()}.
+ * */
+public final class BrewingStandRecipeCache {
+
+    /**The slot of the ingredient, the potion slots are 0, 1 and 2*/
+    private static final int INGREDIENT_SLOT = 3;
+    private static final int POTION_SLOTS = 3;
+
+    private final ItemStack[] stacks = new ItemStack[POTION_SLOTS + 1];
+    private final Item[] items = new Item[POTION_SLOTS + 1];
+    private final CompiledRecipe[] recipes = new CompiledRecipe[POTION_SLOTS];
+    /**Reused for every lookup, and emptied after it so it doesn't keep the stacks around*/
+    private final ItemStack[] inputs = new ItemStack[POTION_SLOTS];
+    private int generation;
+    private boolean can_craft;
+    private boolean can_craft_known;
+    private boolean valid;
+
+    /**Makes the recipes get resolved again the next time they are needed*/
+    public void invalidate(){
+        valid = false;
+    }
+
+    /**Returns if the brewing stand could brew its contents the last time they were resolved,
+     * only meaningful if {@link #isValidFor(DefaultedList)} and {@link #isCanCraftKnown()} are true*/
+    public boolean canCraft(){
+        return can_craft;
+    }
+
+    /**Returns false if only the recipes have been resolved, without checking if the stand can brew*/
+    public boolean isCanCraftKnown(){
+        return can_craft_known;
+    }
+
+    /**Resolves the custom recipes of the current contents of the brewing stand and caches them.
+     *
+     * @param slots The inventory of the brewing stand
+     * @param pos The position of the brewing stand, only used for profiling
+     * @param original Checks if the stand can brew, used if no custom recipe matches
+     * @return true if the brewing stand can brew its contents
+     * */
+    public boolean resolve(DefaultedList<ItemStack> slots, @Nullable BlockPos pos, BooleanSupplier original){
+        boolean custom = resolveRecipes(slots, pos, RecipeMetrics.EntryPoint.HAS_RECIPE);
+        //If a custom recipe matches, the ingredient is valid and there is a recipe, so no need to ask vanilla
+        can_craft = custom || original.getAsBoolean();
+        can_craft_known = true;
+        return can_craft;
+    }
+
+    /**Resolves and caches only the custom recipes of the current contents of the brewing stand,
+     * used when it's about to brew and the cache is outdated.
+     *
+     * @param slots The inventory of the brewing stand
+     * @param pos The position of the brewing stand, only used for profiling
+     * @param entry_point Where the lookup comes from, for the {@link RecipeMetrics}
+     * @return true if a custom recipe matches any of the potion slots
+     * */
+    public boolean resolveRecipes(DefaultedList<ItemStack> slots, @Nullable BlockPos pos, RecipeMetrics.EntryPoint entry_point){
+        //Read before resolving, so a recipe registered in the meantime makes this outdated
+        generation = CustomBrewRecipeRegister.getGeneration();
+        ItemStack ingredient = slots.get(INGREDIENT_SLOT);
+        for(int i = 0; i < POTION_SLOTS; i++){
+            ItemStack input = slots.get(i);
+            inputs[i] = ingredient.isEmpty() || input.isEmpty() ? null : input;
+        }
+        //The three slots share the ingredient, so it's matched once for all of them
+        CustomBrewRecipeRegister.findCustomRecipes(ingredient, inputs, recipes, entry_point, pos);
+        boolean custom = false;
+        for(int i = 0; i < POTION_SLOTS; i++){
+            inputs[i] = null;
+            custom |= recipes[i] != null;
+        }
+        for(int i = 0; i <= POTION_SLOTS; i++){
+            stacks[i] = slots.get(i);
+            items[i] = stacks[i].getItem();
+        }
+        can_craft_known = false;
+        valid = true;
+        return custom;
+    }
+
+    /**Returns the custom recipe cached for the input and ingredient, if they are the
+     * same stacks that are in the brewing stand since the last check. Null otherwise,
+     * or if no custom recipe matches them.*/
+    @Nullable
+    public CompiledRecipe getRecipe(ItemStack ingredient, ItemStack input){
+        if(!valid || generation != CustomBrewRecipeRegister.getGeneration() || !isSame(INGREDIENT_SLOT, ingredient)){
+            return null;
+        }
+        for(int i = 0; i < POTION_SLOTS; i++){
+            if(isSame(i, input)){
+                return recipes[i];
+            }
+        }
+        return null;
+    }
+
+    /**Returns true if the cached recipes are still the ones of the current contents of the brewing stand*/
+    public boolean isValidFor(DefaultedList<ItemStack> slots){
+        if(!valid || generation != CustomBrewRecipeRegister.getGeneration()){
+            return false;
+        }
+        for(int i = 0; i <= POTION_SLOTS; i++){
+            if(!isSame(i, slots.get(i))){
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isSame(int slot, ItemStack stack){
+        //getItem() becomes air when a stack is emptied in place, so this catches that too
+        return stacks[slot] == stack && items[slot] == stack.getItem();
+    }
+
+    /**Implemented on the brewing stand block entity, which holds its own cache*/
+    public interface Holder {
+        BrewingStandRecipeCache custombrewrecipes$getRecipeCache();
+    }
+}
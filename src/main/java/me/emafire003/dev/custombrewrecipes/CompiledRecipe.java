@@ -0,0 +1,154 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import me.emafire003.dev.custombrewrecipes.core.BrewingRecipe;
+import me.emafire003.dev.custombrewrecipes.core.StackMatcher;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.NbtComponent;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import org.jetbrains.annotations.Nullable;
+
+/**A registered recipe compiled into the checks needed to match it
+ * and into the way its output is created.
+ * <p>
+ * These are created by {@link CustomBrewRecipeRegister} when a recipe is registered, and are immutable.
+ * */
+public final class CompiledRecipe implements BrewingRecipe<ItemStack, Item> {
+
+    private final Object recipe;
+    private final StackMatcher<ItemStack, Item> input;
+    private final StackMatcher<ItemStack, Item> ingredient;
+    /**Built once when the recipe is registered, and only ever copied*/
+    private final ItemStack output;
+
+    private CompiledRecipe(Object recipe, StackMatcher<ItemStack, Item> input, StackMatcher<ItemStack, Item> ingredient, ItemStack output) {
+        this.recipe = recipe;
+        this.input = input;
+        this.ingredient = ingredient;
+        this.output = output;
+    }
+
+    static CompiledRecipe of(CustomBrewRecipeRegister.CustomRecipe<Item> recipe){
+        requireItem(recipe.input(), "input", recipe);
+        requireItem(recipe.ingredient(), "ingredient", recipe);
+        requireItem(recipe.output(), "output", recipe);
+        return new CompiledRecipe(recipe, ItemStackMatchers.ofItem(recipe.input()), ItemStackMatchers.ofItem(recipe.ingredient()),
+                new ItemStack(recipe.output()));
+    }
+
+    static CompiledRecipe of(CustomBrewRecipeRegister.CustomRecipeItems recipe){
+        return of(recipe, ItemTagContents.LOADED);
+    }
+
+    /**Compiles the recipe expanding its tags with the given ones*/
+    static CompiledRecipe of(CustomBrewRecipeRegister.CustomRecipeItems recipe, ItemTagContents tags){
+        requireItems(recipe.input(), "input", recipe);
+        requireItems(recipe.ingredient(), "ingredient", recipe);
+        requireItem(recipe.output(), "output", recipe);
+        return new CompiledRecipe(recipe, ItemStackMatchers.ofItems(recipe.input(), tags), ItemStackMatchers.ofItems(recipe.ingredient(), tags),
+                new ItemStack(recipe.output()));
+    }
+
+    static CompiledRecipe of(CustomBrewRecipeRegister.CustomRecipeComponents recipe){
+        //The recipes checking component types work with any item
+        //(but without any component to check, they would accept anything)
+        if(recipe.input_component_type == null && (recipe.input_constraints == null || recipe.input_constraints.getTypes().isEmpty())){
+            requireItem(recipe.input, "input", recipe);
+        }
+        if(recipe.ingredient_component_type == null && (recipe.ingredient_constraints == null || recipe.ingredient_constraints.getTypes().isEmpty())){
+            requireItem(recipe.ingredient, "ingredient", recipe);
+        }
+        requireItem(recipe.output, "output", recipe);
+        ItemStack output = new ItemStack(recipe.output);
+        if(recipe.output_components != null){
+            output.applyComponentsFrom(recipe.output_components);
+        }
+        return new CompiledRecipe(recipe,
+                recipe.input_constraints != null ? ItemStackMatchers.ofConstraints(recipe.input, recipe.input_constraints)
+                        : ItemStackMatchers.ofComponents(recipe.input, recipe.input_components, recipe.input_component_type),
+                recipe.ingredient_constraints != null ? ItemStackMatchers.ofConstraints(recipe.ingredient, recipe.ingredient_constraints)
+                        : ItemStackMatchers.ofComponents(recipe.ingredient, recipe.ingredient_components, recipe.ingredient_component_type),
+                output);
+    }
+
+    static CompiledRecipe of(CustomBrewRecipeRegister.CustomRecipeNBTOnly recipe){
+        //The recipes checking a single nbt field work with any item
+        if(recipe.input_nbt_field == null){
+            requireItem(recipe.input, "input", recipe);
+        }
+        if(recipe.ingredient_nbt_field == null){
+            requireItem(recipe.ingredient, "ingredient", recipe);
+        }
+        requireItem(recipe.output, "output", recipe);
+        ItemStack output = new ItemStack(recipe.output);
+        if(recipe.output_nbt != null){
+            if(!(recipe.output_nbt instanceof NbtCompound output_nbt)){
+                throw new IllegalArgumentException("The output nbt of a brewing recipe must be an NbtCompound, got: " + recipe.output_nbt);
+            }
+            NbtComponent.set(DataComponentTypes.CUSTOM_DATA, output, output_nbt);
+        }
+        return new CompiledRecipe(recipe,
+                ItemStackMatchers.ofNbt(recipe.input, recipe.input_nbt, recipe.input_nbt_field),
+                ItemStackMatchers.ofNbt(recipe.ingredient, recipe.ingredient_nbt, recipe.ingredient_nbt_field),
+                output);
+    }
+
+    private static void requireItem(@Nullable Item item, String side, Object recipe){
+        if(item == null){
+            throw new IllegalArgumentException("The " + side + " item of a brewing recipe can't be null: " + recipe);
+        }
+    }
+
+    private static void requireItems(@Nullable RecipeItems items, String side, Object recipe){
+        if(items == null){
+            throw new IllegalArgumentException("The " + side + " items of a brewing recipe can't be null: " + recipe);
+        }
+    }
+
+    @Override
+    public boolean matches(ItemStack input, ItemStack ingredient){
+        return this.ingredient.matches(ingredient) && this.input.matches(input);
+    }
+
+    /**Creates a new itemstack with the output of this recipe*/
+    public ItemStack craft(){
+        return output.copy();
+    }
+
+    /**Returns true if this matches the same stacks as the other recipe, comparing the matchers*/
+    boolean hasSameMatchers(CompiledRecipe other){
+        return input.equals(other.input) && ingredient.equals(other.ingredient);
+    }
+
+    /**Returns true if this creates the same output as the other recipe*/
+    boolean hasSameOutput(CompiledRecipe other){
+        return ItemStack.areEqual(output, other.output);
+    }
+
+    /**The recipe this has been compiled from, either a {@link CustomBrewRecipeRegister.CustomRecipe},
+     * a {@link CustomBrewRecipeRegister.CustomRecipeItems}, a {@link CustomBrewRecipeRegister.CustomRecipeComponents}
+     * or a {@link CustomBrewRecipeRegister.CustomRecipeNBTOnly}*/
+    public Object getRecipe() {
+        return recipe;
+    }
+
+    @Override
+    public StackMatcher<ItemStack, Item> getInput() {
+        return input;
+    }
+
+    @Override
+    public StackMatcher<ItemStack, Item> getIngredient() {
+        return ingredient;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledRecipe{" +
+                "recipe=" + recipe +
+                ", input=" + input +
+                ", ingredient=" + ingredient +
+                '}';
+    }
+}
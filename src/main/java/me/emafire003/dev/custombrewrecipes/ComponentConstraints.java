@@ -0,0 +1,105 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import net.minecraft.component.ComponentType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**Several components that an itemstack must have to be used in a {@link CustomBrewRecipeRegister.CustomRecipeComponents},
+ * some of them only needing to be there and some needing a certain value. Other components on the stack are ignored.
+ * <pre>{@code
+ * ComponentConstraints.builder()
+ *         .has(DataComponentTypes.CUSTOM_NAME)
+ *         .with(DataComponentTypes.RARITY, Rarity.EPIC)
+ *         .build();
+ * }</pre>
+ * When matching, the cheap checks run first (and then the ones rejecting the most stacks),
+ * so most stacks that don't match are rejected by the first check.
+ * */
+public final class ComponentConstraints {
+
+    private final List<ComponentType<?>> types;
+    /**The value of each type, or null if only its presence is checked*/
+    private final List<Object> values;
+
+    private ComponentConstraints(List<ComponentType<?>> types, List<Object> values) {
+        this.types = Collections.unmodifiableList(types);
+        this.values = Collections.unmodifiableList(values);
+    }
+
+    public static Builder builder(){
+        return new Builder();
+    }
+
+    /**The component types that must be on the stack*/
+    public List<ComponentType<?>> getTypes() {
+        return types;
+    }
+
+    /**The value of each of the {@link #getTypes()}, or null where only the presence of the type is checked*/
+    public List<Object> getValues() {
+        return values;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof ComponentConstraints that)) return false;
+        return types.equals(that.types) && values.equals(that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(types, values);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("ComponentConstraints{");
+        for(int i = 0; i < types.size(); i++){
+            if(i > 0){
+                builder.append(", ");
+            }
+            builder.append(types.get(i));
+            if(values.get(i) != null){
+                builder.append('=').append(values.get(i));
+            }
+        }
+        return builder.append('}').toString();
+    }
+
+    public static final class Builder {
+
+        private final List<ComponentType<?>> types = new ArrayList<>();
+        private final List<Object> values = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**The component type must be on the stack, with any value*/
+        public Builder has(ComponentType<?> type){
+            return add(type, null);
+        }
+
+        /**The component type must be on the stack, with this value*/
+        public <T> Builder with(ComponentType<T> type, T value){
+            return add(type, Objects.requireNonNull(value, "value"));
+        }
+
+        private Builder add(ComponentType<?> type, Object value){
+            Objects.requireNonNull(type, "type");
+            if(types.contains(type)){
+                throw new IllegalArgumentException("The component type " + type + " has already been added");
+            }
+            types.add(type);
+            values.add(value);
+            return this;
+        }
+
+        public ComponentConstraints build(){
+            return new ComponentConstraints(new ArrayList<>(types), new ArrayList<>(values));
+        }
+    }
+}
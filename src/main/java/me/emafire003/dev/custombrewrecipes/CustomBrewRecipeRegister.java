@@ -1,6 +1,6 @@
 package me.emafire003.dev.custombrewrecipes;
 
-import net.minecraft.component.Component;
+import me.emafire003.dev.custombrewrecipes.core.RecipeLookup;
 import net.minecraft.component.ComponentMap;
 import net.minecraft.component.ComponentType;
 import net.minecraft.component.DataComponentTypes;
@@ -8,20 +8,30 @@ import net.minecraft.item.Item;
 import net.minecraft.item.ItemStack;
 import net.minecraft.nbt.NbtCompound;
 import net.minecraft.nbt.NbtElement;
+import net.minecraft.util.Util;
+import net.minecraft.util.math.BlockPos;
 import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.function.IntConsumer;
 
 @SuppressWarnings("unused")
 public class CustomBrewRecipeRegister {
 
-    //public static final Logger LOGGER = LoggerFactory.getLogger("custombrewrecipes");
+    public static final Logger LOGGER = LoggerFactory.getLogger("custombrewrecipes");
 
-    private static final List<CustomRecipe<Item>> CUSTOM_RECIPES = new ArrayList<>();
-    private static final List<CustomRecipeComponents> CUSTOM_RECIPES_COMPONENTS = new ArrayList<>();
-    private static final List<CustomRecipeNBTOnly> CUSTOM_RECIPES_NBT = new ArrayList<>();
+    /**The registered recipes. Registering a recipe swaps in a new snapshot with it added,
+     * so they can be read from any thread without locking, even while a mod is registering its recipes*/
+    private static volatile RecipeSnapshot RECIPES = RecipeSnapshot.EMPTY;
+    /**On a client connected to a server, its own recipes while the ones sent by the server are used, see {@link RecipeSync}*/
+    @Nullable
+    private static RecipeSnapshot LOCAL_RECIPES;
+    /**The graph of the recipes, replaced when they change, see {@link #getBrewingGraph()}*/
+    @Nullable
+    private static volatile BrewingGraph GRAPH;
 
 
     /**Use this method to register new recipes using custom items!
@@ -32,7 +42,19 @@ public class CustomBrewRecipeRegister {
      * @param output The output item, the one that will result from this recipe
      * */
     public static void registerCustomRecipe(Item input, Item ingredient, Item output) {
-        CUSTOM_RECIPES.add(new CustomRecipe<>(input, ingredient, output));
+        add(new CustomRecipe<>(input, ingredient, output));
+    }
+
+    /**Use this method to register new recipes accepting more than one item as the input or the ingredient,
+     * like any item in a tag, without registering a recipe for each of them.
+     * Call this on initialization!
+     *
+     * @param input The input items, like {@code RecipeItems.ofTag(ItemTags.LOGS)} or {@code RecipeItems.of(Items.POTION, Items.SPLASH_POTION)}
+     * @param ingredient The ingredient items
+     * @param output The output item, the one that will result from this recipe
+     * */
+    public static void registerCustomRecipeWithItems(RecipeItems input, RecipeItems ingredient, Item output) {
+        add(new CustomRecipeItems(input, ingredient, output));
     }
 
     //TODO add a way to only register custom data, aka the old NBT, instead of all the components and stuff.
@@ -55,7 +77,7 @@ public class CustomBrewRecipeRegister {
      *      *            You can create a new component map using {@link net.minecraft.component.ComponentMap}.builder()
      * */
     public static void registerCustomRecipeWithComponents(Item input, Item ingredient, Item output, @Nullable ComponentMap input_components, @Nullable ComponentMap ingredient_components, @Nullable ComponentMap output_components) {
-        CUSTOM_RECIPES_COMPONENTS.add(new CustomRecipeComponents(input, ingredient, output, input_components, ingredient_components, output_components));
+        add(new CustomRecipeComponents(input, ingredient, output, input_components, ingredient_components, output_components));
     }
 
     /** <b>WARNING!</b> This method will save NBT to the {@link DataComponentTypes}.CUSTOM_DATA, the one used by DataPacks!
@@ -74,7 +96,7 @@ public class CustomBrewRecipeRegister {
      * @param output_nbt An NBT compound that will be attached to the output item. Use null if you don't want to add NBT to this item
      * */
     public static void registerCustomRecipeWithNbt(Item input, Item ingredient, Item output, @Nullable NbtCompound input_nbt, @Nullable NbtCompound ingredient_nbt, @Nullable NbtCompound output_nbt) {
-        CUSTOM_RECIPES_NBT.add(new CustomRecipeNBTOnly(input, ingredient, output, input_nbt, ingredient_nbt, output_nbt));
+        add(new CustomRecipeNBTOnly(input, ingredient, output, input_nbt, ingredient_nbt, output_nbt));
     }
 
     /**Use this method to register new recipes using custom items!
@@ -86,7 +108,7 @@ public class CustomBrewRecipeRegister {
      * @param output The output itemstack, the one that will result from this recipe. This should already have ComponentMap set by you.
      * */
     public static void registerCustomRecipeWithComponents(ItemStack input, ItemStack ingredient, ItemStack output) {
-        CUSTOM_RECIPES_COMPONENTS.add(new CustomRecipeComponents(input.getItem(), ingredient.getItem(), output.getItem(), input.getComponents(), ingredient.getComponents(), output.getComponents()));
+        add(new CustomRecipeComponents(input.getItem(), ingredient.getItem(), output.getItem(), input.getComponents(), ingredient.getComponents(), output.getComponents()));
     }
 
     /** <b>WARNING!</b> This method will save NBT to the {@link DataComponentTypes}.CUSTOM_DATA, the one used by DataPacks!
@@ -102,7 +124,7 @@ public class CustomBrewRecipeRegister {
      * @param output The output itemstack, the one that will result from this recipe. This should already have NBT set by you.
      * */
     public static void registerCustomRecipeWithNbt(ItemStack input, ItemStack ingredient, ItemStack output) {
-        CUSTOM_RECIPES_NBT.add(new CustomRecipeNBTOnly(input.getItem(), ingredient.getItem(), output.getItem(), input.get(DataComponentTypes.CUSTOM_DATA).copyNbt(), ingredient.get(DataComponentTypes.CUSTOM_DATA).copyNbt(), output.get(DataComponentTypes.CUSTOM_DATA).copyNbt()));
+        add(new CustomRecipeNBTOnly(input.getItem(), ingredient.getItem(), output.getItem(), input.get(DataComponentTypes.CUSTOM_DATA).copyNbt(), ingredient.get(DataComponentTypes.CUSTOM_DATA).copyNbt(), output.get(DataComponentTypes.CUSTOM_DATA).copyNbt()));
     }
 
     /**Use this method to register new recipes using custom items.
@@ -121,7 +143,7 @@ public class CustomBrewRecipeRegister {
      * @param output_components A ComponentMap that will be attached to the output item. You can use item.getComponents().add(yourstuff) or ComponentMap.builder or similar things
      * */
     public static void registerCustomRecipeWithComponentPresence(Item input, Item ingredient, Item output, @Nullable ComponentType<?> input_component_type, @Nullable ComponentType<?> ingredient_component_type, @Nullable ComponentMap output_components) {
-        CUSTOM_RECIPES_COMPONENTS.add(new CustomRecipeComponents(input, ingredient, output, ComponentMap.builder().add(input_component_type, null).build(), input_component_type, ComponentMap.builder().add(ingredient_component_type, null).build(), ingredient_component_type, output_components));
+        add(new CustomRecipeComponents(input, ingredient, output, ComponentMap.builder().add(input_component_type, null).build(), input_component_type, ComponentMap.builder().add(ingredient_component_type, null).build(), ingredient_component_type, output_components));
     }
 
     /** <b>WARNING!</b> This method will save NBT to the {@link DataComponentTypes}.CUSTOM_DATA, the one used by DataPacks!
@@ -144,10 +166,26 @@ public class CustomBrewRecipeRegister {
      * @param output_nbt An NBT compound that will be attached to the output item. Use null if you don't want to add NBT to this item
      * */
     public static void registerCustomRecipeWithNbtFiledPresence(Item input, Item ingredient, Item output, @Nullable String input_nbt_field, @Nullable String ingredient_nbt_field, @Nullable NbtCompound output_nbt) {
-        CUSTOM_RECIPES_NBT.add(new CustomRecipeNBTOnly(input, ingredient, output, input_nbt_field, ingredient_nbt_field, output_nbt));
+        add(new CustomRecipeNBTOnly(input, ingredient, output, input_nbt_field, ingredient_nbt_field, output_nbt));
     }
 
 
+    /**Use this method to register new recipes checking several components at once,
+     * some only for their presence and some for their values. Other components on the items are ignored.
+     * Call this on initialization!
+     *
+     * @param input The input item, or null to accept any item with the components
+     * @param ingredient The ingredient item, or null to accept any item with the components
+     * @param output The output item, the one that will result from this recipe
+     * @param input_constraints The components the input must have, see {@link ComponentConstraints#builder()}.
+     *                          Null to only check the item, which then can't be null
+     * @param ingredient_constraints The components the ingredient must have, or null like for the input
+     * @param output_components A {@link ComponentMap} that will be attached to the output item, or null
+     * */
+    public static void registerCustomRecipeWithComponentConstraints(@Nullable Item input, @Nullable Item ingredient, Item output, @Nullable ComponentConstraints input_constraints, @Nullable ComponentConstraints ingredient_constraints, @Nullable ComponentMap output_components) {
+        add(new CustomRecipeComponents(input, ingredient, output, input_constraints, ingredient_constraints, output_components));
+    }
+
     /** <b>WARNING!</b> This method will save NBT to the {@link DataComponentTypes}.CUSTOM_DATA, the one used by DataPacks!
      * You probably want to use {@link #registerCustomRecipeWithComponentType(Item, Item, Item, ComponentType, Object, ComponentType, Object, ComponentMap)}
      * and use your own custom components.
@@ -170,7 +208,7 @@ public class CustomBrewRecipeRegister {
      * @param output_components A {@link ComponentMap} that will be attached to the output item. Use null if you don't want to add NBT to this item
      * */
     public static <T, U> void registerCustomRecipeWithComponentType(Item input, Item ingredient, Item output, @Nullable ComponentType<T> input_component_type, @Nullable T input_component_value, @Nullable ComponentType<U> ingredient_component_type, @Nullable U ingredient_component_value, @Nullable ComponentMap output_components) {
-        CUSTOM_RECIPES_COMPONENTS.add(new CustomRecipeComponents(input, ingredient, output, ComponentMap.builder().add(input_component_type, input_component_value).build(), input_component_type, ComponentMap.builder().add(ingredient_component_type, ingredient_component_value).build(), ingredient_component_type, output_components));
+        add(new CustomRecipeComponents(input, ingredient, output, ComponentMap.builder().add(input_component_type, input_component_value).build(), input_component_type, ComponentMap.builder().add(ingredient_component_type, ingredient_component_value).build(), ingredient_component_type, output_components));
     }
 
     /**Use this method to register new recipes using custom items.
@@ -191,112 +229,164 @@ public class CustomBrewRecipeRegister {
      * @param output_nbt An NBT compound that will be attached to the output item. Use null if you don't want to add NBT to this item
      * */
     public static void registerCustomRecipeNbtField(Item input, Item ingredient, Item output, @Nullable String input_nbt_field, @Nullable NbtElement input_nbt_value, @Nullable String ingredient_nbt_field, @Nullable NbtElement ingredient_nbt_value, @Nullable NbtCompound output_nbt) {
-        CUSTOM_RECIPES_NBT.add(new CustomRecipeNBTOnly(input, ingredient, output, input_nbt_value, input_nbt_field, ingredient_nbt_value, ingredient_nbt_field, output_nbt));
+        add(new CustomRecipeNBTOnly(input, ingredient, output, input_nbt_value, input_nbt_field, ingredient_nbt_value, ingredient_nbt_field, output_nbt));
     }
 
 
-    /**This checks the all the components from the item, and if any of them are either not
-     * present or have a different value from the other component set, returns false,
-     * true otherwise*/
-    private static boolean checkSameComponents(ItemStack item, ComponentMap other){
-        for(Component<?> component : item.getComponents().stream().toList()){
-            if(!other.contains(component.type())){
-                return false;
-            }else if(!Objects.equals(other.get(component.type()), component.value())){
-                return false;
-            }
+    //Registering is synchronized so two recipes registered at the same time don't replace each other's snapshot,
+    //reading never is
+    private static void add(CustomRecipe<Item> recipe){
+        CompiledRecipe compiled = CompiledRecipe.of(recipe);
+        synchronized (CustomBrewRecipeRegister.class){
+            RECIPES = RECIPES.with(recipe, compiled);
         }
-        return true;
     }
 
-    /**Returns true if only the default components are present on the item
-     * <p>
-     * Aka the old NBT not present*/
-    private static boolean checkDefaultComponentsOnly(ItemStack item){
-        return checkSameComponents(item, item.getDefaultComponents());
+    private static void add(CustomRecipeItems recipe){
+        CompiledRecipe compiled = CompiledRecipe.of(recipe);
+        synchronized (CustomBrewRecipeRegister.class){
+            RECIPES = RECIPES.with(recipe, compiled);
+        }
     }
 
-    /**Used internally to check if an itemstack and an item share the same Component data.
-     * This also applies to not having custom component data.
-     * This is also used to check if the itemstack has a ComponentType present,
-     * but not necessarily have the same values as well
-     *<p>
-     * Generally you DON'T NEED TO USE IT
-     *
-     * @param item The itemstack that is used and should have nbt data
-     * @param recipe_item The item from the recipe
-     * @param recipe_components A ComponentMap value that will need to correspond either to the whole ComponentMap of the item, or to a value stored in a filed if the next parameter isn't null
-     * @param recipe_component_type A ComponentType representing the component type that has to be present on the item if the above parameter is null, or if isn't the filed to check the value of.
-     *
-     * @return true if the item from the stack and the one from the recipe have the same nbt, or don't have nbt.
-     * */
-    public static boolean equalsComponents(ItemStack item, Item recipe_item, @Nullable ComponentMap recipe_components, @Nullable ComponentType<?> recipe_component_type){
-        //Checks if they item doesn't have components and if the recipe components & types are null, in which case it returns true only if the item and the one on the recipe are the same type
-        if(checkDefaultComponentsOnly(item) && (recipe_components == null && recipe_component_type == null)){
-
-            return item.isOf(recipe_item);
-        }
-
-        //If the recipe component type parameter is not null it means it wants to check for the presence
-        // of a filed/component (and potentially its contents)
-        if(recipe_component_type != null){
-            //Checks if there is a ComponentMap, in which case it means a check for the value is needed as well
-            //(as long as there is only one component. not necessarily.) TODO maybe I should add a check for multiple components with values
-            //The recipe components can be null since they are user specified, while the item components can't. At most they will be empty
-            if(recipe_components != null){
-                if(item.contains(recipe_component_type)){
-                    //No need to check if it's null because the recipe's value shouldn't be null in here.
-                    return item.getComponents().get(recipe_component_type).equals(recipe_components.get(recipe_component_type));
-                }
-                return false;
-            }
-            //If the ComponentMap is null then only check for the presence of the field.
-            return item.getComponents().contains(recipe_component_type);
+    private static void add(CustomRecipeComponents recipe){
+        CompiledRecipe compiled = CompiledRecipe.of(recipe);
+        synchronized (CustomBrewRecipeRegister.class){
+            RECIPES = RECIPES.with(recipe, compiled);
         }
+    }
 
-        //If we are here it means that Component Types have been checked already,
-        //so if the component value is null and the item does not have components we simply check if the item is the same
-        if(checkDefaultComponentsOnly(item) && recipe_components == null){
-            //LOGGER.info("Item is of: " + item.isOf(recipe_item));
-            return item.isOf(recipe_item);
+    private static void add(CustomRecipeNBTOnly recipe){
+        CompiledRecipe compiled = CompiledRecipe.of(recipe);
+        synchronized (CustomBrewRecipeRegister.class){
+            RECIPES = RECIPES.with(recipe, compiled);
         }
+    }
 
-        //If the thing is null, it means it wants to check for the whole nbt compound to be equal
-        if(recipe_components == null){
-            //Since only the recipe_nbt is false but the item still has it, they can't be the same.
-            return false;
+    /**Starts a batch of recipes, to register a lot of them at once.
+     * This is much faster than registering them one by one, since the recipes
+     * are only published once, see {@link RecipeBatch}.*/
+    public static RecipeBatch batch(){
+        return new RecipeBatch();
+    }
+
+    /**Adds all the compiled recipes of a batch at once*/
+    static void addAll(RecipeSet recipes){
+        synchronized (CustomBrewRecipeRegister.class){
+            RECIPES = RECIPES.withAll(recipes);
         }
+    }
 
+    /**Builds the lookup of the current recipes from code together with the given datapack recipes,
+     * compiling the ones using item tags with the tags being reloaded.
+     * This is the slow part of reloading the datapack recipes, so it's done on a worker thread.*/
+    static RecipeSnapshot.Prepared prepareDatapackRecipes(RecipeSet datapack, ItemTagContents tags){
+        return RECIPES.prepareDatapack(datapack, tags);
+    }
 
-        if(checkHasComponents(item, recipe_components)){
-            return item.isOf(recipe_item);
+    /**Replaces the recipes loaded from datapacks with the prepared ones, all at once*/
+    static void setDatapackRecipes(RecipeSnapshot.Prepared prepared){
+        synchronized (CustomBrewRecipeRegister.class){
+            RECIPES = RECIPES.withDatapack(prepared);
         }
-        return false;
     }
 
+    /**Used (internally) to compile again the recipes using item tags, every time the item tags are (re)loaded.
+     * <p>
+     * The recipes and their lookup are compiled on a worker thread and swapped in once ready, so the thread loading the tags
+     * doesn't wait for them; until then the recipes keep using the previous tags. After a datapack reload there is
+     * usually nothing to do, since {@link DatapackRecipeLoader} has already compiled the recipes with the new tags.*/
+    public static void reloadTags(){
+        Util.getMainWorkerExecutor().execute(CustomBrewRecipeRegister::recompileTags);
+    }
 
-    /**Checks if the components present in "components" are also
-     * present in the item and if they have the same value.
-     * This differs from checkSameComponents since you can specify like only
-     * one or two components instead of all of them
-     *
-     * @param item The item
-     * @param components The components that have to be on the item
-     * @return Returns false if the components aren't present on the item, or if they have different values
-     */
-    private static boolean checkHasComponents(ItemStack item, ComponentMap components){
-        for(Component<?> component : components.stream().toList()){
-            if(!item.contains(component.type())){
-                return false;
-            }else if(!Objects.equals(item.get(component.type()), component.value())){
-                return false;
+    private static void recompileTags(){
+        while(true){
+            RecipeSnapshot base = RECIPES;
+            RecipeSnapshot recompiled = base.withTagsRecompiled(ItemTagContents.LOADED);
+            if(recompiled == base){
+                return;
+            }
+            recompiled.getLookup();
+            synchronized (CustomBrewRecipeRegister.class){
+                //If the recipes changed meanwhile, they are compiled again so the new ones aren't lost
+                if(RECIPES == base){
+                    RECIPES = recompiled;
+                    return;
+                }
+            }
+        }
+    }
+
+    /**All the recipes, the ones from code followed by the ones from datapacks*/
+    static RecipeSet getRecipeSet(){
+        return RECIPES.all();
+    }
+
+    /**The recipes sent by the server, or null if the local ones are being used*/
+    @Nullable
+    static RecipeSet getSyncedRecipes(){
+        synchronized (CustomBrewRecipeRegister.class){
+            return LOCAL_RECIPES != null ? RECIPES.all() : null;
+        }
+    }
+
+    /**Replaces the recipes with the ones sent by the server, keeping the local ones aside*/
+    static void setSyncedRecipes(RecipeSet recipes){
+        synchronized (CustomBrewRecipeRegister.class){
+            if(LOCAL_RECIPES == null){
+                LOCAL_RECIPES = RECIPES;
+            }
+            RECIPES = RECIPES.syncedWith(recipes);
+        }
+    }
+
+    /**Goes back to the local recipes, if the ones sent by a server are being used*/
+    static void restoreLocalRecipes(){
+        synchronized (CustomBrewRecipeRegister.class){
+            if(LOCAL_RECIPES != null){
+                RECIPES = RECIPES.replacedWith(LOCAL_RECIPES.code, LOCAL_RECIPES.datapack);
+                LOCAL_RECIPES = null;
             }
         }
-        return true;
     }
 
+    /**Builds the lookup indexes of the registered recipes right away, instead of on the first lookup.
+     * Call this at the end of your initialization, after registering your recipes.
+     * <p>
+     * Registering more recipes later (for example when reloading them) still works,
+     * but their indexes will be built again from scratch.
+     * <p>
+     * This also logs the recipes that can never be used, because they are duplicates of an earlier recipe
+     * or an earlier broader recipe always matches first. They are left out of the indexes.*/
+    public static void freeze(){
+        RECIPES.getLookup();
+    }
 
+    /**Returns true if the lookup indexes of the registered recipes are built,
+     * which means no recipe has been registered since {@link #freeze()} or the last lookup*/
+    public static boolean isFrozen(){
+        return RECIPES.hasLookup();
+    }
 
+    /**Used internally to check if an itemstack and an item share the same Component data.
+     * This also applies to not having custom component data.
+     * This is also used to check if the itemstack has a ComponentType present,
+     * but not necessarily have the same values as well
+     *<p>
+     * Generally you DON'T NEED TO USE IT, registered recipes are already compiled
+     * into an {@link me.emafire003.dev.custombrewrecipes.core.StackMatcher} that does the same check.
+     *
+     * @param item The itemstack that is used and should have nbt data
+     * @param recipe_item The item from the recipe
+     * @param recipe_components A ComponentMap value that will need to correspond either to the whole ComponentMap of the item, or to a value stored in a filed if the next parameter isn't null
+     * @param recipe_component_type A ComponentType representing the component type that has to be present on the item if the above parameter is null, or if isn't the filed to check the value of.
+     *
+     * @return true if the item from the stack and the one from the recipe have the same nbt, or don't have nbt.
+     * */
+    public static boolean equalsComponents(ItemStack item, Item recipe_item, @Nullable ComponentMap recipe_components, @Nullable ComponentType<?> recipe_component_type){
+        return ItemStackMatchers.ofComponents(recipe_item, recipe_components, recipe_component_type).matches(item);
+    }
 
     /**Used (internally) to check if an item is a valid input/base, like
      * a bottle or an awkward potion.
@@ -305,22 +395,19 @@ public class CustomBrewRecipeRegister {
      * @param item The item to test as a valid input
      * @return true if the item is a valid input*/
     public static boolean isValidCustomInput(ItemStack item){
-        for(CustomRecipe<Item> recipe : CUSTOM_RECIPES){
-            if(recipe.input.equals(item.getItem())){
-                return true;
-            }
-        }
-        for(CustomRecipeComponents recipe : CUSTOM_RECIPES_COMPONENTS){
-            if(equalsComponents(item, recipe.input, recipe.ingredient_components, recipe.ingredient_component_type)){
-                return true;
-            }
-        }
-        for(CustomRecipeNBTOnly recipe : CUSTOM_RECIPES_NBT){
-            if(equalsNbt(item, recipe.input, recipe.ingredient_nbt, recipe.ingredient_nbt_field)){
-                return true;
-            }
+        return isValidCustomInput(item, RecipeMetrics.EntryPoint.IS_VALID);
+    }
+
+    /**Same as {@link #isValidCustomInput(ItemStack)}, recorded as coming from
+     * the given entry point in the {@link RecipeMetrics}*/
+    public static boolean isValidCustomInput(ItemStack item, RecipeMetrics.EntryPoint entry_point){
+        if(!RecipeMetrics.isEnabled()){
+            return getLookup().isInput(item);
         }
-        return false;
+        long start = System.nanoTime();
+        boolean valid = getLookup().isInput(item, RecipeMetrics.candidates(entry_point));
+        RecipeMetrics.record(entry_point, null, start);
+        return valid;
     }
 
 
@@ -328,6 +415,8 @@ public class CustomBrewRecipeRegister {
      * This also applies to not having nbt data.
      * This is also used to check if the itemstack has an NBT field present,
      * but not necessarily have the same values as well
+     * <p>
+     * Registered recipes are already compiled into an {@link me.emafire003.dev.custombrewrecipes.core.StackMatcher} that does the same check.
      *
      * @param item The itemstack that is used and should have nbt data
      * @param recipe_item The item from the recipe
@@ -337,67 +426,173 @@ public class CustomBrewRecipeRegister {
      * @return true if the item from the stack and the one from the recipe have the same nbt, or don't have nbt.
      * */
     public static boolean equalsNbt(ItemStack item, Item recipe_item, @Nullable NbtElement recipe_nbt_value, @Nullable String recipe_nbt_field){
+        return ItemStackMatchers.ofNbt(recipe_item, recipe_nbt_value, recipe_nbt_field).matches(item);
+    }
 
-        //Checks if they item doesn't have NBT and if the recipe nbt & field are null, in which case it returns true only if the item and the one on the recipe are the same type
-        if(!item.contains(DataComponentTypes.CUSTOM_DATA) && (recipe_nbt_value == null && recipe_nbt_field == null)){
-            return item.isOf(recipe_item);
+    /**Used (internally) to get the first custom recipe that matches the given ingredient and input.
+     * Recipes using only items are checked first, then the ones using sets of items or tags,
+     * then the ones using components and lastly the ones using nbt.
+     *
+     * @param ingredient The ingredient itemstack, like spider's eye, glowstone dust ecc
+     * @param input The input itemstack, the "base" item like a water_bottle for normal recipes
+     * @return The matching recipe, or null if no custom recipe matches*/
+    @Nullable
+    public static CompiledRecipe findCustomRecipe(ItemStack ingredient, ItemStack input){
+        return findCustomRecipe(ingredient, input, RecipeMetrics.EntryPoint.HAS_RECIPE);
+    }
+
+    /**Same as {@link #findCustomRecipe(ItemStack, ItemStack)}, recorded as coming from
+     * the given entry point in the {@link RecipeMetrics}*/
+    @Nullable
+    public static CompiledRecipe findCustomRecipe(ItemStack ingredient, ItemStack input, RecipeMetrics.EntryPoint entry_point){
+        return findCustomRecipe(ingredient, input, entry_point, null);
+    }
+
+    /**Same as {@link #findCustomRecipe(ItemStack, ItemStack)}, recorded as coming from
+     * the given entry point in the {@link RecipeMetrics} and in a {@link RecipeLookupEvent}
+     *
+     * @param pos The position of the brewing stand the lookup is for, if known
+     * */
+    @Nullable
+    public static CompiledRecipe findCustomRecipe(ItemStack ingredient, ItemStack input, RecipeMetrics.EntryPoint entry_point, @Nullable BlockPos pos){
+        boolean metrics = RecipeMetrics.isEnabled();
+        if(!metrics && !RecipeLookupEvent.isTypeEnabled()){
+            return getLookup().find(input, ingredient);
+        }
+        long start = System.nanoTime();
+        RecipeLookupEvent event = null;
+        IntConsumer candidates = metrics ? RecipeMetrics.candidates(entry_point) : null;
+        if(RecipeLookupEvent.isTypeEnabled()){
+            event = new RecipeLookupEvent();
+            event.begin();
+            candidates = candidates != null ? candidates.andThen(event) : event;
+        }
+        CompiledRecipe recipe = getLookup().find(input, ingredient, candidates);
+        if(event != null){
+            event.finish(entry_point, input, ingredient, recipe, pos);
         }
+        if(metrics){
+            RecipeMetrics.record(entry_point, recipe, start);
+        }
+        return recipe;
+    }
 
-        //If the string is not null it means it wants to check for the presence of a filed (and potentially its contents)
-        if(recipe_nbt_field != null){
+    /**Used (internally) to get the first custom recipe for each of the potion slots of a brewing stand,
+     * like calling {@link #findCustomRecipe(ItemStack, ItemStack, RecipeMetrics.EntryPoint, BlockPos)} for each slot,
+     * but matching the ingredient only once.
+     * <p>
+     * While the {@link RecipeMetrics} or the {@link RecipeLookupEvent} are enabled, each slot is looked up
+     * and recorded on its own, so the numbers are the same as before.
+     *
+     * @param ingredient The ingredient itemstack
+     * @param inputs The input itemstacks, the null ones are skipped
+     * @param found Gets the matching recipe of each input at the same position, or null if no custom recipe matches it
+     * @param pos The position of the brewing stand the lookup is for, if known
+     * */
+    public static void findCustomRecipes(ItemStack ingredient, ItemStack[] inputs, CompiledRecipe[] found, RecipeMetrics.EntryPoint entry_point, @Nullable BlockPos pos){
+        if(!RecipeMetrics.isEnabled() && !RecipeLookupEvent.isTypeEnabled()){
+            getLookup().findEach(ingredient, inputs, found, null);
+            return;
+        }
+        for(int i = 0; i < inputs.length; i++){
+            found[i] = inputs[i] != null ? findCustomRecipe(ingredient, inputs[i], entry_point, pos) : null;
+        }
+    }
 
-            //Checks if there is an NbtElement, in which case it means a check for the value is needed as well
-            if(recipe_nbt_value != null){
-                if(item.contains(DataComponentTypes.CUSTOM_DATA) && item.get(DataComponentTypes.CUSTOM_DATA).copyNbt() != null && item.get(DataComponentTypes.CUSTOM_DATA).copyNbt().contains(recipe_nbt_field)){
-                    //No need to check if it's null because the recipe's value surely isn't null in here.
-                    return Objects.requireNonNull(item.get(DataComponentTypes.CUSTOM_DATA).copyNbt().get(recipe_nbt_field)).equals(recipe_nbt_value);
-                }
-                return false;
-            }
+    /**Used (internally) to get the output of the first custom recipe
+     * that matches the given ingredient and input.
+     *
+     * @param ingredient The ingredient itemstack, like spider's eye, glowstone dust ecc
+     * @param input The input itemstack, the "base" item like a water_bottle for normal recipes
+     * @return A new itemstack with the output of the recipe, or null if no custom recipe matches*/
+    @Nullable
+    public static ItemStack craftCustomRecipe(ItemStack ingredient, ItemStack input){
+        CompiledRecipe recipe = findCustomRecipe(ingredient, input, RecipeMetrics.EntryPoint.CRAFT);
+        return recipe != null ? recipe.craft() : null;
+    }
 
-            //If the NbtElement is null then only check for the presence of the field.
+    /**Used (internally) to check if there is a custom recipe for the given input and ingredient.
+     *
+     * @param input The input itemstack, the "base" item like a water_bottle for normal recipes
+     * @param ingredient The ingredient itemstack, like spider's eye, glowstone dust ecc
+     * @return true if a custom recipe matches both itemstacks*/
+    public static boolean hasCustomRecipe(ItemStack input, ItemStack ingredient){
+        return findCustomRecipe(ingredient, input, RecipeMetrics.EntryPoint.HAS_RECIPE) != null;
+    }
 
-            if(item.contains(DataComponentTypes.CUSTOM_DATA) && item.get(DataComponentTypes.CUSTOM_DATA).copyNbt() != null){
-                return item.get(DataComponentTypes.CUSTOM_DATA).copyNbt().contains(recipe_nbt_field);
-            }
-            //If the string is not null, but it's not present on the item return false.
-            return false;
+    /**Used (internally) to check if an itemstack is the ingredient of any custom recipe.
+     *
+     * @param stack The itemstack to test as an ingredient
+     * @return true if the itemstack is a valid ingredient*/
+    public static boolean isCustomRecipeIngredient(ItemStack stack){
+        if(!RecipeMetrics.isEnabled()){
+            return getLookup().isIngredient(stack);
         }
+        long start = System.nanoTime();
+        RecipeMetrics.EntryPoint entry_point = RecipeMetrics.EntryPoint.IS_VALID_INGREDIENT;
+        boolean valid = getLookup().isIngredient(stack, RecipeMetrics.candidates(entry_point));
+        RecipeMetrics.record(entry_point, null, start);
+        return valid;
+    }
 
-        //If we are here it means that strings have been checked already,
-        //so if the NBT value is null and the item does not have nbt we simply check if the item is the same
-        if((!item.contains(DataComponentTypes.CUSTOM_DATA)|| item.get(DataComponentTypes.CUSTOM_DATA).copyNbt()==null) && recipe_nbt_value == null){
-            return item.isOf(recipe_item);
-        }
+    /**Gets the lookup index and prefilters of the registered recipes, building them
+     * again if a recipe has been registered since the last time*/
+    private static RecipeLookup<ItemStack, Item, CompiledRecipe> getLookup(){
+        return RECIPES.getLookup();
+    }
 
-        //If the thing is null, it means it wants to check for the whole nbt compound to be equal
-        if(recipe_nbt_value == null){
-            //Since only the recipe_nbt_is false but the item still has it, they can't be the same.
-            return false;
-        }
-        if(recipe_nbt_value.equals(item.get(DataComponentTypes.CUSTOM_DATA).copyNbt())){
-            return item.isOf(recipe_item);
+    /**Returns the graph of what the registered recipes can brew, to find out what an item can become
+     * and in how many brews, see {@link BrewingGraph}.
+     * <p>
+     * The graph doesn't change when more recipes are registered, call this again to see them.
+     * The new graph keeps what the old one found that the changed recipes don't affect.*/
+    public static BrewingGraph getBrewingGraph(){
+        RecipeLookup<ItemStack, Item, CompiledRecipe> lookup = getLookup();
+        BrewingGraph graph = GRAPH;
+        if(graph == null || !graph.isFor(lookup)){
+            //Two threads may both build it, the graph of the current recipes is the same either way
+            graph = graph == null ? BrewingGraph.of(lookup) : graph.rebuiltFor(lookup);
+            GRAPH = graph;
         }
-        return false;
+        return graph;
     }
 
+    /**Changes every time the registered recipes change, used to know when cached lookups are outdated*/
+    static int getGeneration(){
+        return RECIPES.generation;
+    }
 
-
+    /**Returns the recipes registered with items only, including the ones loaded from datapacks.
+     * The list can't be modified and doesn't change when more recipes are registered, call this again to see them*/
     public static List<CustomRecipe<Item>> getCustomRecipes(){
-        return CUSTOM_RECIPES;
+        return RECIPES.all().recipes;
     }
 
+    /**Returns the recipes registered with sets of items or tags, including the ones loaded from datapacks.
+     * The list can't be modified and doesn't change when more recipes are registered, call this again to see them*/
+    public static List<CustomRecipeItems> getCustomRecipesItems(){
+        return RECIPES.all().recipes_items;
+    }
+
+    /**Returns the recipes registered with components, including the ones loaded from datapacks.
+     * The list can't be modified and doesn't change when more recipes are registered, call this again to see them*/
     public static List<CustomRecipeComponents> getCustomRecipesComponents(){
-        return CUSTOM_RECIPES_COMPONENTS;
+        return RECIPES.all().recipes_components;
     }
 
+    /**Returns the recipes registered with nbt, including the ones loaded from datapacks.
+     * The list can't be modified and doesn't change when more recipes are registered, call this again to see them*/
     public static List<CustomRecipeNBTOnly> getCustomRecipesNbt(){
-        return CUSTOM_RECIPES_NBT;
+        return RECIPES.all().recipes_nbt;
     }
 
     public record CustomRecipe<T>(T input, T ingredient, T output) {
     }
 
+    /**A recipe accepting any of some items as the input and the ingredient, see {@link RecipeItems}*/
+    public record CustomRecipeItems(RecipeItems input, RecipeItems ingredient, Item output) {
+    }
+
     public static class CustomRecipeComponents {
         public Item input;
         public Item ingredient;
@@ -412,6 +607,10 @@ public class CustomBrewRecipeRegister {
         public ComponentType<?> input_component_type;
         @Nullable
         public ComponentType<?> ingredient_component_type;
+        @Nullable
+        public ComponentConstraints input_constraints;
+        @Nullable
+        public ComponentConstraints ingredient_constraints;
 
         public CustomRecipeComponents(Item input, Item ingredient, Item output){
             this.input = input;
@@ -448,6 +647,17 @@ public class CustomBrewRecipeRegister {
             this.output_components = output_components;
         }
 
+        /**A recipe checking several components, see {@link ComponentConstraints}.
+         * The input and the ingredient can be null to accept any item, as long as it has the components*/
+        public CustomRecipeComponents(@Nullable Item input, @Nullable Item ingredient, Item output, @Nullable ComponentConstraints input_constraints, @Nullable ComponentConstraints ingredient_constraints, @Nullable ComponentMap output_components){
+            this.input = input;
+            this.ingredient = ingredient;
+            this.output = output;
+            this.input_constraints = input_constraints;
+            this.ingredient_constraints = ingredient_constraints;
+            this.output_components = output_components;
+        }
+
         @Override
         public String toString() {
             return "CustomRecipeComponents{" +
@@ -459,8 +669,27 @@ public class CustomBrewRecipeRegister {
                     ", output_components=" + output_components +
                     ", input_component_type=" + input_component_type +
                     ", ingredient_component_type=" + ingredient_component_type +
+                    ", input_constraints=" + input_constraints +
+                    ", ingredient_constraints=" + ingredient_constraints +
                     '}';
         }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CustomRecipeComponents that)) return false;
+            return input == that.input && ingredient == that.ingredient && output == that.output
+                    && Objects.equals(input_components, that.input_components) && Objects.equals(ingredient_components, that.ingredient_components)
+                    && Objects.equals(output_components, that.output_components) && input_component_type == that.input_component_type
+                    && ingredient_component_type == that.ingredient_component_type && Objects.equals(input_constraints, that.input_constraints)
+                    && Objects.equals(ingredient_constraints, that.ingredient_constraints);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(input, ingredient, output, input_components, ingredient_components, output_components,
+                    input_component_type, ingredient_component_type, input_constraints, ingredient_constraints);
+        }
     }
 
     public static class CustomRecipeNBTOnly {
@@ -513,6 +742,34 @@ public class CustomBrewRecipeRegister {
             this.output_nbt = output_nbt;
         }
 
+        @Override
+        public String toString() {
+            return "CustomRecipeNBTOnly{" +
+                    "input=" + input +
+                    ", ingredient=" + ingredient +
+                    ", output=" + output +
+                    ", input_nbt=" + input_nbt +
+                    ", ingredient_nbt=" + ingredient_nbt +
+                    ", output_nbt=" + output_nbt +
+                    ", input_nbt_field=" + input_nbt_field +
+                    ", ingredient_nbt_field=" + ingredient_nbt_field +
+                    '}';
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof CustomRecipeNBTOnly that)) return false;
+            return input == that.input && ingredient == that.ingredient && output == that.output
+                    && Objects.equals(input_nbt, that.input_nbt) && Objects.equals(ingredient_nbt, that.ingredient_nbt)
+                    && Objects.equals(output_nbt, that.output_nbt) && Objects.equals(input_nbt_field, that.input_nbt_field)
+                    && Objects.equals(ingredient_nbt_field, that.ingredient_nbt_field);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(input, ingredient, output, input_nbt, ingredient_nbt, output_nbt, input_nbt_field, ingredient_nbt_field);
+        }
     }
 
 }
\ No newline at end of file
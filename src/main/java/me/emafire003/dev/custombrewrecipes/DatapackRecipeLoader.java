@@ -0,0 +1,151 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.mojang.serialization.JsonOps;
+import net.minecraft.item.Item;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKey;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.RegistryOps;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.tag.TagGroupLoader;
+import net.minecraft.resource.Resource;
+import net.minecraft.resource.ResourceManager;
+import net.minecraft.resource.ResourceReloader;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.profiler.Profiler;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**Loads the recipes of {@link DatapackRecipeParser} when the datapacks are (re)loaded.
+ * <p>
+ * The files are split in chunks that are read, parsed and compiled in parallel on the worker threads,
+ * and the lookup of the new recipes is built there too. The recipes using item tags are compiled with the tags
+ * of the datapacks being loaded, read here too, rather than with the ones still in the item registry.
+ * The server thread only has to swap in the result,
+ * so a reload with a lot of recipes doesn't stall it.
+ * The recipes keep the order of their files (sorted by id) no matter which thread handled them.
+ * An invalid recipe is logged and skipped, without affecting the others.
+ * */
+public final class DatapackRecipeLoader implements ResourceReloader {
+
+    /**Below this many files per chunk, splitting them more costs more than it saves*/
+    private static final int MIN_CHUNK_SIZE = 16;
+
+    private final DynamicRegistryManager registries;
+
+    public DatapackRecipeLoader(DynamicRegistryManager registries) {
+        this.registries = registries;
+    }
+
+    @Override
+    public CompletableFuture<Void> reload(Synchronizer synchronizer, ResourceManager manager, Profiler prepareProfiler,
+                                          Profiler applyProfiler, Executor prepareExecutor, Executor applyExecutor) {
+        CompletableFuture<ItemTagContents> tags = CompletableFuture.supplyAsync(() -> loadTags(manager), prepareExecutor);
+        return CompletableFuture.supplyAsync(() -> {
+                    List<Map.Entry<Identifier, Resource>> files = new ArrayList<>(
+                            manager.findResources(DatapackRecipeParser.DIRECTORY, id -> id.getPath().endsWith(".json")).entrySet());
+                    files.sort(Map.Entry.comparingByKey(Comparator.comparing(Identifier::toString)));
+                    return files;
+                }, prepareExecutor)
+                .thenCompose(files -> tags.thenCompose(loaded_tags -> loadAll(files, loaded_tags, prepareExecutor)
+                        .thenApplyAsync(recipes -> {
+                            CustomBrewRecipeRegister.LOGGER.info("Loaded {} brewing recipes from datapacks", recipes.size());
+                            return CustomBrewRecipeRegister.prepareDatapackRecipes(recipes, loaded_tags);
+                        }, prepareExecutor)))
+                .thenCompose(synchronizer::whenPrepared)
+                .thenAcceptAsync(CustomBrewRecipeRegister::setDatapackRecipes, applyExecutor);
+    }
+
+    @Override
+    public String getName() {
+        return "CustomBrewRecipes datapack recipes";
+    }
+
+    /**Reads the item tags of the datapacks being loaded, like the server does when it reloads them.
+     * The item registry only gets them on the server thread once everything is loaded, after the recipes
+     * using them would have been compiled with the old ones*/
+    private static ItemTagContents loadTags(ResourceManager manager){
+        return ItemTagContents.of(new TagGroupLoader<RegistryEntry<Item>>(
+                id -> Registries.ITEM.getEntry(RegistryKey.of(RegistryKeys.ITEM, id)), RegistryKeys.getTagPath(RegistryKeys.ITEM)).load(manager));
+    }
+
+    /**Loads the files in chunks on the executor, then puts the chunks back together in order*/
+    private CompletableFuture<RecipeSet> loadAll(List<Map.Entry<Identifier, Resource>> files, ItemTagContents tags, Executor executor){
+        RegistryOps<JsonElement> ops = registries.getOps(JsonOps.INSTANCE);
+        int chunks = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), files.size() / MIN_CHUNK_SIZE));
+        List<CompletableFuture<RecipeSet>> loading = new ArrayList<>(chunks);
+        for(int i = 0; i < chunks; i++){
+            List<Map.Entry<Identifier, Resource>> chunk = files.subList(files.size() * i / chunks, files.size() * (i + 1) / chunks);
+            loading.add(CompletableFuture.supplyAsync(() -> load(chunk, ops, tags), executor));
+        }
+        return CompletableFuture.allOf(loading.toArray(new CompletableFuture[0])).thenApply(v -> {
+            RecipeSet recipes = RecipeSet.EMPTY;
+            for(CompletableFuture<RecipeSet> chunk : loading){
+                recipes = recipes.withAll(chunk.join());
+            }
+            return recipes;
+        });
+    }
+
+    private static RecipeSet load(List<Map.Entry<Identifier, Resource>> files, RegistryOps<JsonElement> ops, ItemTagContents tags){
+        List<CustomBrewRecipeRegister.CustomRecipe<Item>> recipes = new ArrayList<>();
+        List<CustomBrewRecipeRegister.CustomRecipeItems> recipes_items = new ArrayList<>();
+        List<CustomBrewRecipeRegister.CustomRecipeComponents> recipes_components = new ArrayList<>();
+        List<CustomBrewRecipeRegister.CustomRecipeNBTOnly> recipes_nbt = new ArrayList<>();
+        List<CompiledRecipe> compiled = new ArrayList<>();
+        List<CompiledRecipe> compiled_items = new ArrayList<>();
+        List<CompiledRecipe> compiled_components = new ArrayList<>();
+        List<CompiledRecipe> compiled_nbt = new ArrayList<>();
+        for(Map.Entry<Identifier, Resource> file : files){
+            List<JsonElement> elements = new ArrayList<>();
+            try(Reader reader = file.getValue().getReader()){
+                JsonElement json = JsonParser.parseReader(reader);
+                if(json.isJsonArray()){
+                    json.getAsJsonArray().forEach(elements::add);
+                }else{
+                    elements.add(json);
+                }
+            }catch (Exception e){
+                CustomBrewRecipeRegister.LOGGER.error("Couldn't read brewing recipes {} from pack {}: {}", file.getKey(), file.getValue().getPackId(), e.getMessage());
+                continue;
+            }
+            for(int i = 0; i < elements.size(); i++){
+                try{
+                    if(!elements.get(i).isJsonObject()){
+                        throw new JsonParseException("Expected a recipe object");
+                    }
+                    //Compiled here too, so the recipes that can't be are skipped like the ones that can't be parsed
+                    Object recipe = DatapackRecipeParser.parse(elements.get(i).getAsJsonObject(), ops);
+                    if(recipe instanceof CustomBrewRecipeRegister.CustomRecipeItems items){
+                        compiled_items.add(CompiledRecipe.of(items, tags));
+                        recipes_items.add(items);
+                    }else if(recipe instanceof CustomBrewRecipeRegister.CustomRecipeComponents components){
+                        compiled_components.add(CompiledRecipe.of(components));
+                        recipes_components.add(components);
+                    }else if(recipe instanceof CustomBrewRecipeRegister.CustomRecipeNBTOnly nbt){
+                        compiled_nbt.add(CompiledRecipe.of(nbt));
+                        recipes_nbt.add(nbt);
+                    }else{
+                        @SuppressWarnings("unchecked")
+                        CustomBrewRecipeRegister.CustomRecipe<Item> plain = (CustomBrewRecipeRegister.CustomRecipe<Item>) recipe;
+                        compiled.add(CompiledRecipe.of(plain));
+                        recipes.add(plain);
+                    }
+                }catch (RuntimeException e){
+                    CustomBrewRecipeRegister.LOGGER.error("Skipping invalid brewing recipe {} (#{}) from pack {}: {}", file.getKey(), i, file.getValue().getPackId(), e.getMessage());
+                }
+            }
+        }
+        return new RecipeSet(recipes, recipes_items, recipes_components, recipes_nbt, compiled, compiled_items, compiled_components, compiled_nbt);
+    }
+}
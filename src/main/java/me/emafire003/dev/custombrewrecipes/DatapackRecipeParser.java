@@ -0,0 +1,207 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.mojang.brigadier.StringReader;
+import com.mojang.brigadier.exceptions.CommandSyntaxException;
+import net.minecraft.component.Component;
+import net.minecraft.component.ComponentMap;
+import net.minecraft.component.ComponentType;
+import net.minecraft.item.Item;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.StringNbtReader;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.RegistryOps;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+import net.minecraft.util.JsonHelper;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**Reads the brewing recipes defined in datapacks, in {@code data/<namespace>/custom_brewing/}.
+ * <p>
+ * Every recipe has a {@code type} and the {@code input}, {@code ingredient} and {@code output} item ids.
+ * The input and ingredient can be left out by the types that don't check the item.
+ * The other fields depend on the type, and match the methods of {@link CustomBrewRecipeRegister}:
+ * <ul>
+ *     <li>{@code plain}: nothing else</li>
+ *     <li>{@code items}: the input and the ingredient can also be a tag like {@code "#minecraft:logs"}, or an array of item ids</li>
+ *     <li>{@code components}: {@code input_components}, {@code ingredient_components} and {@code output_components},
+ *     all optional, written like the components of an item stack</li>
+ *     <li>{@code component_presence}: {@code input_component} and {@code ingredient_component} with the id of a component type,
+ *     and {@code output_components}</li>
+ *     <li>{@code component_value}: like component_presence, plus {@code input_value} and {@code ingredient_value}</li>
+ *     <li>{@code component_constraints}: {@code input_has} and {@code ingredient_has} with arrays of component type ids that must be there,
+ *     {@code input_values} and {@code ingredient_values} with components that must have those values, all optional,
+ *     and {@code output_components}</li>
+ *     <li>{@code nbt}: {@code input_nbt}, {@code ingredient_nbt} and {@code output_nbt}, all optional, as snbt strings</li>
+ *     <li>{@code nbt_field}: {@code input_field} and {@code ingredient_field}, and {@code output_nbt}</li>
+ *     <li>{@code nbt_field_value}: like nbt_field, plus {@code input_value} and {@code ingredient_value} as snbt strings</li>
+ * </ul>
+ * For example:
+ * <pre>{@code
+ * {
+ *   "type": "nbt_field_value",
+ *   "input": "minecraft:glass_bottle",
+ *   "ingredient": "minecraft:glowstone_dust",
+ *   "output": "minecraft:experience_bottle",
+ *   "input_field": "filledWith",
+ *   "input_value": "\"air\"",
+ *   "output_nbt": "{glowing:1b}"
+ * }
+ * }</pre>
+ * A file can hold a single recipe, or an array of them.
+ * */
+public final class DatapackRecipeParser {
+
+    /**The folder of the datapacks holding the recipes*/
+    public static final String DIRECTORY = "custom_brewing";
+
+    private DatapackRecipeParser() {
+    }
+
+    /**Parses a recipe
+     *
+     * @param json The recipe
+     * @param ops Used to read the components, which can refer to the dynamic registries
+     * @return Either a {@link CustomBrewRecipeRegister.CustomRecipe}, a {@link CustomBrewRecipeRegister.CustomRecipeComponents}
+     * or a {@link CustomBrewRecipeRegister.CustomRecipeNBTOnly}
+     * @throws JsonParseException If the recipe isn't valid
+     * */
+    public static Object parse(JsonObject json, RegistryOps<JsonElement> ops){
+        String type = JsonHelper.getString(json, "type");
+        Item output = item(json, "output");
+        return switch (type) {
+            case "plain" -> new CustomBrewRecipeRegister.CustomRecipe<>(item(json, "input"), item(json, "ingredient"), output);
+            case "items" -> new CustomBrewRecipeRegister.CustomRecipeItems(items(json, "input"), items(json, "ingredient"), output);
+            case "components" -> new CustomBrewRecipeRegister.CustomRecipeComponents(item(json, "input"), item(json, "ingredient"), output,
+                    components(json, "input_components", ops), components(json, "ingredient_components", ops), components(json, "output_components", ops));
+            case "component_presence" -> new CustomBrewRecipeRegister.CustomRecipeComponents(optionalItem(json, "input"), optionalItem(json, "ingredient"), output,
+                    componentType(json, "input_component"), componentType(json, "ingredient_component"), components(json, "output_components", ops));
+            case "component_value" -> {
+                ComponentType<?> input_type = componentType(json, "input_component");
+                ComponentType<?> ingredient_type = componentType(json, "ingredient_component");
+                yield new CustomBrewRecipeRegister.CustomRecipeComponents(optionalItem(json, "input"), optionalItem(json, "ingredient"), output,
+                        componentValue(input_type, element(json, "input_value"), ops), input_type,
+                        componentValue(ingredient_type, element(json, "ingredient_value"), ops), ingredient_type,
+                        components(json, "output_components", ops));
+            }
+            case "component_constraints" -> new CustomBrewRecipeRegister.CustomRecipeComponents(optionalItem(json, "input"), optionalItem(json, "ingredient"), output,
+                    constraints(json, "input", ops), constraints(json, "ingredient", ops), components(json, "output_components", ops));
+            case "nbt" -> new CustomBrewRecipeRegister.CustomRecipeNBTOnly(item(json, "input"), item(json, "ingredient"), output,
+                    compound(json, "input_nbt"), compound(json, "ingredient_nbt"), compound(json, "output_nbt"));
+            case "nbt_field" -> new CustomBrewRecipeRegister.CustomRecipeNBTOnly(optionalItem(json, "input"), optionalItem(json, "ingredient"), output,
+                    JsonHelper.getString(json, "input_field"), JsonHelper.getString(json, "ingredient_field"), compound(json, "output_nbt"));
+            case "nbt_field_value" -> new CustomBrewRecipeRegister.CustomRecipeNBTOnly(optionalItem(json, "input"), optionalItem(json, "ingredient"), output,
+                    nbtValue(JsonHelper.getString(json, "input_value")), JsonHelper.getString(json, "input_field"),
+                    nbtValue(JsonHelper.getString(json, "ingredient_value")), JsonHelper.getString(json, "ingredient_field"),
+                    compound(json, "output_nbt"));
+            default -> throw new JsonParseException("Unknown brewing recipe type '" + type + "'");
+        };
+    }
+
+    private static Item item(JsonObject json, String name){
+        String id = JsonHelper.getString(json, name);
+        return Registries.ITEM.getOrEmpty(Identifier.of(id)).orElseThrow(() -> new JsonParseException("Unknown item '" + id + "' in " + name));
+    }
+
+    private static RecipeItems items(JsonObject json, String name){
+        JsonElement element = element(json, name);
+        if(element.isJsonArray()){
+            List<Item> items = new ArrayList<>();
+            for(JsonElement id : element.getAsJsonArray()){
+                items.add(Registries.ITEM.getOrEmpty(Identifier.of(id.getAsString())).orElseThrow(() -> new JsonParseException("Unknown item '" + id.getAsString() + "' in " + name)));
+            }
+            return RecipeItems.of(items);
+        }
+        String id = JsonHelper.getString(json, name);
+        if(id.startsWith("#")){
+            return RecipeItems.ofTag(TagKey.of(RegistryKeys.ITEM, Identifier.of(id.substring(1))));
+        }
+        return RecipeItems.of(item(json, name));
+    }
+
+    @Nullable
+    private static Item optionalItem(JsonObject json, String name){
+        return json.has(name) ? item(json, name) : null;
+    }
+
+    private static JsonElement element(JsonObject json, String name){
+        JsonElement element = json.get(name);
+        if(element == null){
+            throw new JsonParseException("Missing " + name);
+        }
+        return element;
+    }
+
+    private static ComponentType<?> componentType(JsonObject json, String name){
+        String id = JsonHelper.getString(json, name);
+        return Registries.DATA_COMPONENT_TYPE.getOrEmpty(Identifier.of(id)).orElseThrow(() -> new JsonParseException("Unknown component type '" + id + "' in " + name));
+    }
+
+    @Nullable
+    private static ComponentMap components(JsonObject json, String name, RegistryOps<JsonElement> ops){
+        if(!json.has(name)){
+            return null;
+        }
+        return ComponentMap.CODEC.parse(ops, json.get(name)).getOrThrow(error -> new JsonParseException("Invalid " + name + ": " + error));
+    }
+
+    @Nullable
+    private static ComponentConstraints constraints(JsonObject json, String side, RegistryOps<JsonElement> ops){
+        if(!json.has(side + "_has") && !json.has(side + "_values")){
+            return null;
+        }
+        ComponentConstraints.Builder constraints = ComponentConstraints.builder();
+        if(json.has(side + "_has")){
+            for(JsonElement id : JsonHelper.getArray(json, side + "_has")){
+                ComponentType<?> type = Registries.DATA_COMPONENT_TYPE.getOrEmpty(Identifier.of(id.getAsString()))
+                        .orElseThrow(() -> new JsonParseException("Unknown component type '" + id.getAsString() + "' in " + side + "_has"));
+                constraints.has(type);
+            }
+        }
+        ComponentMap values = components(json, side + "_values", ops);
+        if(values != null){
+            for(Component<?> component : values){
+                with(constraints, component);
+            }
+        }
+        return constraints.build();
+    }
+
+    private static <T> void with(ComponentConstraints.Builder constraints, Component<T> component){
+        constraints.with(component.type(), component.value());
+    }
+
+    /**Creates a map with only the given component, like the ones made by
+     * {@link CustomBrewRecipeRegister#registerCustomRecipeWithComponentType(Item, Item, Item, ComponentType, Object, ComponentType, Object, ComponentMap)}*/
+    private static <T> ComponentMap componentValue(ComponentType<T> type, JsonElement json, RegistryOps<JsonElement> ops){
+        T value = type.getCodecOrThrow().parse(ops, json).getOrThrow(error -> new JsonParseException("Invalid value for " + type + ": " + error));
+        return ComponentMap.builder().add(type, value).build();
+    }
+
+    @Nullable
+    private static NbtCompound compound(JsonObject json, String name){
+        if(!json.has(name)){
+            return null;
+        }
+        try{
+            return StringNbtReader.parse(JsonHelper.getString(json, name));
+        }catch (CommandSyntaxException e){
+            throw new JsonParseException("Invalid " + name + ": " + e.getMessage());
+        }
+    }
+
+    private static NbtElement nbtValue(String snbt){
+        try{
+            return new StringNbtReader(new StringReader(snbt)).parseElement();
+        }catch (CommandSyntaxException e){
+            throw new JsonParseException("Invalid nbt value '" + snbt + "': " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMaps;
+import me.emafire003.dev.custombrewrecipes.core.StackAccess;
+import me.emafire003.dev.custombrewrecipes.mixin.ComponentMapImplAccessor;
+import net.minecraft.component.ComponentMap;
+import net.minecraft.component.ComponentMapImpl;
+import net.minecraft.component.ComponentType;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.NbtComponent;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.registry.Registries;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.Optional;
+
+/**Lets the matching core read Minecraft's itemstacks*/
+public final class ItemStackAccess implements StackAccess<ItemStack, Item> {
+
+    public static final ItemStackAccess INSTANCE = new ItemStackAccess();
+
+    private ItemStackAccess() {
+    }
+
+    @Override
+    public Item getItem(ItemStack stack) {
+        return stack.getItem();
+    }
+
+    @Override
+    public int getRawId(Item item) {
+        return Registries.ITEM.getRawId(item);
+    }
+
+    @Override
+    public boolean contains(ItemStack stack, Object type) {
+        return stack.contains((ComponentType<?>) type);
+    }
+
+    @Override
+    public @Nullable Object get(ItemStack stack, Object type) {
+        return stack.get((ComponentType<?>) type);
+    }
+
+    @Override
+    public boolean hasDefaultComponentsOnly(ItemStack stack) {
+        //The components of a stack are the ones of its item plus its changes, so only the changes need checking.
+        //They are read as they are, since getComponentChanges() copies them (see ComponentMapImplAccessor).
+        //An empty stack has no component map of its own, and no components at all
+        if(!(stack.getComponents() instanceof ComponentMapImpl components)){
+            return true;
+        }
+        Reference2ObjectMap<ComponentType<?>, Optional<?>> changes = ((ComponentMapImplAccessor) (Object) components).custombrewrecipes$getChangedComponents();
+        if(changes.isEmpty()){
+            return true;
+        }
+        return checkSameComponents(changes, stack.getDefaultComponents());
+    }
+
+    @Override
+    public Object getCustomDataType() {
+        return DataComponentTypes.CUSTOM_DATA;
+    }
+
+    @Override
+    public @Nullable Object getCustomData(ItemStack stack) {
+        NbtComponent data = stack.get(DataComponentTypes.CUSTOM_DATA);
+        return data != null ? readNbt(data) : null;
+    }
+
+    @Override
+    public boolean hasCustomDataField(ItemStack stack, String field) {
+        NbtComponent data = stack.get(DataComponentTypes.CUSTOM_DATA);
+        return data != null && data.contains(field);
+    }
+
+    @Override
+    public @Nullable Object getCustomDataField(ItemStack stack, String field) {
+        NbtComponent data = stack.get(DataComponentTypes.CUSTOM_DATA);
+        return data != null ? readNbt(data).get(field) : null;
+    }
+
+    /**This checks the all the components added or changed on the item, and if any of them are either not
+     * present or have a different value from the other component set, returns false,
+     * true otherwise. Removed components are fine, since the item doesn't have them at all.*/
+    static boolean checkSameComponents(Reference2ObjectMap<ComponentType<?>, Optional<?>> changes, ComponentMap other){
+        //The fast iterator reuses a single entry and never escapes, so once compiled it isn't allocated at all (see ItemStackAllocationTest)
+        ObjectIterator<Reference2ObjectMap.Entry<ComponentType<?>, Optional<?>>> iterator = Reference2ObjectMaps.fastIterator(changes);
+        while(iterator.hasNext()){
+            Reference2ObjectMap.Entry<ComponentType<?>, Optional<?>> change = iterator.next();
+            Optional<?> value = change.getValue();
+            if(value.isPresent() && !Objects.equals(other.get(change.getKey()), value.get())){
+                //A component the other set doesn't have is null there, so it's never equal
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**Returns the nbt compound of the custom data <b>without copying it</b>.
+     * <p>
+     * {@link NbtComponent#copyNbt()} deep copies the whole compound every time, which for items
+     * with a lot of custom data is most of the cost of matching a recipe. The compound returned here
+     * is the one backing the component, so it must only be read and never modified or stored.*/
+    @SuppressWarnings("deprecation")
+    static NbtCompound readNbt(NbtComponent data){
+        return data.getNbt();
+    }
+}
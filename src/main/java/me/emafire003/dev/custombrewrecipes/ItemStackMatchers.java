@@ -0,0 +1,102 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import me.emafire003.dev.custombrewrecipes.core.StackMatcher;
+import me.emafire003.dev.custombrewrecipes.core.StackMatchers;
+import net.minecraft.component.Component;
+import net.minecraft.component.ComponentMap;
+import net.minecraft.component.ComponentType;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.nbt.NbtElement;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+
+/**Compiles the sides of the recipes into a {@link StackMatcher} for itemstacks,
+ * see {@link StackMatchers} for the different kinds*/
+public final class ItemStackMatchers {
+
+    private ItemStackMatchers() {
+    }
+
+    /**Compiles a matcher that only checks the item, like the ones
+     * used by {@link CustomBrewRecipeRegister#registerCustomRecipe(Item, Item, Item)}*/
+    public static StackMatcher<ItemStack, Item> ofItem(Item item){
+        return StackMatchers.item(ItemStackAccess.INSTANCE, item);
+    }
+
+    /**Compiles a matcher accepting any of the items, like the ones used by
+     * {@link CustomBrewRecipeRegister#registerCustomRecipeWithItems(RecipeItems, RecipeItems, Item)}.
+     * Tags are expanded with the items they have right now.*/
+    public static StackMatcher<ItemStack, Item> ofItems(RecipeItems items){
+        return ofItems(items, ItemTagContents.LOADED);
+    }
+
+    /**Like {@link #ofItems(RecipeItems)}, expanding the tags with the given ones*/
+    static StackMatcher<ItemStack, Item> ofItems(RecipeItems items, ItemTagContents tags){
+        //A single item can go in the indexes like any other recipe
+        if(!items.isTag() && items.getItems().size() == 1){
+            return ofItem(items.getItems().get(0));
+        }
+        return StackMatchers.itemSet(ItemStackAccess.INSTANCE, items.toRawIds(tags));
+    }
+
+    /**Compiles a matcher behaving like {@link CustomBrewRecipeRegister#equalsComponents(ItemStack, Item, ComponentMap, ComponentType)}
+     *
+     * @param recipe_item The item from the recipe
+     * @param recipe_components The components of the recipe, or the one holding the value of the component type
+     * @param recipe_component_type The component type that has to be present on the item
+     * */
+    public static StackMatcher<ItemStack, Item> ofComponents(Item recipe_item, @Nullable ComponentMap recipe_components, @Nullable ComponentType<?> recipe_component_type){
+        if(recipe_component_type != null){
+            //A map without a value for the type is what the presence recipes register (the builder drops the null value),
+            //the recipes checking more than one component use ComponentConstraints instead
+            if(recipe_components != null && recipe_components.contains(recipe_component_type)){
+                return StackMatchers.componentValue(ItemStackAccess.INSTANCE, recipe_component_type, Objects.requireNonNull(recipe_components.get(recipe_component_type)));
+            }
+            return StackMatchers.componentPresence(ItemStackAccess.INSTANCE, recipe_component_type);
+        }
+        if(recipe_components == null){
+            return StackMatchers.defaultComponentsOnly(ItemStackAccess.INSTANCE, recipe_item);
+        }
+        Object[] types = new Object[recipe_components.size()];
+        Object[] values = new Object[types.length];
+        int i = 0;
+        for(Component<?> component : recipe_components){
+            types[i] = component.type();
+            values[i] = component.value();
+            i++;
+        }
+        return StackMatchers.hasComponents(ItemStackAccess.INSTANCE, recipe_item, types, values);
+    }
+
+    /**Compiles a matcher checking several components, like the ones used by
+     * {@link CustomBrewRecipeRegister#registerCustomRecipeWithComponentConstraints(Item, Item, Item, ComponentConstraints, ComponentConstraints, ComponentMap)}
+     *
+     * @param recipe_item The item from the recipe, or null for any item
+     * @param constraints The components to check
+     * */
+    public static StackMatcher<ItemStack, Item> ofConstraints(@Nullable Item recipe_item, ComponentConstraints constraints){
+        return StackMatchers.componentConstraints(ItemStackAccess.INSTANCE, recipe_item,
+                constraints.getTypes().toArray(), constraints.getValues().toArray());
+    }
+
+    /**Compiles a matcher behaving like {@link CustomBrewRecipeRegister#equalsNbt(ItemStack, Item, NbtElement, String)}
+     *
+     * @param recipe_item The item from the recipe
+     * @param recipe_nbt_value The whole nbt compound of the item, or the value stored in the field if it isn't null
+     * @param recipe_nbt_field The field that has to be present on the item
+     * */
+    public static StackMatcher<ItemStack, Item> ofNbt(Item recipe_item, @Nullable NbtElement recipe_nbt_value, @Nullable String recipe_nbt_field){
+        if(recipe_nbt_field != null){
+            if(recipe_nbt_value != null){
+                return StackMatchers.customDataFieldValue(ItemStackAccess.INSTANCE, recipe_nbt_field, recipe_nbt_value);
+            }
+            return StackMatchers.customDataField(ItemStackAccess.INSTANCE, recipe_nbt_field);
+        }
+        if(recipe_nbt_value == null){
+            return StackMatchers.noCustomData(ItemStackAccess.INSTANCE, recipe_item);
+        }
+        return StackMatchers.sameCustomData(ItemStackAccess.INSTANCE, recipe_item, recipe_nbt_value);
+    }
+}
@@ -0,0 +1,35 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**The items in each item tag, used to compile the recipes of {@link RecipeItems} tags.
+ * <p>
+ * Usually these are the tags loaded in the item registry, but when the datapacks are reloaded the recipes
+ * are compiled with the tags read by the reload instead, which the registry only gets later on the server thread.
+ * See {@link DatapackRecipeLoader}.
+ * */
+@FunctionalInterface
+interface ItemTagContents {
+
+    /**The tags loaded in the item registry right now*/
+    ItemTagContents LOADED = Registries.ITEM::iterateEntries;
+
+    /**The items in the tag, empty if there is no such tag*/
+    Iterable<? extends RegistryEntry<Item>> getEntries(TagKey<Item> tag);
+
+    /**The tags read from the datapacks, by their id*/
+    static ItemTagContents of(Map<Identifier, Collection<RegistryEntry<Item>>> tags){
+        return tag -> {
+            Collection<RegistryEntry<Item>> entries = tags.get(tag.id());
+            return entries != null ? entries : List.of();
+        };
+    }
+}
@@ -0,0 +1,193 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import me.emafire003.dev.custombrewrecipes.core.RecipeIndex;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.PotionContentsComponent;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.potion.Potion;
+import net.minecraft.recipe.Ingredient;
+import net.minecraft.registry.entry.RegistryEntry;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**Answers the queries of a {@link net.minecraft.recipe.BrewingRecipeRegistry} for both the custom and the vanilla recipes.
+ * <p>
+ * Normally the custom recipes are checked first, and when none matches vanilla goes through all of its own
+ * recipes one by one. With this mode on, the vanilla recipes of the registry are also put in a {@link RecipeIndex}
+ * (keyed on the input item or potion and on the ingredient items), so a query only tests the recipes that
+ * can match and vanilla's own scan is skipped. The answers are the same: custom recipes come first,
+ * then the vanilla item recipes and then the vanilla potion recipes, each in the order they have been registered.
+ * <p>
+ * The vanilla recipes are indexed on the items listed by their ingredients, and the candidates are still
+ * tested with the ingredient itself. An ingredient accepting items it doesn't list (which vanilla ones never do)
+ * would not be found, so this mode is off by default.
+ * Turn it on with {@link #setEnabled(boolean)} or by starting the game with {@code -Dcustombrewrecipes.mergedLookup=true}.
+ * */
+@SuppressWarnings("unused")
+public final class MergedBrewingLookup {
+
+    private static volatile boolean ENABLED = Boolean.getBoolean("custombrewrecipes.mergedLookup");
+
+    private final RecipeIndex<Object, IndexedRecipe> index;
+    private final Map<Item, List<Ingredient>> potion_types;
+    private final List<Ingredient> any_potion_types;
+
+    private MergedBrewingLookup(RecipeIndex<Object, IndexedRecipe> index, Map<Item, List<Ingredient>> potion_types, List<Ingredient> any_potion_types) {
+        this.index = index;
+        this.potion_types = potion_types;
+        this.any_potion_types = any_potion_types;
+    }
+
+    public static boolean isEnabled(){
+        return ENABLED;
+    }
+
+    /**Turns the merged lookup on or off, for the queries made from now on*/
+    public static void setEnabled(boolean enabled){
+        ENABLED = enabled;
+    }
+
+    /**A vanilla brewing recipe, turning {@code from} into {@code to} when brewed with {@code ingredient}*/
+    public record VanillaRecipe<T>(RegistryEntry<T> from, Ingredient ingredient, RegistryEntry<T> to) {
+    }
+
+    /**One of the items of the ingredient of a vanilla recipe, or all of them if the ingredient doesn't list any*/
+    private record IndexedRecipe(Object input, @Nullable Item ingredient_item, Ingredient ingredient,
+                                 @Nullable Item output_item, @Nullable RegistryEntry<Potion> output_potion) {
+    }
+
+    /**Indexes the recipes of a brewing registry, which never change after it has been built
+     *
+     * @param potion_types The ingredients accepted as input containers, like potions and splash potions
+     * @param item_recipes The recipes changing the item of the input, like potion to splash potion
+     * @param potion_recipes The recipes changing the potion of the input
+     * */
+    public static MergedBrewingLookup build(List<Ingredient> potion_types, List<VanillaRecipe<Item>> item_recipes, List<VanillaRecipe<Potion>> potion_recipes){
+        List<IndexedRecipe> recipes = new ArrayList<>();
+        //Vanilla checks all the item recipes before the potion recipes
+        for(VanillaRecipe<Item> recipe : item_recipes){
+            for(Item item : itemsOf(recipe.ingredient())){
+                recipes.add(new IndexedRecipe(recipe.from().value(), item, recipe.ingredient(), recipe.to().value(), null));
+            }
+        }
+        for(VanillaRecipe<Potion> recipe : potion_recipes){
+            for(Item item : itemsOf(recipe.ingredient())){
+                recipes.add(new IndexedRecipe(recipe.from().value(), item, recipe.ingredient(), null, recipe.to()));
+            }
+        }
+
+        Map<Item, List<Ingredient>> types = new HashMap<>();
+        List<Ingredient> any_types = new ArrayList<>();
+        for(Ingredient type : potion_types){
+            for(Item item : itemsOf(type)){
+                if(item == null){
+                    any_types.add(type);
+                }else{
+                    types.computeIfAbsent(item, k -> new ArrayList<>()).add(type);
+                }
+            }
+        }
+        return new MergedBrewingLookup(RecipeIndex.build(recipes, IndexedRecipe::input, IndexedRecipe::ingredient_item), types, any_types);
+    }
+
+    /**The items listed by an ingredient, without duplicates. A single null if it doesn't list any,
+     * in which case it's indexed as matching any item*/
+    private static List<Item> itemsOf(Ingredient ingredient){
+        List<Item> items = new ArrayList<>();
+        for(ItemStack stack : ingredient.getMatchingStacks()){
+            if(!items.contains(stack.getItem())){
+                items.add(stack.getItem());
+            }
+        }
+        if(items.isEmpty()){
+            items.add(null);
+        }
+        return items;
+    }
+
+    /**Same as {@link net.minecraft.recipe.BrewingRecipeRegistry#craft(ItemStack, ItemStack)}, custom recipes included*/
+    public ItemStack craft(ItemStack ingredient, ItemStack input){
+        ItemStack custom = CustomBrewRecipeRegister.craftCustomRecipe(ingredient, input);
+        if(custom != null){
+            return custom;
+        }
+        if(input.isEmpty()){
+            return input;
+        }
+        Optional<RegistryEntry<Potion>> potion = input.getOrDefault(DataComponentTypes.POTION_CONTENTS, PotionContentsComponent.DEFAULT).potion();
+        if(potion.isEmpty()){
+            return input;
+        }
+        IndexedRecipe recipe = findVanilla(input, ingredient, potion.get());
+        if(recipe == null){
+            return input;
+        }
+        if(recipe.output_item() != null){
+            return PotionContentsComponent.createStack(recipe.output_item(), potion.get());
+        }
+        return PotionContentsComponent.createStack(input.getItem(), recipe.output_potion());
+    }
+
+    /**Same as {@link net.minecraft.recipe.BrewingRecipeRegistry#hasRecipe(ItemStack, ItemStack)}, custom recipes included*/
+    public boolean hasRecipe(ItemStack input, ItemStack ingredient){
+        if(CustomBrewRecipeRegister.hasCustomRecipe(input, ingredient)){
+            return true;
+        }
+        if(!isPotionType(input)){
+            return false;
+        }
+        //Unlike craft, vanilla accepts the item recipes even without a potion
+        Optional<RegistryEntry<Potion>> potion = input.getOrDefault(DataComponentTypes.POTION_CONTENTS, PotionContentsComponent.DEFAULT).potion();
+        return findVanilla(input, ingredient, potion.orElse(null)) != null;
+    }
+
+    /**Same as {@link net.minecraft.recipe.BrewingRecipeRegistry#isValidIngredient(ItemStack)}, custom recipes included*/
+    public boolean isValidIngredient(ItemStack stack){
+        return CustomBrewRecipeRegister.isCustomRecipeIngredient(stack)
+                || index.anyIngredientMatch(stack.getItem(), stack, (recipe, ingredient) -> recipe.ingredient().test(ingredient));
+    }
+
+    /**Same as {@link net.minecraft.recipe.BrewingRecipeRegistry#isPotionType(ItemStack)}*/
+    public boolean isPotionType(ItemStack stack){
+        List<Ingredient> types = potion_types.get(stack.getItem());
+        if(types != null){
+            for(Ingredient type : types){
+                if(type.test(stack)){
+                    return true;
+                }
+            }
+        }
+        for(Ingredient type : any_potion_types){
+            if(type.test(stack)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**Finds the first vanilla item recipe, or if there isn't one the first potion recipe, for the input and ingredient*/
+    @Nullable
+    private IndexedRecipe findVanilla(ItemStack input, ItemStack ingredient, @Nullable RegistryEntry<Potion> potion){
+        IndexedRecipe recipe = index.findFirst(input.getItem(), ingredient.getItem(), input, ingredient, MergedBrewingLookup::matches);
+        if(recipe != null || potion == null){
+            return recipe;
+        }
+        return index.findFirst(potion.value(), ingredient.getItem(), input, ingredient, MergedBrewingLookup::matches);
+    }
+
+    private static boolean matches(IndexedRecipe recipe, ItemStack input, ItemStack ingredient){
+        //The input already matches through its key
+        return recipe.ingredient().test(ingredient);
+    }
+
+    /**Implemented on the brewing registry, which holds its own merged lookup*/
+    public interface Holder {
+        MergedBrewingLookup custombrewrecipes$getMergedLookup();
+    }
+}
@@ -0,0 +1,101 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+/**Compiles a lot of recipes at once on the common fork/join pool.
+ * <p>
+ * Compiling a recipe (checking it, building its matchers and its output) doesn't depend on the other recipes,
+ * so the list is split in ranges compiled on different threads. Every recipe is compiled into its own slot,
+ * so the result is in the same order as the list no matter which thread compiled what, and so are the errors.
+ * Small lists are compiled on the calling thread, where splitting them would cost more than it saves.
+ * <p>
+ * Turn it off with {@code -Dcustombrewrecipes.parallelCompile=false}.
+ * */
+final class ParallelCompiler {
+
+    /**Below this many recipes, everything is done on the calling thread.
+     * This and {@link #CHUNK_SIZE} are placeholders which haven't been measured yet: run RecipeCompileBenchmark
+     * (its smaller sizes are around this threshold) on a machine with several cores and set them from its results*/
+    static final int PARALLEL_THRESHOLD = 2048;
+    /**The most recipes compiled by a single task*/
+    private static final int CHUNK_SIZE = 512;
+
+    static volatile boolean ENABLED = Boolean.parseBoolean(System.getProperty("custombrewrecipes.parallelCompile", "true"));
+
+    private ParallelCompiler() {
+    }
+
+    /**Returns true if this many recipes should be handled in parallel*/
+    static boolean isParallel(int recipes){
+        return ENABLED && recipes >= PARALLEL_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1;
+    }
+
+    /**Compiles the recipes, in order
+     *
+     * @param errors Gets the message of every recipe that couldn't be compiled, in order. Those are left out of the result
+     * */
+    static <T> List<CompiledRecipe> compileAll(List<T> recipes, Function<T, CompiledRecipe> compile, List<String> errors){
+        CompiledRecipe[] compiled = new CompiledRecipe[recipes.size()];
+        String[] failed = new String[recipes.size()];
+        CompileTask<T> task = new CompileTask<>(recipes, compile, compiled, failed, 0, recipes.size());
+        if(isParallel(recipes.size())){
+            ForkJoinPool.commonPool().invoke(task);
+        }else{
+            task.compileRange();
+        }
+
+        List<CompiledRecipe> result = new ArrayList<>(compiled.length);
+        for(int i = 0; i < compiled.length; i++){
+            if(failed[i] != null){
+                errors.add(failed[i]);
+            }else{
+                result.add(compiled[i]);
+            }
+        }
+        return result;
+    }
+
+    private static final class CompileTask<T> extends RecursiveAction {
+
+        private final List<T> recipes;
+        private final Function<T, CompiledRecipe> compile;
+        private final CompiledRecipe[] compiled;
+        private final String[] failed;
+        private final int from;
+        private final int to;
+
+        CompileTask(List<T> recipes, Function<T, CompiledRecipe> compile, CompiledRecipe[] compiled, String[] failed, int from, int to) {
+            this.recipes = recipes;
+            this.compile = compile;
+            this.compiled = compiled;
+            this.failed = failed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if(to - from <= CHUNK_SIZE){
+                compileRange();
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new CompileTask<>(recipes, compile, compiled, failed, from, middle),
+                    new CompileTask<>(recipes, compile, compiled, failed, middle, to));
+        }
+
+        void compileRange(){
+            for(int i = from; i < to; i++){
+                try{
+                    compiled[i] = compile.apply(recipes.get(i));
+                }catch (RuntimeException e){
+                    failed[i] = String.valueOf(e.getMessage());
+                }
+            }
+        }
+    }
+}
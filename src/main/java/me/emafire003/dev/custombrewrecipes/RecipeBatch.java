@@ -0,0 +1,138 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import net.minecraft.component.ComponentMap;
+import net.minecraft.item.Item;
+import net.minecraft.nbt.NbtCompound;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**Collects a lot of recipes to register them all at once, get one with {@link CustomBrewRecipeRegister#batch()}.
+ * <p>
+ * Registering the recipes one by one publishes the registered recipes again every time, which adds up
+ * when a mod generates thousands of them. A batch instead compiles all of its recipes and publishes them
+ * together, and {@link CustomBrewRecipeRegister#freeze()} builds the lookup indexes once at the end.
+ * <pre>{@code
+ * CustomBrewRecipeRegister.batch()
+ *         .add(Items.POTION, Items.DIAMOND, Items.EMERALD)
+ *         .addAll(my_generated_recipes)
+ *         .register();
+ * CustomBrewRecipeRegister.freeze();
+ * }</pre>
+ * The recipes are checked in the same order as if they were registered one by one in the order they are added.
+ * A batch isn't thread safe, but it can be filled on any thread.
+ * */
+@SuppressWarnings("unused")
+public final class RecipeBatch {
+
+    private final List<CustomBrewRecipeRegister.CustomRecipe<Item>> recipes = new ArrayList<>();
+    private final List<CustomBrewRecipeRegister.CustomRecipeItems> recipes_items = new ArrayList<>();
+    private final List<CustomBrewRecipeRegister.CustomRecipeComponents> recipes_components = new ArrayList<>();
+    private final List<CustomBrewRecipeRegister.CustomRecipeNBTOnly> recipes_nbt = new ArrayList<>();
+
+    RecipeBatch() {
+    }
+
+    /**Adds a recipe using only items, like {@link CustomBrewRecipeRegister#registerCustomRecipe(Item, Item, Item)}*/
+    public RecipeBatch add(Item input, Item ingredient, Item output){
+        return add(new CustomBrewRecipeRegister.CustomRecipe<>(input, ingredient, output));
+    }
+
+    /**Adds a recipe using sets of items or tags, like {@link CustomBrewRecipeRegister#registerCustomRecipeWithItems(RecipeItems, RecipeItems, Item)}*/
+    public RecipeBatch addWithItems(RecipeItems input, RecipeItems ingredient, Item output){
+        return add(new CustomBrewRecipeRegister.CustomRecipeItems(input, ingredient, output));
+    }
+
+    /**Adds a recipe using components, like {@link CustomBrewRecipeRegister#registerCustomRecipeWithComponents(Item, Item, Item, ComponentMap, ComponentMap, ComponentMap)}*/
+    public RecipeBatch addWithComponents(Item input, Item ingredient, Item output, @Nullable ComponentMap input_components, @Nullable ComponentMap ingredient_components, @Nullable ComponentMap output_components){
+        return add(new CustomBrewRecipeRegister.CustomRecipeComponents(input, ingredient, output, input_components, ingredient_components, output_components));
+    }
+
+    /**Adds a recipe using nbt, like {@link CustomBrewRecipeRegister#registerCustomRecipeWithNbt(Item, Item, Item, NbtCompound, NbtCompound, NbtCompound)}*/
+    public RecipeBatch addWithNbt(Item input, Item ingredient, Item output, @Nullable NbtCompound input_nbt, @Nullable NbtCompound ingredient_nbt, @Nullable NbtCompound output_nbt){
+        return add(new CustomBrewRecipeRegister.CustomRecipeNBTOnly(input, ingredient, output, input_nbt, ingredient_nbt, output_nbt));
+    }
+
+    public RecipeBatch add(CustomBrewRecipeRegister.CustomRecipe<Item> recipe){
+        recipes.add(recipe);
+        return this;
+    }
+
+    public RecipeBatch add(CustomBrewRecipeRegister.CustomRecipeItems recipe){
+        recipes_items.add(recipe);
+        return this;
+    }
+
+    /**Adds a recipe using components. Use the constructors of {@link CustomBrewRecipeRegister.CustomRecipeComponents}
+     * with the component types to only check for their presence or their values*/
+    public RecipeBatch add(CustomBrewRecipeRegister.CustomRecipeComponents recipe){
+        recipes_components.add(recipe);
+        return this;
+    }
+
+    /**Adds a recipe using nbt. Use the constructors of {@link CustomBrewRecipeRegister.CustomRecipeNBTOnly}
+     * with the fields to only check for their presence or their values*/
+    public RecipeBatch add(CustomBrewRecipeRegister.CustomRecipeNBTOnly recipe){
+        recipes_nbt.add(recipe);
+        return this;
+    }
+
+    public RecipeBatch addAll(Collection<CustomBrewRecipeRegister.CustomRecipe<Item>> recipes){
+        this.recipes.addAll(recipes);
+        return this;
+    }
+
+    public RecipeBatch addAllItems(Collection<CustomBrewRecipeRegister.CustomRecipeItems> recipes){
+        this.recipes_items.addAll(recipes);
+        return this;
+    }
+
+    public RecipeBatch addAllComponents(Collection<CustomBrewRecipeRegister.CustomRecipeComponents> recipes){
+        this.recipes_components.addAll(recipes);
+        return this;
+    }
+
+    public RecipeBatch addAllNbt(Collection<CustomBrewRecipeRegister.CustomRecipeNBTOnly> recipes){
+        this.recipes_nbt.addAll(recipes);
+        return this;
+    }
+
+    /**Returns how many recipes have been added so far*/
+    public int size(){
+        return recipes.size() + recipes_items.size() + recipes_components.size() + recipes_nbt.size();
+    }
+
+    /**Checks and compiles all the recipes of the batch, then registers them together.
+     * If any recipe isn't valid nothing is registered, and the exception lists every invalid recipe.
+     * The batch is emptied, so it can be filled again.
+     *
+     * @throws IllegalArgumentException If any of the recipes isn't valid
+     * */
+    public void register(){
+        CustomBrewRecipeRegister.addAll(compile());
+        recipes.clear();
+        recipes_items.clear();
+        recipes_components.clear();
+        recipes_nbt.clear();
+    }
+
+    /**Checks and compiles all the recipes of the batch, without registering them
+     *
+     * @throws IllegalArgumentException If any of the recipes isn't valid
+     * */
+    RecipeSet compile(){
+        //Compiled in parallel when there are a lot of them, in the same order as they have been added
+        List<String> errors = new ArrayList<>();
+        List<CompiledRecipe> compiled = ParallelCompiler.compileAll(recipes, CompiledRecipe::of, errors);
+        List<CompiledRecipe> compiled_items = ParallelCompiler.compileAll(recipes_items, CompiledRecipe::of, errors);
+        List<CompiledRecipe> compiled_components = ParallelCompiler.compileAll(recipes_components, CompiledRecipe::of, errors);
+        List<CompiledRecipe> compiled_nbt = ParallelCompiler.compileAll(recipes_nbt, CompiledRecipe::of, errors);
+        if(!errors.isEmpty()){
+            throw new IllegalArgumentException(errors.size() + " invalid brewing recipes in the batch:\n" + String.join("\n", errors));
+        }
+
+        return new RecipeSet(recipes, recipes_items, recipes_components, recipes_nbt, compiled, compiled_items, compiled_components, compiled_nbt);
+    }
+}
@@ -0,0 +1,172 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import net.minecraft.component.ComponentType;
+import net.minecraft.item.Item;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.registry.Registries;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+/**Caches on disk the recipes that a mod generates, so they don't have to be generated again on every start.
+ * <pre>{@code
+ * RecipeCache.register(FabricLoader.getInstance().getConfigDir().resolve("mymod/brewing.cache"),
+ *         MOD_VERSION + config_hash,
+ *         batch -> generateMyRecipes(batch));
+ * CustomBrewRecipeRegister.freeze();
+ * }</pre>
+ * The cache file holds the recipes written by {@link RecipeCodec}, after a header with a hash of the key,
+ * of the format and of the items and component types in the game. The header is read first, and only when the hash matches
+ * the rest of the file is memory-mapped and the recipes are read straight from it and registered, without calling the generator at all.
+ * Otherwise the generator is called and the file is written again, so changing the key (or the mods, which
+ * changes the registries) rebuilds it automatically.
+ * <p>
+ * The lookup indexes aren't cached: they also depend on the recipes loaded from datapacks, which can change
+ * on every reload, and they are built from the compiled recipes in much less time than generating them.
+ * */
+public final class RecipeCache {
+
+    /**"CBRC", at the start of every cache file*/
+    private static final int MAGIC = 0x43425243;
+    /**Changes when the layout of the file changes, the recipes themselves have their own {@link RecipeCodec#FORMAT_VERSION}*/
+    static final int FORMAT_VERSION = 1;
+
+    private RecipeCache() {
+    }
+
+    /**Registers the recipes of the generator, reading them from the cache file if it's up to date,
+     * and writing it otherwise. Call this on initialization!
+     *
+     * @param file The cache file, it's created if it doesn't exist
+     * @param key Everything the generated recipes depend on, like the version of the mod and its configuration.
+     *            The cached recipes are only used if the key is the same as when they have been written
+     * @param generator Adds the recipes to the batch, called only if the cache can't be used
+     * @return True if the recipes have been read from the cache
+     * @throws IllegalArgumentException If the generator adds invalid recipes, see {@link RecipeBatch#register()}
+     * */
+    public static boolean register(Path file, String key, Consumer<RecipeBatch> generator){
+        DynamicRegistryManager registries = DynamicRegistryManager.of(Registries.REGISTRIES);
+        byte[] hash = hash(key);
+        RecipeSet cached = read(file, hash, registries);
+        if(cached != null){
+            CustomBrewRecipeRegister.addAll(cached);
+            CustomBrewRecipeRegister.LOGGER.info("Loaded {} brewing recipes from the cache {}", cached.size(), file);
+            return true;
+        }
+
+        RecipeBatch batch = new RecipeBatch();
+        generator.accept(batch);
+        RecipeSet recipes = batch.compile();
+        CustomBrewRecipeRegister.addAll(recipes);
+        write(file, hash, recipes, registries);
+        return false;
+    }
+
+    /**Reads the recipes, or returns null if the file doesn't exist, is outdated or can't be read*/
+    @Nullable
+    private static RecipeSet read(Path file, byte[] hash, DynamicRegistryManager registries){
+        if(!Files.isRegularFile(file)){
+            return null;
+        }
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)){
+            //The header is read before mapping anything, so an outdated file is never mapped
+            //and can be replaced right away (Windows doesn't replace a file while it's mapped)
+            ByteBuffer header = ByteBuffer.allocate(8 + hash.length);
+            while(header.hasRemaining()){
+                if(channel.read(header) < 0){
+                    break;
+                }
+            }
+            header.flip();
+            if(header.remaining() < 8 + hash.length || header.getInt() != MAGIC || header.getInt() != FORMAT_VERSION){
+                CustomBrewRecipeRegister.LOGGER.info("The brewing recipe cache {} is from another version, rebuilding it", file);
+                return null;
+            }
+            byte[] file_hash = new byte[hash.length];
+            header.get(file_hash);
+            if(!Arrays.equals(hash, file_hash)){
+                CustomBrewRecipeRegister.LOGGER.info("The brewing recipe cache {} is outdated, rebuilding it", file);
+                return null;
+            }
+            long start = header.capacity();
+            ByteBuf buf = Unpooled.wrappedBuffer(channel.map(FileChannel.MapMode.READ_ONLY, start, channel.size() - start));
+            return RecipeCodec.decode(buf, registries);
+        }catch (IOException | RuntimeException e){
+            CustomBrewRecipeRegister.LOGGER.warn("Couldn't read the brewing recipe cache {}, rebuilding it", file, e);
+            return null;
+        }
+    }
+
+    /**Writes the file next to the old one and then replaces it, so a crash never leaves half a file*/
+    private static void write(Path file, byte[] hash, RecipeSet recipes, DynamicRegistryManager registries){
+        try{
+            byte[] data = RecipeCodec.encode(recipes, registries);
+            ByteBuffer header = ByteBuffer.allocate(8 + hash.length);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).put(hash).flip();
+            Path parent = file.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            boolean moved = false;
+            try{
+                try(FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)){
+                    channel.write(new ByteBuffer[]{header, ByteBuffer.wrap(data)});
+                }
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                moved = true;
+            }finally{
+                if(!moved){
+                    deleteTemp(temp);
+                }
+            }
+        }catch (IOException | RuntimeException e){
+            //The recipes are registered anyway, they will just be generated again next time
+            CustomBrewRecipeRegister.LOGGER.warn("Couldn't write the brewing recipe cache {}", file, e);
+        }
+    }
+
+    /**Deletes the file a failed write left behind, so they don't pile up next to the cache*/
+    private static void deleteTemp(Path temp){
+        try{
+            Files.deleteIfExists(temp);
+        }catch (IOException e){
+            CustomBrewRecipeRegister.LOGGER.warn("Couldn't delete the temporary brewing recipe cache {}", temp, e);
+        }
+    }
+
+    /**Hashes the key together with what the cached data depends on: the format and the raw ids of the registries*/
+    private static byte[] hash(String key){
+        MessageDigest digest;
+        try{
+            digest = MessageDigest.getInstance("SHA-256");
+        }catch (NoSuchAlgorithmException e){
+            throw new IllegalStateException("SHA-256 is always available", e);
+        }
+        update(digest, FORMAT_VERSION + ":" + RecipeCodec.FORMAT_VERSION + ":" + key);
+        for(Item item : Registries.ITEM){
+            update(digest, Registries.ITEM.getId(item).toString());
+        }
+        for(ComponentType<?> type : Registries.DATA_COMPONENT_TYPE){
+            update(digest, String.valueOf(Registries.DATA_COMPONENT_TYPE.getId(type)));
+        }
+        return digest.digest();
+    }
+
+    private static void update(MessageDigest digest, String string){
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        digest.update(ByteBuffer.allocate(4).putInt(bytes.length).array());
+        digest.update(bytes);
+    }
+}
@@ -0,0 +1,476 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.component.Component;
+import net.minecraft.component.ComponentMap;
+import net.minecraft.component.ComponentType;
+import net.minecraft.item.Item;
+import net.minecraft.nbt.NbtElement;
+import net.minecraft.nbt.NbtSizeTracker;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.Registry;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**Writes recipes in a compact binary format, and reads them back compiled. Used to send the recipes
+ * to the clients ({@link RecipeSync}) and to cache them on disk ({@link RecipeCache}).
+ * <p>
+ * Items and component types are written as raw ids, so the data is only valid with the same registries.
+ * Every component value and nbt is written once in a pool that the recipes refer to by index, since a lot of recipes share them.
+ * The recipes can be all of them, or what changed from some earlier recipes: for each kind of recipe,
+ * how many recipes at the start and at the end of the list are still the same, and the recipes in between.
+ * <p>
+ * The synced recipes are numbered by generation, each change making a new one. All the recipes are written
+ * with their generation, and the changes with the generation they apply to and the one they make, so the changes are
+ * never applied to other recipes than the ones they have been computed from.
+ * */
+final class RecipeCodec {
+
+    /**Changes when the format changes, data written in another version is ignored*/
+    static final int FORMAT_VERSION = 2;
+
+    private static final byte FULL = 0;
+    private static final byte DELTA = 1;
+    private static final byte POOL_NBT = 0;
+    private static final byte POOL_COMPONENT = 1;
+    private static final byte ITEMS_TAG = 0;
+    private static final byte ITEMS_LIST = 1;
+
+    private RecipeCodec() {
+    }
+
+    /**Writes all the recipes, when they aren't synced (like in the cache)*/
+    static byte[] encode(RecipeSet recipes, DynamicRegistryManager registries){
+        return encode(recipes, 0, registries);
+    }
+
+    /**Writes all the recipes, as the given generation of the synced recipes*/
+    static byte[] encode(RecipeSet recipes, int generation, DynamicRegistryManager registries){
+        Writer writer = new Writer(registries);
+        writer.writeAll(recipes.recipes, writer::writePlain);
+        writer.writeAll(recipes.recipes_items, writer::writeItems);
+        writer.writeAll(recipes.recipes_components, writer::writeComponents);
+        writer.writeAll(recipes.recipes_nbt, writer::writeNbt);
+        return writer.finish(FULL, 0, generation);
+    }
+
+    /**Writes what changed from the old recipes to the new ones
+     *
+     * @param old_generation The generation of the old recipes, the changes are only applied to it
+     * @param generation The generation of the new recipes
+     * */
+    static byte[] encodeChanges(RecipeSet old_recipes, int old_generation, RecipeSet recipes, int generation, DynamicRegistryManager registries){
+        Writer writer = new Writer(registries);
+        writer.writeChanges(old_recipes.recipes, recipes.recipes, writer::writePlain);
+        writer.writeChanges(old_recipes.recipes_items, recipes.recipes_items, writer::writeItems);
+        writer.writeChanges(old_recipes.recipes_components, recipes.recipes_components, writer::writeComponents);
+        writer.writeChanges(old_recipes.recipes_nbt, recipes.recipes_nbt, writer::writeNbt);
+        return writer.finish(DELTA, old_generation, generation);
+    }
+
+    /**Reads all the recipes, when they aren't synced (like in the cache)
+     *
+     * @return The recipes, or null if they can't be read
+     * */
+    @Nullable
+    static RecipeSet decode(ByteBuf data, DynamicRegistryManager registries){
+        Decoded decoded = decode(data, null, 0, registries);
+        return decoded != null ? decoded.recipes() : null;
+    }
+
+    /**Reads the recipes, compiling the new ones
+     *
+     * @param base The recipes the changes are applied to, null if none has been received yet
+     * @param base_generation The generation of the base
+     * @return The recipes and their generation, or null if they can't be read
+     * @throws IllegalStateException If the changes are from another generation than the base
+     * */
+    @Nullable
+    static Decoded decode(ByteBuf data, @Nullable RecipeSet base, int base_generation, DynamicRegistryManager registries){
+        Reader reader = new Reader(new RegistryByteBuf(data, registries));
+        int version = reader.buf.readVarInt();
+        if(version != FORMAT_VERSION){
+            CustomBrewRecipeRegister.LOGGER.warn("Brewing recipes written in format {}, but this version of the mod reads format {}. They will be ignored", version, FORMAT_VERSION);
+            return null;
+        }
+        byte mode = reader.buf.readByte();
+        int old_generation = reader.buf.readVarInt();
+        int generation = reader.buf.readVarInt();
+        if(mode == DELTA && base == null){
+            return null;
+        }
+        if(mode == DELTA && old_generation != base_generation){
+            throw new IllegalStateException("The brewing recipe changes are from generation " + old_generation
+                    + ", but the recipes received before are generation " + base_generation);
+        }
+        if(mode != DELTA){
+            base = RecipeSet.EMPTY;
+        }
+        reader.readPool();
+        boolean delta = mode == DELTA;
+        List<CustomBrewRecipeRegister.CustomRecipe<Item>> recipes = new ArrayList<>();
+        List<CompiledRecipe> compiled = new ArrayList<>();
+        reader.readChanges(delta, base.recipes, base.compiled, recipes, compiled, reader::readPlain, CompiledRecipe::of);
+        List<CustomBrewRecipeRegister.CustomRecipeItems> recipes_items = new ArrayList<>();
+        List<CompiledRecipe> compiled_items = new ArrayList<>();
+        reader.readChanges(delta, base.recipes_items, base.compiled_items, recipes_items, compiled_items, reader::readItems, CompiledRecipe::of);
+        List<CustomBrewRecipeRegister.CustomRecipeComponents> recipes_components = new ArrayList<>();
+        List<CompiledRecipe> compiled_components = new ArrayList<>();
+        reader.readChanges(delta, base.recipes_components, base.compiled_components, recipes_components, compiled_components, reader::readComponents, CompiledRecipe::of);
+        List<CustomBrewRecipeRegister.CustomRecipeNBTOnly> recipes_nbt = new ArrayList<>();
+        List<CompiledRecipe> compiled_nbt = new ArrayList<>();
+        reader.readChanges(delta, base.recipes_nbt, base.compiled_nbt, recipes_nbt, compiled_nbt, reader::readNbt, CompiledRecipe::of);
+        return new Decoded(new RecipeSet(recipes, recipes_items, recipes_components, recipes_nbt, compiled, compiled_items, compiled_components, compiled_nbt), generation);
+    }
+
+    /**The recipes read, and their generation*/
+    record Decoded(RecipeSet recipes, int generation) {
+    }
+
+    private static final class Writer {
+
+        private final DynamicRegistryManager registries;
+        private final RegistryByteBuf buf;
+        /**The component values and nbt written once, the recipes refer to them by index + 1, 0 being null*/
+        private final List<Object> pool = new ArrayList<>();
+        private final Map<Object, Integer> pool_ids = new HashMap<>();
+
+        Writer(DynamicRegistryManager registries) {
+            this.registries = registries;
+            this.buf = new RegistryByteBuf(Unpooled.buffer(), registries);
+        }
+
+        <T> void writeAll(List<T> recipes, Consumer<T> write){
+            buf.writeVarInt(recipes.size());
+            for(T recipe : recipes){
+                write.accept(recipe);
+            }
+        }
+
+        /**Writes how many recipes at the start and at the end are the same, then the ones in between*/
+        <T> void writeChanges(List<T> old_recipes, List<T> recipes, Consumer<T> write){
+            int max = Math.min(old_recipes.size(), recipes.size());
+            int start = 0;
+            while(start < max && old_recipes.get(start).equals(recipes.get(start))){
+                start++;
+            }
+            int end = 0;
+            while(end < max - start && old_recipes.get(old_recipes.size() - 1 - end).equals(recipes.get(recipes.size() - 1 - end))){
+                end++;
+            }
+            buf.writeVarInt(start);
+            buf.writeVarInt(end);
+            writeAll(recipes.subList(start, recipes.size() - end), write);
+        }
+
+        void writePlain(CustomBrewRecipeRegister.CustomRecipe<Item> recipe){
+            writeItem(recipe.input());
+            writeItem(recipe.ingredient());
+            writeItem(recipe.output());
+        }
+
+        void writeItems(CustomBrewRecipeRegister.CustomRecipeItems recipe){
+            writeRecipeItems(recipe.input());
+            writeRecipeItems(recipe.ingredient());
+            writeItem(recipe.output());
+        }
+
+        void writeComponents(CustomBrewRecipeRegister.CustomRecipeComponents recipe){
+            writeOptionalItem(recipe.input);
+            writeOptionalItem(recipe.ingredient);
+            writeItem(recipe.output);
+            writeComponentMap(recipe.input_components);
+            writeComponentMap(recipe.ingredient_components);
+            writeComponentMap(recipe.output_components);
+            writeComponentType(recipe.input_component_type);
+            writeComponentType(recipe.ingredient_component_type);
+            writeConstraints(recipe.input_constraints);
+            writeConstraints(recipe.ingredient_constraints);
+        }
+
+        void writeNbt(CustomBrewRecipeRegister.CustomRecipeNBTOnly recipe){
+            writeOptionalItem(recipe.input);
+            writeOptionalItem(recipe.ingredient);
+            writeItem(recipe.output);
+            buf.writeVarInt(ref(recipe.input_nbt));
+            buf.writeVarInt(ref(recipe.ingredient_nbt));
+            buf.writeVarInt(ref(recipe.output_nbt));
+            writeOptionalString(recipe.input_nbt_field);
+            writeOptionalString(recipe.ingredient_nbt_field);
+        }
+
+        private void writeItem(Item item){
+            buf.writeVarInt(Registries.ITEM.getRawId(item));
+        }
+
+        private void writeOptionalItem(@Nullable Item item){
+            buf.writeVarInt(item == null ? 0 : Registries.ITEM.getRawId(item) + 1);
+        }
+
+        private void writeRecipeItems(RecipeItems items){
+            if(items.getTag() != null){
+                buf.writeByte(ITEMS_TAG);
+                buf.writeString(items.getTag().id().toString());
+                return;
+            }
+            buf.writeByte(ITEMS_LIST);
+            buf.writeVarInt(items.getItems().size());
+            for(Item item : items.getItems()){
+                writeItem(item);
+            }
+        }
+
+        private void writeComponentType(@Nullable ComponentType<?> type){
+            buf.writeVarInt(type == null ? 0 : Registries.DATA_COMPONENT_TYPE.getRawId(type) + 1);
+        }
+
+        private void writeComponentMap(@Nullable ComponentMap components){
+            if(components == null){
+                buf.writeVarInt(0);
+                return;
+            }
+            //The size + 1, so an empty map isn't read as null
+            buf.writeVarInt(components.size() + 1);
+            for(Component<?> component : components){
+                buf.writeVarInt(ref(component));
+            }
+        }
+
+        private void writeConstraints(@Nullable ComponentConstraints constraints){
+            if(constraints == null){
+                buf.writeVarInt(0);
+                return;
+            }
+            buf.writeVarInt(constraints.getTypes().size() + 1);
+            for(int i = 0; i < constraints.getTypes().size(); i++){
+                writeComponentType(constraints.getTypes().get(i));
+                Object value = constraints.getValues().get(i);
+                buf.writeVarInt(value == null ? 0 : ref(component(constraints.getTypes().get(i), value)));
+            }
+        }
+
+        private void writeOptionalString(@Nullable String string){
+            buf.writeBoolean(string != null);
+            if(string != null){
+                buf.writeString(string);
+            }
+        }
+
+        private int ref(@Nullable Object payload){
+            if(payload == null){
+                return 0;
+            }
+            return pool_ids.computeIfAbsent(payload, p -> {
+                pool.add(p);
+                return pool.size() - 1;
+            }) + 1;
+        }
+
+        /**Puts together the header, the pool and the recipes*/
+        byte[] finish(byte mode, int old_generation, int generation){
+            RegistryByteBuf out = new RegistryByteBuf(Unpooled.buffer(), registries);
+            out.writeVarInt(FORMAT_VERSION);
+            out.writeByte(mode);
+            out.writeVarInt(old_generation);
+            out.writeVarInt(generation);
+            out.writeVarInt(pool.size());
+            for(Object payload : pool){
+                if(payload instanceof NbtElement nbt){
+                    out.writeByte(POOL_NBT);
+                    out.writeNbt(nbt);
+                }else{
+                    out.writeByte(POOL_COMPONENT);
+                    writePooledComponent(out, (Component<?>) payload);
+                }
+            }
+            out.writeBytes(buf);
+            return ByteBufUtil.getBytes(out);
+        }
+
+        private static <T> void writePooledComponent(RegistryByteBuf out, Component<T> component){
+            out.writeVarInt(Registries.DATA_COMPONENT_TYPE.getRawId(component.type()));
+            component.type().getPacketCodec().encode(out, component.value());
+        }
+
+        @SuppressWarnings("unchecked")
+        private static <T> Component<T> component(ComponentType<T> type, Object value){
+            return new Component<>(type, (T) value);
+        }
+    }
+
+    private static final class Reader {
+
+        private final RegistryByteBuf buf;
+        private Object[] pool;
+
+        Reader(RegistryByteBuf buf) {
+            this.buf = buf;
+        }
+
+        void readPool(){
+            pool = new Object[buf.readVarInt()];
+            for(int i = 0; i < pool.length; i++){
+                byte kind = buf.readByte();
+                pool[i] = kind == POOL_NBT ? buf.readNbt(NbtSizeTracker.ofUnlimitedBytes()) : readPooledComponent();
+            }
+        }
+
+        private Component<?> readPooledComponent(){
+            return readComponentValue(byRawId(Registries.DATA_COMPONENT_TYPE, buf.readVarInt(), "component type"));
+        }
+
+        private <T> Component<T> readComponentValue(ComponentType<T> type){
+            return new Component<>(type, type.getPacketCodec().decode(buf));
+        }
+
+        /**Reads the recipes of one kind, keeping the unchanged ones of the base (and their compiled form) if it's a delta*/
+        <T> void readChanges(boolean delta, List<T> base, List<CompiledRecipe> base_compiled, List<T> recipes, List<CompiledRecipe> compiled,
+                             Supplier<T> read, Function<T, CompiledRecipe> compile){
+            int start = delta ? buf.readVarInt() : 0;
+            int end = delta ? buf.readVarInt() : 0;
+            if(start + end > base.size()){
+                throw new IllegalStateException("The brewing recipe changes don't match the recipes received before");
+            }
+            recipes.addAll(base.subList(0, start));
+            compiled.addAll(base_compiled.subList(0, start));
+            int count = buf.readVarInt();
+            List<T> read_recipes = new ArrayList<>(count);
+            for(int i = 0; i < count; i++){
+                read_recipes.add(read.get());
+            }
+            List<String> errors = new ArrayList<>();
+            List<CompiledRecipe> read_compiled = ParallelCompiler.compileAll(read_recipes, compile, errors);
+            if(!errors.isEmpty()){
+                throw new IllegalStateException(errors.size() + " invalid brewing recipes, like: " + errors.get(0));
+            }
+            recipes.addAll(read_recipes);
+            compiled.addAll(read_compiled);
+            recipes.addAll(base.subList(base.size() - end, base.size()));
+            compiled.addAll(base_compiled.subList(base.size() - end, base.size()));
+        }
+
+        CustomBrewRecipeRegister.CustomRecipe<Item> readPlain(){
+            return new CustomBrewRecipeRegister.CustomRecipe<>(readItem(), readItem(), readItem());
+        }
+
+        CustomBrewRecipeRegister.CustomRecipeItems readItems(){
+            return new CustomBrewRecipeRegister.CustomRecipeItems(readRecipeItems(), readRecipeItems(), readItem());
+        }
+
+        CustomBrewRecipeRegister.CustomRecipeComponents readComponents(){
+            CustomBrewRecipeRegister.CustomRecipeComponents recipe = new CustomBrewRecipeRegister.CustomRecipeComponents(readOptionalItem(), readOptionalItem(), readItem());
+            recipe.input_components = readComponentMap();
+            recipe.ingredient_components = readComponentMap();
+            recipe.output_components = readComponentMap();
+            recipe.input_component_type = readComponentType();
+            recipe.ingredient_component_type = readComponentType();
+            recipe.input_constraints = readConstraints();
+            recipe.ingredient_constraints = readConstraints();
+            return recipe;
+        }
+
+        CustomBrewRecipeRegister.CustomRecipeNBTOnly readNbt(){
+            CustomBrewRecipeRegister.CustomRecipeNBTOnly recipe = new CustomBrewRecipeRegister.CustomRecipeNBTOnly(readOptionalItem(), readOptionalItem(), readItem());
+            recipe.input_nbt = (NbtElement) pooled(buf.readVarInt());
+            recipe.ingredient_nbt = (NbtElement) pooled(buf.readVarInt());
+            recipe.output_nbt = (NbtElement) pooled(buf.readVarInt());
+            recipe.input_nbt_field = buf.readBoolean() ? buf.readString() : null;
+            recipe.ingredient_nbt_field = buf.readBoolean() ? buf.readString() : null;
+            return recipe;
+        }
+
+        private Item readItem(){
+            return byRawId(Registries.ITEM, buf.readVarInt(), "item");
+        }
+
+        @Nullable
+        private Item readOptionalItem(){
+            int id = buf.readVarInt();
+            return id == 0 ? null : byRawId(Registries.ITEM, id - 1, "item");
+        }
+
+        private RecipeItems readRecipeItems(){
+            if(buf.readByte() == ITEMS_TAG){
+                return RecipeItems.ofTag(TagKey.of(RegistryKeys.ITEM, Identifier.of(buf.readString())));
+            }
+            Item[] items = new Item[buf.readVarInt()];
+            for(int i = 0; i < items.length; i++){
+                items[i] = readItem();
+            }
+            return RecipeItems.of(items);
+        }
+
+        @Nullable
+        private ComponentType<?> readComponentType(){
+            int id = buf.readVarInt();
+            return id == 0 ? null : byRawId(Registries.DATA_COMPONENT_TYPE, id - 1, "component type");
+        }
+
+        /**Looks up an entry sent by the server. An id the client doesn't know isn't read as the default entry (like air),
+         * which would silently change the recipe: it means the registries of the server and of the client differ*/
+        private static <T> T byRawId(Registry<T> registry, int raw_id, String kind){
+            return registry.getEntry(raw_id).orElseThrow(() -> new DecoderException(
+                    "Unknown " + kind + " with raw id " + raw_id + " in the brewing recipes sent by the server, its registries don't match the ones of the client")).value();
+        }
+
+        @Nullable
+        private ComponentMap readComponentMap(){
+            int size = buf.readVarInt() - 1;
+            if(size < 0){
+                return null;
+            }
+            ComponentMap.Builder components = ComponentMap.builder();
+            for(int i = 0; i < size; i++){
+                add(components, (Component<?>) pooled(buf.readVarInt()));
+            }
+            return components.build();
+        }
+
+        @Nullable
+        private ComponentConstraints readConstraints(){
+            int size = buf.readVarInt() - 1;
+            if(size < 0){
+                return null;
+            }
+            ComponentConstraints.Builder constraints = ComponentConstraints.builder();
+            for(int i = 0; i < size; i++){
+                ComponentType<?> type = readComponentType();
+                Component<?> value = (Component<?>) pooled(buf.readVarInt());
+                if(value == null){
+                    constraints.has(type);
+                }else{
+                    with(constraints, value);
+                }
+            }
+            return constraints.build();
+        }
+
+        @Nullable
+        private Object pooled(int ref){
+            return ref == 0 ? null : pool[ref - 1];
+        }
+
+        private static <T> void add(ComponentMap.Builder components, Component<T> component){
+            components.add(component.type(), component.value());
+        }
+
+        private static <T> void with(ComponentConstraints.Builder constraints, Component<T> component){
+            constraints.with(component.type(), component.value());
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import net.minecraft.item.Item;
+import net.minecraft.registry.entry.RegistryEntry;
+import net.minecraft.registry.tag.TagKey;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**The items accepted as the input or the ingredient of a {@link CustomBrewRecipeRegister.CustomRecipeItems}:
+ * either all the items in a tag, or a fixed set of items.
+ * <p>
+ * When the recipe is compiled these are turned into a set of raw item ids, so matching a stack is a single bit test
+ * no matter how many items there are. Tags are only known once the datapacks are loaded, so the recipes using
+ * them are compiled again every time the item tags are (re)loaded.
+ * */
+public final class RecipeItems {
+
+    @Nullable
+    private final TagKey<Item> tag;
+    private final List<Item> items;
+
+    private RecipeItems(@Nullable TagKey<Item> tag, List<Item> items) {
+        this.tag = tag;
+        this.items = items;
+    }
+
+    /**All the items in the tag, like {@code ItemTags.LOGS}*/
+    public static RecipeItems ofTag(TagKey<Item> tag){
+        return new RecipeItems(Objects.requireNonNull(tag, "tag"), List.of());
+    }
+
+    /**Any of the given items*/
+    public static RecipeItems of(Item... items){
+        return new RecipeItems(null, List.of(items));
+    }
+
+    /**Any of the given items*/
+    public static RecipeItems of(Collection<Item> items){
+        return new RecipeItems(null, List.copyOf(items));
+    }
+
+    /**The tag, or null if this is a fixed set of items*/
+    @Nullable
+    public TagKey<Item> getTag() {
+        return tag;
+    }
+
+    /**The items, empty if this is a tag*/
+    public List<Item> getItems() {
+        return items;
+    }
+
+    /**Returns true if this depends on a tag, and so changes when the tags are reloaded*/
+    public boolean isTag(){
+        return tag != null;
+    }
+
+    /**The raw ids of the items, with the tags as they are loaded right now*/
+    BitSet toRawIds(){
+        return toRawIds(ItemTagContents.LOADED);
+    }
+
+    /**The raw ids of the items, with the given tags*/
+    BitSet toRawIds(ItemTagContents tags){
+        BitSet raw_ids = new BitSet();
+        if(tag != null){
+            for(RegistryEntry<Item> entry : tags.getEntries(tag)){
+                raw_ids.set(ItemStackAccess.INSTANCE.getRawId(entry.value()));
+            }
+        }
+        for(Item item : items){
+            raw_ids.set(ItemStackAccess.INSTANCE.getRawId(item));
+        }
+        return raw_ids;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RecipeItems that)) return false;
+        return Objects.equals(tag, that.tag) && items.equals(that.items);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tag, items);
+    }
+
+    @Override
+    public String toString() {
+        return tag != null ? "#" + tag.id() : items.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import net.minecraft.item.ItemStack;
+import net.minecraft.registry.Registries;
+import net.minecraft.util.math.BlockPos;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.IntConsumer;
+
+/**Java Flight Recorder event for the lookup of a custom recipe for a brewing stand, so the time spent matching
+ * recipes can be linked to the stand and the recipe in a recording.
+ * <p>
+ * It's disabled by default, enable it in the recording settings, for example with
+ * {@code jcmd <pid> JFR.start custombrewrecipes.RecipeLookup#enabled=true custombrewrecipes.RecipeLookup#threshold=1ms}
+ * (the threshold can be left at zero to record every lookup).
+ * While it's disabled, nothing is created or recorded.
+ * */
+@Name(RecipeLookupEvent.NAME)
+@Label("Brewing Recipe Lookup")
+@Description("Lookup of a custom brewing recipe for an input and an ingredient")
+@Category({"CustomBrewRecipes"})
+@Enabled(false)
+@Threshold("0 ms")
+@StackTrace(false)
+public final class RecipeLookupEvent extends jdk.jfr.Event implements IntConsumer {
+
+    public static final String NAME = "custombrewrecipes.RecipeLookup";
+
+    private static final EventType TYPE = EventType.getEventType(RecipeLookupEvent.class);
+
+    @Label("Entry Point")
+    @Description("The vanilla method the lookup comes from")
+    String entryPoint;
+
+    @Label("Input")
+    String input;
+
+    @Label("Ingredient")
+    String ingredient;
+
+    @Label("Recipe")
+    @Description("The matching recipe, empty if none matched")
+    String recipe;
+
+    @Label("Candidates")
+    @Description("The number of candidate recipes tested")
+    int candidates;
+
+    @Label("Position Known")
+    boolean positionKnown;
+
+    @Label("X")
+    int x;
+
+    @Label("Y")
+    int y;
+
+    @Label("Z")
+    int z;
+
+    /**Returns true if a recording has turned the event on*/
+    static boolean isTypeEnabled(){
+        return TYPE.isEnabled();
+    }
+
+    /**Receives the number of candidates tested by the lookup, which can come in more than one part*/
+    @Override
+    public void accept(int candidates) {
+        this.candidates += candidates;
+    }
+
+    /**Ends the event and commits it if it's over the threshold
+     *
+     * @param entry_point Where the lookup came from
+     * @param input The input itemstack
+     * @param ingredient The ingredient itemstack
+     * @param recipe The recipe that matched, or null if none did
+     * @param pos The position of the brewing stand, or null if it isn't known
+     * */
+    void finish(RecipeMetrics.EntryPoint entry_point, ItemStack input, ItemStack ingredient, @Nullable CompiledRecipe recipe, @Nullable BlockPos pos){
+        end();
+        if(!shouldCommit()){
+            return;
+        }
+        //Only turned into strings once we know the event is kept
+        this.entryPoint = entry_point.name();
+        this.input = Registries.ITEM.getId(input.getItem()).toString();
+        this.ingredient = Registries.ITEM.getId(ingredient.getItem()).toString();
+        this.recipe = recipe != null ? String.valueOf(recipe.getRecipe()) : "";
+        if(pos != null){
+            this.positionKnown = true;
+            this.x = pos.getX();
+            this.y = pos.getY();
+            this.z = pos.getZ();
+        }
+        commit();
+    }
+}
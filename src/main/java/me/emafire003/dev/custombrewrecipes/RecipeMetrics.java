@@ -0,0 +1,197 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+
+/**Counts how the custom recipes are looked up: which recipes match the most,
+ * how many lookups each injection does, how many candidate recipes they test and how long they take.
+ * <p>
+ * This is off by default, and costs a couple of flag checks per lookup while off.
+ * Turn it on with {@link #setEnabled(boolean)} or by starting the game with {@code -Dcustombrewrecipes.metrics=true}.
+ * The counters are {@link LongAdder}s, so the threads recording them don't contend with each other.
+ * <p>
+ * Lookups answered by the cache of a brewing stand (see {@link BrewingStandRecipeCache}) aren't counted,
+ * since they don't look anything up.
+ * */
+@SuppressWarnings("unused")
+public final class RecipeMetrics {
+
+    /**The latency histogram has a bucket for each power of two of nanoseconds, the last one also holds anything slower*/
+    public static final int LATENCY_BUCKETS = 32;
+
+    private static volatile boolean ENABLED = Boolean.getBoolean("custombrewrecipes.metrics");
+
+    private static final LongAdder[] LOOKUPS = adders(EntryPoint.values().length);
+    private static final LongAdder[] CANDIDATES = adders(EntryPoint.values().length);
+    private static final LongAdder[][] LATENCY = new LongAdder[EntryPoint.values().length][];
+    private static final Map<CompiledRecipe, LongAdder> HITS = new ConcurrentHashMap<>();
+
+    /**One per entry point, so recording the candidates doesn't allocate*/
+    private static final IntConsumer[] CANDIDATE_COUNTERS = new IntConsumer[EntryPoint.values().length];
+
+    static {
+        for(EntryPoint entry_point : EntryPoint.values()){
+            LATENCY[entry_point.ordinal()] = adders(LATENCY_BUCKETS);
+            LongAdder candidates = CANDIDATES[entry_point.ordinal()];
+            CANDIDATE_COUNTERS[entry_point.ordinal()] = candidates::add;
+        }
+    }
+
+    private RecipeMetrics() {
+    }
+
+    /**The vanilla methods that look up custom recipes*/
+    public enum EntryPoint {
+        /**BrewingRecipeRegistry#craft*/
+        CRAFT,
+        /**BrewingRecipeRegistry#hasRecipe, and the brewing stand checking if it can brew*/
+        HAS_RECIPE,
+        /**BrewingRecipeRegistry#isValidIngredient*/
+        IS_VALID_INGREDIENT,
+        /**BrewingStandBlockEntity#isValid*/
+        IS_VALID,
+        /**BrewingStandScreenHandler.PotionSlot#matches*/
+        POTION_SLOT
+    }
+
+    public static boolean isEnabled(){
+        return ENABLED;
+    }
+
+    /**Starts or stops recording. The numbers recorded so far are kept, use {@link #reset()} to clear them*/
+    public static void setEnabled(boolean enabled){
+        ENABLED = enabled;
+    }
+
+    /**Clears everything recorded so far*/
+    public static void reset(){
+        for(int i = 0; i < LOOKUPS.length; i++){
+            LOOKUPS[i].reset();
+            CANDIDATES[i].reset();
+            for(LongAdder bucket : LATENCY[i]){
+                bucket.reset();
+            }
+        }
+        HITS.clear();
+    }
+
+    /**Gets the counter that a lookup reports the number of tested candidates to*/
+    static IntConsumer candidates(EntryPoint entry_point){
+        return CANDIDATE_COUNTERS[entry_point.ordinal()];
+    }
+
+    /**Records a lookup
+     *
+     * @param entry_point Where the lookup came from
+     * @param recipe The recipe that matched, or null if none did or the lookup doesn't find a recipe
+     * @param start When the lookup started, from {@link System#nanoTime()}
+     * */
+    static void record(EntryPoint entry_point, @Nullable CompiledRecipe recipe, long start){
+        long nanos = System.nanoTime() - start;
+        LOOKUPS[entry_point.ordinal()].increment();
+        LATENCY[entry_point.ordinal()][bucket(nanos)].increment();
+        if(recipe != null){
+            HITS.computeIfAbsent(recipe, r -> new LongAdder()).increment();
+        }
+    }
+
+    private static int bucket(long nanos){
+        //Bucket n holds the lookups that took less than 2^n nanoseconds
+        int bucket = 64 - Long.numberOfLeadingZeros(Math.max(nanos, 0));
+        return Math.min(bucket, LATENCY_BUCKETS - 1);
+    }
+
+    /**Returns how many lookups have been done from the entry point*/
+    public static long getLookups(EntryPoint entry_point){
+        return LOOKUPS[entry_point.ordinal()].sum();
+    }
+
+    /**Returns how many candidate recipes the lookups from the entry point have tested in total*/
+    public static long getCandidatesScanned(EntryPoint entry_point){
+        return CANDIDATES[entry_point.ordinal()].sum();
+    }
+
+    /**Returns how many lookups from the entry point fall in each latency bucket.
+     * Bucket n counts the lookups that took less than 2^n nanoseconds (and at least 2^(n-1)),
+     * the last bucket also counts the slower ones.*/
+    public static long[] getLatencyHistogram(EntryPoint entry_point){
+        LongAdder[] buckets = LATENCY[entry_point.ordinal()];
+        long[] histogram = new long[buckets.length];
+        for(int i = 0; i < buckets.length; i++){
+            histogram[i] = buckets[i].sum();
+        }
+        return histogram;
+    }
+
+    /**Returns how many times the recipe has been the one matching a lookup*/
+    public static long getHits(CompiledRecipe recipe){
+        LongAdder hits = HITS.get(recipe);
+        return hits != null ? hits.sum() : 0;
+    }
+
+    /**Returns how many times each recipe has matched, from the most used one.
+     * Recipes that never matched aren't included.*/
+    public static Map<CompiledRecipe, Long> getHits(){
+        List<Map.Entry<CompiledRecipe, Long>> entries = new ArrayList<>();
+        HITS.forEach((recipe, hits) -> entries.add(Map.entry(recipe, hits.sum())));
+        entries.sort(Map.Entry.<CompiledRecipe, Long>comparingByValue(Comparator.reverseOrder()));
+        Map<CompiledRecipe, Long> sorted = new LinkedHashMap<>();
+        for(Map.Entry<CompiledRecipe, Long> entry : entries){
+            sorted.put(entry.getKey(), entry.getValue());
+        }
+        return sorted;
+    }
+
+    /**Writes everything recorded so far to a text file, replacing it if it exists
+     *
+     * @param file Where to write the report
+     * */
+    public static void dump(Path file) throws IOException {
+        StringBuilder report = new StringBuilder();
+        report.append("CustomBrewRecipes lookup metrics (").append(ENABLED ? "enabled" : "disabled").append(")\n\n");
+        for(EntryPoint entry_point : EntryPoint.values()){
+            long lookups = getLookups(entry_point);
+            long candidates = getCandidatesScanned(entry_point);
+            report.append(entry_point).append(": ").append(lookups).append(" lookups, ")
+                    .append(candidates).append(" candidates scanned");
+            if(lookups > 0){
+                report.append(String.format(" (%.2f per lookup)", (double) candidates / lookups));
+            }
+            report.append('\n');
+            long[] histogram = getLatencyHistogram(entry_point);
+            for(int i = 0; i < histogram.length; i++){
+                if(histogram[i] > 0){
+                    report.append("  ").append(i == histogram.length - 1 ? ">= " : "< ").append(1L << (i == histogram.length - 1 ? i - 1 : i))
+                            .append(" ns: ").append(histogram[i]).append('\n');
+                }
+            }
+        }
+        report.append("\nRecipe hits:\n");
+        getHits().forEach((recipe, hits) -> report.append(hits).append(' ').append(recipe.getRecipe()).append('\n'));
+
+        Path parent = file.toAbsolutePath().getParent();
+        if(parent != null){
+            Files.createDirectories(parent);
+        }
+        Files.writeString(file, report);
+    }
+
+    private static LongAdder[] adders(int size){
+        LongAdder[] adders = new LongAdder[size];
+        for(int i = 0; i < size; i++){
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
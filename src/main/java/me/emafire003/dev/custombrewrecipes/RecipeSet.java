@@ -0,0 +1,128 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import net.minecraft.item.Item;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**An immutable group of recipes, together with their compiled form.
+ * <p>
+ * The registered recipes are made of two of these, see {@link RecipeSnapshot}:
+ * the ones registered from code, and the ones loaded from datapacks.
+ * <p>
+ * Adding recipes doesn't copy the ones already in the set, see {@link AppendList}.
+ * */
+final class RecipeSet {
+
+    static final RecipeSet EMPTY = new RecipeSet(List.of(), List.of(), List.of(), List.of(), List.of(), List.of(), List.of(), List.of());
+
+    final AppendList<CustomBrewRecipeRegister.CustomRecipe<Item>> recipes;
+    final AppendList<CustomBrewRecipeRegister.CustomRecipeItems> recipes_items;
+    final AppendList<CustomBrewRecipeRegister.CustomRecipeComponents> recipes_components;
+    final AppendList<CustomBrewRecipeRegister.CustomRecipeNBTOnly> recipes_nbt;
+
+    final AppendList<CompiledRecipe> compiled;
+    final AppendList<CompiledRecipe> compiled_items;
+    final AppendList<CompiledRecipe> compiled_components;
+    final AppendList<CompiledRecipe> compiled_nbt;
+
+    /**The lists are copied, unless they already are {@link AppendList}s*/
+    RecipeSet(List<CustomBrewRecipeRegister.CustomRecipe<Item>> recipes, List<CustomBrewRecipeRegister.CustomRecipeItems> recipes_items,
+              List<CustomBrewRecipeRegister.CustomRecipeComponents> recipes_components, List<CustomBrewRecipeRegister.CustomRecipeNBTOnly> recipes_nbt,
+              List<CompiledRecipe> compiled, List<CompiledRecipe> compiled_items,
+              List<CompiledRecipe> compiled_components, List<CompiledRecipe> compiled_nbt) {
+        this.recipes = AppendList.of(recipes);
+        this.recipes_items = AppendList.of(recipes_items);
+        this.recipes_components = AppendList.of(recipes_components);
+        this.recipes_nbt = AppendList.of(recipes_nbt);
+        this.compiled = AppendList.of(compiled);
+        this.compiled_items = AppendList.of(compiled_items);
+        this.compiled_components = AppendList.of(compiled_components);
+        this.compiled_nbt = AppendList.of(compiled_nbt);
+    }
+
+    RecipeSet with(CustomBrewRecipeRegister.CustomRecipe<Item> recipe, CompiledRecipe compiled_recipe){
+        return new RecipeSet(recipes.with(recipe), recipes_items, recipes_components, recipes_nbt,
+                compiled.with(compiled_recipe), compiled_items, compiled_components, compiled_nbt);
+    }
+
+    RecipeSet with(CustomBrewRecipeRegister.CustomRecipeItems recipe, CompiledRecipe compiled_recipe){
+        return new RecipeSet(recipes, recipes_items.with(recipe), recipes_components, recipes_nbt,
+                compiled, compiled_items.with(compiled_recipe), compiled_components, compiled_nbt);
+    }
+
+    RecipeSet with(CustomBrewRecipeRegister.CustomRecipeComponents recipe, CompiledRecipe compiled_recipe){
+        return new RecipeSet(recipes, recipes_items, recipes_components.with(recipe), recipes_nbt,
+                compiled, compiled_items, compiled_components.with(compiled_recipe), compiled_nbt);
+    }
+
+    RecipeSet with(CustomBrewRecipeRegister.CustomRecipeNBTOnly recipe, CompiledRecipe compiled_recipe){
+        return new RecipeSet(recipes, recipes_items, recipes_components, recipes_nbt.with(recipe),
+                compiled, compiled_items, compiled_components, compiled_nbt.with(compiled_recipe));
+    }
+
+    /**Returns a set with the recipes of this one followed by the ones of the other one*/
+    RecipeSet withAll(RecipeSet added){
+        if(added.isEmpty()){
+            return this;
+        }
+        if(isEmpty()){
+            return added;
+        }
+        return new RecipeSet(recipes.withAll(added.recipes), recipes_items.withAll(added.recipes_items),
+                recipes_components.withAll(added.recipes_components), recipes_nbt.withAll(added.recipes_nbt),
+                compiled.withAll(added.compiled), compiled_items.withAll(added.compiled_items),
+                compiled_components.withAll(added.compiled_components), compiled_nbt.withAll(added.compiled_nbt));
+    }
+
+    /**Returns a set where the recipes using item tags are compiled again with the given tags,
+     * or this same set if none of them changes*/
+    RecipeSet withTagsRecompiled(ItemTagContents tags){
+        List<CompiledRecipe> recompiled = null;
+        for(int i = 0; i < recipes_items.size(); i++){
+            CustomBrewRecipeRegister.CustomRecipeItems recipe = recipes_items.get(i);
+            if(recipe.input().isTag() || recipe.ingredient().isTag()){
+                CompiledRecipe compiled_recipe = CompiledRecipe.of(recipe, tags);
+                if(compiled_recipe.hasSameMatchers(compiled_items.get(i))){
+                    continue;
+                }
+                if(recompiled == null){
+                    recompiled = new ArrayList<>(compiled_items);
+                }
+                recompiled.set(i, compiled_recipe);
+            }
+        }
+        if(recompiled == null){
+            return this;
+        }
+        return new RecipeSet(recipes, recipes_items, recipes_components, recipes_nbt, compiled, recompiled, compiled_components, compiled_nbt);
+    }
+
+    boolean isEmpty(){
+        return size() == 0;
+    }
+
+    int size(){
+        return compiled.size() + compiled_items.size() + compiled_components.size() + compiled_nbt.size();
+    }
+
+    /**All the compiled recipes, in the order in which they are checked*/
+    List<CompiledRecipe> inLookupOrder(){
+        CompiledRecipe[] all = new CompiledRecipe[size()];
+        int i = 0;
+        for(CompiledRecipe recipe : compiled){
+            all[i++] = recipe;
+        }
+        for(CompiledRecipe recipe : compiled_items){
+            all[i++] = recipe;
+        }
+        for(CompiledRecipe recipe : compiled_components){
+            all[i++] = recipe;
+        }
+        for(CompiledRecipe recipe : compiled_nbt){
+            all[i++] = recipe;
+        }
+        return Arrays.asList(all);
+    }
+}
@@ -0,0 +1,197 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import me.emafire003.dev.custombrewrecipes.core.RecipeAnalysis;
+import me.emafire003.dev.custombrewrecipes.core.RecipeLookup;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**The registered recipes at one point in time.
+ * <p>
+ * A snapshot is never modified: registering a recipe creates a new snapshot with the recipe added
+ * and {@link CustomBrewRecipeRegister} swaps it in, so a thread that is reading the recipes
+ * always sees a complete and consistent set of them, without locking.
+ * <p>
+ * The recipes registered from code and the ones loaded from datapacks are kept apart, so that
+ * reloading the datapacks only replaces the latter. For each kind of recipe, the ones from code are checked first.
+ * <p>
+ * The recipes that can never be used (see {@link RecipeAnalysis}) are logged and left out of the lookup,
+ * but are still part of the snapshot. They are only logged when they change, not every time a lookup is
+ * built with the same recipes, like after the tags are reloaded.
+ * */
+final class RecipeSnapshot {
+
+    static final RecipeSnapshot EMPTY = new RecipeSnapshot(RecipeSet.EMPTY, RecipeSet.EMPTY, 0, null, true);
+
+    /**The recipes that can never be used that have been logged last, guarded by the class*/
+    private static List<Object> REPORTED = List.of();
+
+    /**The recipes registered from code*/
+    final RecipeSet code;
+    /**The recipes loaded from datapacks*/
+    final RecipeSet datapack;
+    /**Both of the above, in the order they are checked. Put together the first time it's needed,
+     * so registering recipes one by one after the datapacks are loaded doesn't copy all of them every time*/
+    @Nullable
+    private volatile RecipeSet all;
+
+    /**Changes every time the registered recipes change, used to know when cached lookups are outdated*/
+    final int generation;
+
+    /**Built the first time it's needed, by a single thread*/
+    @Nullable
+    private volatile RecipeLookup<ItemStack, Item, CompiledRecipe> lookup;
+    /**If the recipes that can never be used are logged, which they aren't when they came from a server*/
+    private final boolean reports;
+
+    private RecipeSnapshot(RecipeSet code, RecipeSet datapack, int generation, @Nullable RecipeLookup<ItemStack, Item, CompiledRecipe> lookup, boolean reports) {
+        this.code = code;
+        this.datapack = datapack;
+        this.generation = generation;
+        this.lookup = lookup;
+        this.reports = reports;
+    }
+
+    RecipeSnapshot with(CustomBrewRecipeRegister.CustomRecipe<Item> recipe, CompiledRecipe compiled_recipe){
+        return new RecipeSnapshot(code.with(recipe, compiled_recipe), datapack, generation + 1, null, reports);
+    }
+
+    RecipeSnapshot with(CustomBrewRecipeRegister.CustomRecipeItems recipe, CompiledRecipe compiled_recipe){
+        return new RecipeSnapshot(code.with(recipe, compiled_recipe), datapack, generation + 1, null, reports);
+    }
+
+    RecipeSnapshot with(CustomBrewRecipeRegister.CustomRecipeComponents recipe, CompiledRecipe compiled_recipe){
+        return new RecipeSnapshot(code.with(recipe, compiled_recipe), datapack, generation + 1, null, reports);
+    }
+
+    RecipeSnapshot with(CustomBrewRecipeRegister.CustomRecipeNBTOnly recipe, CompiledRecipe compiled_recipe){
+        return new RecipeSnapshot(code.with(recipe, compiled_recipe), datapack, generation + 1, null, reports);
+    }
+
+    RecipeSnapshot withAll(RecipeSet added){
+        return new RecipeSnapshot(code.withAll(added), datapack, generation + 1, null, reports);
+    }
+
+    /**Compiles again the recipes using item tags with the given tags, returning this same snapshot if none of them changes*/
+    RecipeSnapshot withTagsRecompiled(ItemTagContents tags){
+        RecipeSet recompiled_code = code.withTagsRecompiled(tags);
+        RecipeSet recompiled_datapack = datapack.withTagsRecompiled(tags);
+        if(recompiled_code == code && recompiled_datapack == datapack){
+            return this;
+        }
+        return new RecipeSnapshot(recompiled_code, recompiled_datapack, generation + 1, null, reports);
+    }
+
+    /**Creates a snapshot with the recipes from code of this one and the given datapack recipes, both compiled
+     * with the given tags, and builds its lookup right away. Meant to be called off-thread, before {@link #withDatapack(Prepared)}*/
+    Prepared prepareDatapack(RecipeSet datapack, ItemTagContents tags){
+        RecipeSnapshot snapshot = new RecipeSnapshot(code.withTagsRecompiled(tags), datapack, generation, null, reports);
+        snapshot.getLookup();
+        return new Prepared(code, snapshot);
+    }
+
+    /**Replaces the datapack recipes with the ones of a prepared snapshot. Its recipes from code and its lookup are reused
+     * unless recipes have been registered from code since it was prepared, in which case the lookup is built again when needed.*/
+    RecipeSnapshot withDatapack(Prepared prepared){
+        if(prepared.base_code() == code){
+            return new RecipeSnapshot(prepared.snapshot().code, prepared.snapshot().datapack, generation + 1, prepared.snapshot().lookup, reports);
+        }
+        return new RecipeSnapshot(code, prepared.snapshot().datapack, generation + 1, null, reports);
+    }
+
+    /**Replaces all the recipes, like when going back to the local ones*/
+    RecipeSnapshot replacedWith(RecipeSet code, RecipeSet datapack){
+        return new RecipeSnapshot(code, datapack, generation + 1, null, true);
+    }
+
+    /**Replaces all the recipes with the ones sent by a server, which has already logged the ones that can never be used*/
+    RecipeSnapshot syncedWith(RecipeSet recipes){
+        return new RecipeSnapshot(recipes, RecipeSet.EMPTY, generation + 1, null, false);
+    }
+
+    /**All the recipes, the ones from code followed by the ones from datapacks*/
+    RecipeSet all(){
+        RecipeSet all = this.all;
+        if(all == null){
+            all = code.withAll(datapack);
+            this.all = all;
+        }
+        return all;
+    }
+
+    /**Returns true if the lookup of this snapshot has already been built*/
+    boolean hasLookup(){
+        return lookup != null;
+    }
+
+    /**Gets the lookup index and prefilters of the recipes in this snapshot*/
+    RecipeLookup<ItemStack, Item, CompiledRecipe> getLookup(){
+        RecipeLookup<ItemStack, Item, CompiledRecipe> lookup = this.lookup;
+        if(lookup == null){
+            //The other threads wait for it instead of building it too
+            synchronized (this){
+                lookup = this.lookup;
+                if(lookup == null){
+                    RecipeAnalysis<CompiledRecipe> analysis = RecipeAnalysis.analyze(all().inLookupOrder());
+                    if(reports){
+                        report(analysis);
+                    }
+                    lookup = RecipeLookup.build(ItemStackAccess.INSTANCE, analysis.getKept(), ParallelCompiler.isParallel(analysis.getKept().size()));
+                    this.lookup = lookup;
+                }
+            }
+        }
+        return lookup;
+    }
+
+    /**Logs the recipes left out of the lookup, so their authors can fix them, unless they are the same ones logged last.
+     * The recipes are compared by identity: reloading the datapacks creates new ones, reloading the tags doesn't*/
+    private static void report(RecipeAnalysis<CompiledRecipe> analysis){
+        List<Object> unreachable_recipes = new ArrayList<>(analysis.getUnreachable().size());
+        for(RecipeAnalysis.Unreachable<CompiledRecipe> unreachable : analysis.getUnreachable()){
+            unreachable_recipes.add(unreachable.recipe().getRecipe());
+        }
+        synchronized (RecipeSnapshot.class){
+            if(isSame(unreachable_recipes, REPORTED)){
+                return;
+            }
+            REPORTED = unreachable_recipes;
+        }
+        if(analysis.getUnreachable().isEmpty()){
+            return;
+        }
+        CustomBrewRecipeRegister.LOGGER.warn("{} brewing recipes can never be used, because an earlier recipe always matches first. They will be skipped:",
+                analysis.getUnreachable().size());
+        for(RecipeAnalysis.Unreachable<CompiledRecipe> unreachable : analysis.getUnreachable()){
+            String reason;
+            if(!unreachable.duplicate()){
+                reason = "shadowed by";
+            }else if(unreachable.recipe().hasSameOutput(unreachable.covered_by())){
+                reason = "a duplicate of";
+            }else{
+                reason = "a duplicate with a different output of";
+            }
+            CustomBrewRecipeRegister.LOGGER.warn(" - {} is {} {}", unreachable.recipe().getRecipe(), reason, unreachable.covered_by().getRecipe());
+        }
+    }
+
+    /**A snapshot prepared off-thread by {@link #prepareDatapack(RecipeSet, ItemTagContents)},
+     * and the recipes from code it was prepared from*/
+    record Prepared(RecipeSet base_code, RecipeSnapshot snapshot) {
+    }
+
+    private static boolean isSame(List<Object> recipes, List<Object> others){
+        if(recipes.size() != others.size()){
+            return false;
+        }
+        for(int i = 0; i < recipes.size(); i++){
+            if(recipes.get(i) != others.get(i)){
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,130 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import io.netty.buffer.Unpooled;
+import net.minecraft.network.packet.s2c.common.CustomPayloadS2CPacket;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.server.PlayerManager;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**Sends the recipes of the server to the clients, so the brewing stand screen accepts the same stacks as the server
+ * even for the recipes that only the server has, like the ones loaded from datapacks.
+ * <p>
+ * A player gets all the recipes when joining, and after a reload only what changed, written by {@link RecipeCodec}.
+ * Big sets of recipes are split in parts, see {@link RecipeSyncPayload}.
+ * <p>
+ * On the client, the received recipes replace the local ones until the player disconnects.
+ * The changes say which recipes they apply to, by generation: if the client has other ones (because it couldn't read
+ * some earlier recipes) it drops the received recipes and goes back to its own, until it joins again.
+ * The player hosting a singleplayer or LAN world shares the recipes with its server, so it isn't sent anything.
+ * */
+public final class RecipeSync {
+
+    /**The most bytes sent in a single payload*/
+    static final int MAX_PART_SIZE = 1 << 19;
+
+    /**Server side, the recipes that the players have been sent last*/
+    @Nullable
+    private static RecipeSet SENT;
+    /**Server side, the generation of the recipes sent last, increased every time they change*/
+    private static int SENT_GENERATION;
+    /**Client side, the generation of the recipes received last*/
+    private static int RECEIVED_GENERATION;
+    /**Client side, the parts of the recipes received so far*/
+    private static final ByteArrayOutputStream RECEIVING = new ByteArrayOutputStream();
+
+    private RecipeSync() {
+    }
+
+    /**Used (internally) to send the recipes to a player that just joined*/
+    public static void onPlayerJoin(PlayerManager players, ServerPlayerEntity player){
+        //The others are brought up to date first, so they all get the next changes from the same recipes.
+        //The player is already in the list, but has nothing yet to apply the changes to, so it only gets all the recipes
+        sendChanges(players, player);
+        if(!isHost(player)){
+            send(player, split(RecipeCodec.encode(SENT, SENT_GENERATION, player.getRegistryManager())));
+        }
+    }
+
+    /**Used (internally) to send what changed to all the players, after the datapacks have been reloaded*/
+    public static void sendChanges(PlayerManager players){
+        sendChanges(players, null);
+    }
+
+    private static void sendChanges(PlayerManager players, @Nullable ServerPlayerEntity except){
+        RecipeSet current = CustomBrewRecipeRegister.getRecipeSet();
+        if(current == SENT){
+            return;
+        }
+        if(SENT != null){
+            List<byte[]> delta = null;
+            for(ServerPlayerEntity player : players.getPlayerList()){
+                if(player == except || isHost(player)){
+                    continue;
+                }
+                if(delta == null){
+                    delta = split(RecipeCodec.encodeChanges(SENT, SENT_GENERATION, current, SENT_GENERATION + 1, player.getRegistryManager()));
+                }
+                send(player, delta);
+            }
+        }
+        SENT = current;
+        SENT_GENERATION++;
+    }
+
+    private static boolean isHost(ServerPlayerEntity player){
+        return player.server.isHost(player.getGameProfile());
+    }
+
+    private static void send(ServerPlayerEntity player, List<byte[]> parts){
+        for(int i = 0; i < parts.size(); i++){
+            player.networkHandler.sendPacket(new CustomPayloadS2CPacket(new RecipeSyncPayload(i, parts.size(), parts.get(i))));
+        }
+    }
+
+    /**Used (internally) when the client receives a part of the recipes, on the client thread*/
+    public static void receive(RecipeSyncPayload payload, DynamicRegistryManager registries){
+        if(payload.part() == 0){
+            RECEIVING.reset();
+        }
+        RECEIVING.writeBytes(payload.data());
+        if(payload.part() < payload.parts() - 1){
+            return;
+        }
+        byte[] data = RECEIVING.toByteArray();
+        RECEIVING.reset();
+        try{
+            RecipeCodec.Decoded decoded = RecipeCodec.decode(Unpooled.wrappedBuffer(data), CustomBrewRecipeRegister.getSyncedRecipes(), RECEIVED_GENERATION, registries);
+            if(decoded != null){
+                CustomBrewRecipeRegister.setSyncedRecipes(decoded.recipes());
+                RECEIVED_GENERATION = decoded.generation();
+            }
+        }catch (RuntimeException e){
+            //The next changes would be applied to other recipes than the server's, so they are ignored
+            //(there are no synced recipes to apply them to) until the player joins again and gets all of them
+            CustomBrewRecipeRegister.LOGGER.error("Couldn't read the brewing recipes sent by the server, using the local ones until joining again", e);
+            CustomBrewRecipeRegister.restoreLocalRecipes();
+        }
+    }
+
+    /**Used (internally) when the client disconnects, to go back to its own recipes*/
+    public static void onDisconnect(){
+        RECEIVING.reset();
+        RECEIVED_GENERATION = 0;
+        CustomBrewRecipeRegister.restoreLocalRecipes();
+    }
+
+    /**Splits the data in parts small enough for a payload*/
+    private static List<byte[]> split(byte[] data){
+        List<byte[]> parts = new ArrayList<>();
+        for(int start = 0; start < data.length || parts.isEmpty(); start += MAX_PART_SIZE){
+            parts.add(Arrays.copyOfRange(data, start, Math.min(data.length, start + MAX_PART_SIZE)));
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,35 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.codec.PacketCodec;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.util.Identifier;
+
+/**A part of the recipes sent to a client by {@link RecipeSync}.
+ * The recipes are split in parts so that even a lot of them stay below the size limit of a payload,
+ * the client puts them back together once it has the last one.
+ *
+ * @param part The index of this part
+ * @param parts How many parts there are
+ * @param data The bytes of this part
+ * */
+public record RecipeSyncPayload(int part, int parts, byte[] data) implements CustomPayload {
+
+    public static final CustomPayload.Id<RecipeSyncPayload> ID = new CustomPayload.Id<>(Identifier.of("custombrewrecipes", "recipes"));
+    public static final PacketCodec<PacketByteBuf, RecipeSyncPayload> CODEC = PacketCodec.of(RecipeSyncPayload::write, RecipeSyncPayload::read);
+
+    private static RecipeSyncPayload read(PacketByteBuf buf){
+        return new RecipeSyncPayload(buf.readVarInt(), buf.readVarInt(), buf.readByteArray());
+    }
+
+    private void write(PacketByteBuf buf){
+        buf.writeVarInt(part);
+        buf.writeVarInt(parts);
+        buf.writeByteArray(data);
+    }
+
+    @Override
+    public Id<? extends CustomPayload> getId() {
+        return ID;
+    }
+}
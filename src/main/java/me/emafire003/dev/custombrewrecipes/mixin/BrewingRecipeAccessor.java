@@ -0,0 +1,20 @@
+package me.emafire003.dev.custombrewrecipes.mixin;
+
+import net.minecraft.recipe.Ingredient;
+import net.minecraft.registry.entry.RegistryEntry;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+/**Reads the vanilla brewing recipes, whose record isn't public*/
+@Mixin(targets = "net.minecraft.recipe.BrewingRecipeRegistry$Recipe")
+public interface BrewingRecipeAccessor {
+
+    @Accessor("from")
+    RegistryEntry<?> custombrewrecipes$getFrom();
+
+    @Accessor("ingredient")
+    Ingredient custombrewrecipes$getIngredient();
+
+    @Accessor("to")
+    RegistryEntry<?> custombrewrecipes$getTo();
+}
@@ -1,15 +1,35 @@
 package me.emafire003.dev.custombrewrecipes.mixin;
 
+import com.llamalad7.mixinextras.injector.wrapoperation.Operation;
+import com.llamalad7.mixinextras.injector.wrapoperation.WrapOperation;
+import com.llamalad7.mixinextras.sugar.Local;
+import me.emafire003.dev.custombrewrecipes.BrewingStandRecipeCache;
+import me.emafire003.dev.custombrewrecipes.CompiledRecipe;
 import me.emafire003.dev.custombrewrecipes.CustomBrewRecipeRegister;
+import me.emafire003.dev.custombrewrecipes.RecipeMetrics;
 import net.minecraft.block.entity.BrewingStandBlockEntity;
 import net.minecraft.item.ItemStack;
+import net.minecraft.recipe.BrewingRecipeRegistry;
+import net.minecraft.util.collection.DefaultedList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
 import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
 import org.spongepowered.asm.mixin.injection.At;
 import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
 import org.spongepowered.asm.mixin.injection.callback.CallbackInfoReturnable;
 
 @Mixin(BrewingStandBlockEntity.class)
-public abstract class BrewingStandMixin {
+public abstract class BrewingStandMixin implements BrewingStandRecipeCache.Holder {
+
+    @Unique
+    private final BrewingStandRecipeCache custombrewrecipes$recipeCache = new BrewingStandRecipeCache();
+
+    @Override
+    public BrewingStandRecipeCache custombrewrecipes$getRecipeCache() {
+        return custombrewrecipes$recipeCache;
+    }
 
     @Inject(method = "isValid", at = @At(value = "HEAD"), cancellable = true)
     public void isValidInject(int slot, ItemStack stack, CallbackInfoReturnable<Boolean> cir) {
@@ -18,4 +38,35 @@ public abstract class BrewingStandMixin {
         }
     }
 
+    @WrapOperation(method = "tick", at = @At(value = "INVOKE", target = "Lnet/minecraft/block/entity/BrewingStandBlockEntity;canCraft(Lnet/minecraft/recipe/BrewingRecipeRegistry;Lnet/minecraft/util/collection/DefaultedList;)Z"))
+    private static boolean canCraftCached(BrewingRecipeRegistry brewingRecipeRegistry, DefaultedList<ItemStack> slots, Operation<Boolean> original, @Local(argsOnly = true) BlockPos pos, @Local(argsOnly = true) BrewingStandBlockEntity blockEntity) {
+        BrewingStandRecipeCache cache = ((BrewingStandRecipeCache.Holder) blockEntity).custombrewrecipes$getRecipeCache();
+        if(cache.isValidFor(slots) && cache.isCanCraftKnown()){
+            return cache.canCraft();
+        }
+        return cache.resolve(slots, pos, () -> original.call(brewingRecipeRegistry, slots));
+    }
+
+    @Inject(method = "craft", at = @At(value = "HEAD"))
+    private static void resolveBeforeCraft(World world, BlockPos pos, DefaultedList<ItemStack> slots, CallbackInfo ci) {
+        //Usually already resolved when checking if the stand can brew this tick, if not all three slots are resolved together here
+        if(world.getBlockEntity(pos) instanceof BrewingStandRecipeCache.Holder holder){
+            BrewingStandRecipeCache cache = holder.custombrewrecipes$getRecipeCache();
+            if(!cache.isValidFor(slots)){
+                cache.resolveRecipes(slots, pos, RecipeMetrics.EntryPoint.CRAFT);
+            }
+        }
+    }
+
+    @WrapOperation(method = "craft", at = @At(value = "INVOKE", target = "Lnet/minecraft/recipe/BrewingRecipeRegistry;craft(Lnet/minecraft/item/ItemStack;Lnet/minecraft/item/ItemStack;)Lnet/minecraft/item/ItemStack;"))
+    private static ItemStack craftCached(BrewingRecipeRegistry brewingRecipeRegistry, ItemStack ingredient, ItemStack input, Operation<ItemStack> original, @Local(argsOnly = true) World world, @Local(argsOnly = true) BlockPos pos) {
+        if(world.getBlockEntity(pos) instanceof BrewingStandRecipeCache.Holder holder){
+            CompiledRecipe recipe = holder.custombrewrecipes$getRecipeCache().getRecipe(ingredient, input);
+            if(recipe != null){
+                return recipe.craft();
+            }
+        }
+        return original.call(brewingRecipeRegistry, ingredient, input);
+    }
+
 }
@@ -1,6 +1,7 @@
 package me.emafire003.dev.custombrewrecipes.mixin;
 
 import me.emafire003.dev.custombrewrecipes.CustomBrewRecipeRegister;
+import me.emafire003.dev.custombrewrecipes.RecipeMetrics;
 import net.minecraft.item.ItemStack;
 import org.spongepowered.asm.mixin.Mixin;
 import org.spongepowered.asm.mixin.injection.At;
@@ -12,7 +13,7 @@ public abstract class BrewingStandScreenHandlerMixin {
 
     @Inject(method = "matches", at = @At("HEAD"), cancellable = true)
     private static void injectMatchesCustom(ItemStack stack, CallbackInfoReturnable<Boolean> cir){
-        if(CustomBrewRecipeRegister.isValidCustomInput(stack)){
+        if(CustomBrewRecipeRegister.isValidCustomInput(stack, RecipeMetrics.EntryPoint.POTION_SLOT)){
             cir.setReturnValue(true);
         }
     }
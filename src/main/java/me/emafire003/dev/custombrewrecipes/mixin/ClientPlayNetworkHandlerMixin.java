@@ -0,0 +1,23 @@
+package me.emafire003.dev.custombrewrecipes.mixin;
+
+import me.emafire003.dev.custombrewrecipes.RecipeSync;
+import me.emafire003.dev.custombrewrecipes.RecipeSyncPayload;
+import net.minecraft.client.network.ClientPlayNetworkHandler;
+import net.minecraft.network.packet.CustomPayload;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**Receives the recipes sent by the server*/
+@Mixin(ClientPlayNetworkHandler.class)
+public abstract class ClientPlayNetworkHandlerMixin {
+
+    @Inject(method = "onCustomPayload(Lnet/minecraft/network/packet/CustomPayload;)V", at = @At("HEAD"), cancellable = true)
+    private void receiveRecipes(CustomPayload payload, CallbackInfo ci) {
+        if(payload instanceof RecipeSyncPayload recipes){
+            RecipeSync.receive(recipes, ((ClientPlayNetworkHandler) (Object) this).getRegistryManager());
+            ci.cancel();
+        }
+    }
+}
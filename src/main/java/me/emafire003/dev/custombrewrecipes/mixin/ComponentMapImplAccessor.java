@@ -0,0 +1,18 @@
+package me.emafire003.dev.custombrewrecipes.mixin;
+
+import it.unimi.dsi.fastutil.objects.Reference2ObjectMap;
+import net.minecraft.component.ComponentMapImpl;
+import net.minecraft.component.ComponentType;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.gen.Accessor;
+
+import java.util.Optional;
+
+/**Reads the changes of the components of an itemstack as they are. {@link net.minecraft.item.ItemStack#getComponentChanges()}
+ * copies them, and makes the stack copy all of its changes again the next time one of them is set*/
+@Mixin(ComponentMapImpl.class)
+public interface ComponentMapImplAccessor {
+
+    @Accessor("changedComponents")
+    Reference2ObjectMap<ComponentType<?>, Optional<?>> custombrewrecipes$getChangedComponents();
+}
@@ -0,0 +1,19 @@
+package me.emafire003.dev.custombrewrecipes.mixin;
+
+import me.emafire003.dev.custombrewrecipes.RecipeSyncPayload;
+import net.minecraft.network.PacketByteBuf;
+import net.minecraft.network.packet.CustomPayload;
+import net.minecraft.network.packet.s2c.common.CustomPayloadS2CPacket;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.ModifyArg;
+
+/**Lets the server and the client read and write the {@link RecipeSyncPayload}, which would otherwise be an unknown payload*/
+@Mixin(CustomPayloadS2CPacket.class)
+public abstract class CustomPayloadS2CPacketMixin {
+
+    @ModifyArg(method = "<clinit>", at = @At(value = "INVOKE", target = "Lnet/minecraft/network/packet/CustomPayload;createCodec(Lnet/minecraft/network/packet/CustomPayload$CodecFactory;Ljava/util/List;)Lnet/minecraft/network/codec/PacketCodec;"), index = 0)
+    private static <B extends PacketByteBuf> CustomPayload.CodecFactory<B> addRecipeSyncCodec(CustomPayload.CodecFactory<B> factory) {
+        return id -> id.equals(RecipeSyncPayload.ID.id()) ? RecipeSyncPayload.CODEC.cast() : factory.create(id);
+    }
+}
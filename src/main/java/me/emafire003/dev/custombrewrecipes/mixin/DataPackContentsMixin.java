@@ -0,0 +1,36 @@
+package me.emafire003.dev.custombrewrecipes.mixin;
+
+import com.llamalad7.mixinextras.injector.ModifyReturnValue;
+import com.llamalad7.mixinextras.sugar.Local;
+import me.emafire003.dev.custombrewrecipes.DatapackRecipeLoader;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.resource.ResourceReloader;
+import net.minecraft.server.DataPackContents;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.Unique;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**Adds the loader of the datapack recipes to the ones run when the datapacks are (re)loaded*/
+@Mixin(DataPackContents.class)
+public abstract class DataPackContentsMixin {
+
+    @Unique
+    private DatapackRecipeLoader custombrewrecipes$recipeLoader;
+
+    @Inject(method = "<init>", at = @At("TAIL"))
+    private void createRecipeLoader(CallbackInfo ci, @Local(argsOnly = true) DynamicRegistryManager.Immutable registries) {
+        custombrewrecipes$recipeLoader = new DatapackRecipeLoader(registries);
+    }
+
+    @ModifyReturnValue(method = "getContents", at = @At("RETURN"))
+    private List<ResourceReloader> addRecipeLoader(List<ResourceReloader> contents) {
+        List<ResourceReloader> with_loader = new ArrayList<>(contents);
+        with_loader.add(custombrewrecipes$recipeLoader);
+        return with_loader;
+    }
+}
@@ -0,0 +1,19 @@
+package me.emafire003.dev.custombrewrecipes.mixin;
+
+import me.emafire003.dev.custombrewrecipes.RecipeSync;
+import net.minecraft.client.MinecraftClient;
+import net.minecraft.client.gui.screen.Screen;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**Goes back to the local recipes when leaving a server that sent its own*/
+@Mixin(MinecraftClient.class)
+public abstract class MinecraftClientMixin {
+
+    @Inject(method = "disconnect(Lnet/minecraft/client/gui/screen/Screen;)V", at = @At("HEAD"))
+    private void restoreLocalRecipes(Screen screen, CallbackInfo ci) {
+        RecipeSync.onDisconnect();
+    }
+}
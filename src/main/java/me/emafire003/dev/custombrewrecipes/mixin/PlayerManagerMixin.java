@@ -0,0 +1,26 @@
+package me.emafire003.dev.custombrewrecipes.mixin;
+
+import me.emafire003.dev.custombrewrecipes.RecipeSync;
+import net.minecraft.network.ClientConnection;
+import net.minecraft.server.PlayerManager;
+import net.minecraft.server.network.ConnectedClientData;
+import net.minecraft.server.network.ServerPlayerEntity;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**Sends the recipes to the players when they join, and what changed when the datapacks are reloaded*/
+@Mixin(PlayerManager.class)
+public abstract class PlayerManagerMixin {
+
+    @Inject(method = "onPlayerConnect", at = @At("TAIL"))
+    private void sendRecipes(ClientConnection connection, ServerPlayerEntity player, ConnectedClientData clientData, CallbackInfo ci) {
+        RecipeSync.onPlayerJoin((PlayerManager) (Object) this, player);
+    }
+
+    @Inject(method = "onDataPacksReloaded", at = @At("TAIL"))
+    private void sendRecipeChanges(CallbackInfo ci) {
+        RecipeSync.sendChanges((PlayerManager) (Object) this);
+    }
+}
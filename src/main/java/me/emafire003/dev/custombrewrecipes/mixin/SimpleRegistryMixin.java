@@ -0,0 +1,22 @@
+package me.emafire003.dev.custombrewrecipes.mixin;
+
+import me.emafire003.dev.custombrewrecipes.CustomBrewRecipeRegister;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.SimpleRegistry;
+import org.spongepowered.asm.mixin.Mixin;
+import org.spongepowered.asm.mixin.injection.At;
+import org.spongepowered.asm.mixin.injection.Inject;
+import org.spongepowered.asm.mixin.injection.callback.CallbackInfo;
+
+/**Compiles again the recipes using item tags when the tags are loaded, both on the server and on the client.
+ * This only schedules it on a worker thread, see {@link CustomBrewRecipeRegister#reloadTags()}*/
+@Mixin(SimpleRegistry.class)
+public abstract class SimpleRegistryMixin {
+
+    @Inject(method = "populateTags", at = @At("TAIL"))
+    private void reloadRecipeTags(CallbackInfo ci) {
+        if((Object) this == Registries.ITEM){
+            CustomBrewRecipeRegister.reloadTags();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.component.ComponentMap;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.CustomModelDataComponent;
+import net.minecraft.component.type.NbtComponent;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.text.Text;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**The allocation budgets of the lookups on real itemstacks, like the AllocationBudgetTest of the core does with its fake ones.
+ * <p>
+ * Most of the stacks have changed components, so the lookups read the component maps of the game
+ * (getting the changes of a stack the usual way would allocate a copy of them on every check).
+ * The mixins are applied by the fabric loader junit support, so the accessors work here like in the game.
+ * */
+class ItemStackAllocationTest {
+
+    private static final Item[] ITEMS = {Items.POTION, Items.SPLASH_POTION, Items.LINGERING_POTION, Items.PAPER};
+    private static final int WARMUP = 100_000;
+    private static final int MEASURED = 50_000;
+    /**For all the measured calls together, see the AllocationBudgetTest of the core*/
+    private static final long BUDGET = 1024;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+    }
+
+    @AfterEach
+    void restoreRecipes() {
+        CustomBrewRecipeRegister.restoreLocalRecipes();
+    }
+
+    @Test
+    void checkingForTheDefaultComponentsDoesntAllocate() {
+        ItemStack[] stacks = stacks();
+        com.sun.management.ThreadMXBean threads = threads();
+
+        int defaults = 0;
+        for(int n = 0; n < WARMUP; n++){
+            defaults += ItemStackAccess.INSTANCE.hasDefaultComponentsOnly(stacks[n % stacks.length]) ? 1 : 0;
+        }
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for(int n = 0; n < MEASURED; n++){
+            defaults += ItemStackAccess.INSTANCE.hasDefaultComponentsOnly(stacks[n % stacks.length]) ? 1 : 0;
+        }
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(defaults > 0);
+        assertTrue(allocated <= BUDGET, "Checking for the default components allocated " + allocated + " bytes in " + MEASURED + " runs, the budget is " + BUDGET);
+    }
+
+    @Test
+    void lookupsDontAllocate() {
+        RecipeBatch batch = new RecipeBatch();
+        for(int i = 0; i < ITEMS.length; i++){
+            Item item = ITEMS[i];
+            //The default components only, some components, and some nbt
+            batch.addWithComponents(item, Items.SUGAR, Items.POTION, null, null, null);
+            batch.addWithComponents(item, Items.REDSTONE, Items.POTION, modelData(i), null, null);
+            batch.addWithNbt(item, Items.GLOWSTONE_DUST, Items.POTION, data(i), null, null);
+        }
+        CustomBrewRecipeRegister.setSyncedRecipes(batch.compile());
+        ItemStack[] inputs = stacks();
+        ItemStack[] ingredients = {new ItemStack(Items.SUGAR), new ItemStack(Items.REDSTONE), new ItemStack(Items.GLOWSTONE_DUST), new ItemStack(Items.STICK)};
+        com.sun.management.ThreadMXBean threads = threads();
+
+        run(inputs, ingredients, WARMUP);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        int hits = run(inputs, ingredients, MEASURED);
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertTrue(hits > 0, "Nothing has been found, so nothing has been measured");
+        assertTrue(allocated <= BUDGET, "The lookups allocated " + allocated + " bytes in " + MEASURED + " runs, the budget is " + BUDGET);
+    }
+
+    /**Runs the lookups used by the mixins the given number of times, returning how many times a recipe has been found*/
+    private static int run(ItemStack[] inputs, ItemStack[] ingredients, int times){
+        int hits = 0;
+        for(int n = 0; n < times; n++){
+            ItemStack input = inputs[n % inputs.length];
+            if(CustomBrewRecipeRegister.findCustomRecipe(ingredients[n % ingredients.length], input) != null){
+                hits++;
+            }
+            CustomBrewRecipeRegister.isValidCustomInput(input);
+        }
+        return hits;
+    }
+
+    private static com.sun.management.ThreadMXBean threads(){
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+        return threads;
+    }
+
+    /**Stacks of every item: without changes, with a name, with the model data or the nbt of a recipe, and without a component of their item*/
+    private static ItemStack[] stacks(){
+        ItemStack[] stacks = new ItemStack[ITEMS.length * 5];
+        for(int i = 0; i < ITEMS.length; i++){
+            Item item = ITEMS[i];
+            stacks[i * 5] = new ItemStack(item);
+            stacks[i * 5 + 1] = named(item, "stack " + i);
+            stacks[i * 5 + 2] = new ItemStack(item);
+            stacks[i * 5 + 2].set(DataComponentTypes.CUSTOM_MODEL_DATA, new CustomModelDataComponent(i));
+            stacks[i * 5 + 3] = new ItemStack(item);
+            NbtComponent.set(DataComponentTypes.CUSTOM_DATA, stacks[i * 5 + 3], data(i));
+            stacks[i * 5 + 4] = new ItemStack(item);
+            stacks[i * 5 + 4].remove(DataComponentTypes.MAX_STACK_SIZE);
+        }
+        return stacks;
+    }
+
+    private static ItemStack named(Item item, String name){
+        ItemStack stack = new ItemStack(item);
+        stack.set(DataComponentTypes.CUSTOM_NAME, Text.literal(name));
+        return stack;
+    }
+
+    private static ComponentMap modelData(int value){
+        return ComponentMap.builder().add(DataComponentTypes.CUSTOM_MODEL_DATA, new CustomModelDataComponent(value)).build();
+    }
+
+    private static NbtCompound data(int value){
+        NbtCompound nbt = new NbtCompound();
+        nbt.putInt("value", value);
+        return nbt;
+    }
+}
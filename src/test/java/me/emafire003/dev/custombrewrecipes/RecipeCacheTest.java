@@ -0,0 +1,66 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**The generators add no recipes, so the recipes registered by the other tests stay the same*/
+class RecipeCacheTest {
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+    }
+
+    @Test
+    void theCacheIsUsedUntilTheKeyChanges(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("brewing.cache");
+
+        assertFalse(RecipeCache.register(file, "a", batch -> {}));
+        assertTrue(RecipeCache.register(file, "a", batch -> {}));
+        //The outdated file was only read, not mapped, so it can be replaced even on Windows
+        assertFalse(RecipeCache.register(file, "b", batch -> {}));
+        assertTrue(RecipeCache.register(file, "b", batch -> {}));
+        assertEquals(List.of(file), files(dir));
+    }
+
+    @Test
+    void aBrokenFileIsRebuilt(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("brewing.cache");
+        Files.write(file, new byte[]{0x43, 0x42});
+
+        assertFalse(RecipeCache.register(file, "a", batch -> {}));
+        assertTrue(RecipeCache.register(file, "a", batch -> {}));
+        assertEquals(List.of(file), files(dir));
+    }
+
+    @Test
+    void noTemporaryFileIsLeftWhenTheCacheCantBeReplaced(@TempDir Path dir) throws IOException {
+        //A directory can't be replaced by a file
+        Path file = dir.resolve("brewing.cache");
+        Files.createDirectory(file);
+        Files.createFile(file.resolve("inside"));
+
+        assertFalse(RecipeCache.register(file, "a", batch -> {}));
+        assertEquals(List.of(file), files(dir));
+    }
+
+    private static List<Path> files(Path dir) throws IOException {
+        try(Stream<Path> files = Files.list(dir)){
+            return files.toList();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.DecoderException;
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.component.ComponentMap;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.item.Item;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.network.RegistryByteBuf;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.registry.Registries;
+import net.minecraft.registry.RegistryKeys;
+import net.minecraft.registry.tag.TagKey;
+import net.minecraft.text.Text;
+import net.minecraft.util.Identifier;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecipeCodecTest {
+
+    private static final Item[] ITEMS = {Items.STICK, Items.DIRT, Items.PAPER, Items.SUGAR, Items.REDSTONE, Items.GLOWSTONE_DUST};
+
+    private static DynamicRegistryManager registries;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        registries = DynamicRegistryManager.of(Registries.REGISTRIES);
+    }
+
+    @Test
+    void everyKindOfRecipeIsReadBack() {
+        RecipeSet recipes = RecipeSet.EMPTY;
+        recipes = with(recipes, new CustomBrewRecipeRegister.CustomRecipe<>(Items.POTION, Items.SUGAR, Items.PAPER));
+        recipes = with(recipes, new CustomBrewRecipeRegister.CustomRecipeItems(RecipeItems.of(Items.POTION, Items.GLASS_BOTTLE),
+                RecipeItems.ofTag(TagKey.of(RegistryKeys.ITEM, Identifier.of("minecraft", "logs"))), Items.STICK));
+        recipes = with(recipes, new CustomBrewRecipeRegister.CustomRecipeComponents(Items.POTION, Items.REDSTONE, Items.POTION,
+                name("input"), null, name("output")));
+        recipes = with(recipes, new CustomBrewRecipeRegister.CustomRecipeComponents(null, Items.REDSTONE, Items.POTION,
+                ComponentConstraints.builder().has(DataComponentTypes.CUSTOM_NAME).build(), null, null));
+        recipes = with(recipes, new CustomBrewRecipeRegister.CustomRecipeNBTOnly(Items.POTION, Items.DIRT, Items.POTION,
+                nbt("input", 1), "field", null, null, nbt("output", 2)));
+
+        RecipeSet decoded = RecipeCodec.decode(Unpooled.wrappedBuffer(RecipeCodec.encode(recipes, registries)), registries);
+
+        assertNotNull(decoded);
+        assertSameRecipes(recipes, decoded);
+    }
+
+    @Test
+    void changesAreAppliedToTheRecipesReceivedBefore() {
+        RecipeSet old_recipes = plainRecipes(0, 1, 2, 3, 4, 5);
+        RecipeSet base = RecipeCodec.decode(Unpooled.wrappedBuffer(RecipeCodec.encode(old_recipes, 1, registries)), registries);
+
+        //Added, removed and changed in the middle, changed at the start and at the end, all removed
+        Change[] changes = {
+                new Change(new int[]{0, 1, 2, 9, 3, 4, 5}, 3, 3),
+                new Change(new int[]{0, 1, 3, 4, 5}, 2, 3),
+                new Change(new int[]{0, 1, 9, 3, 4, 5}, 2, 3),
+                new Change(new int[]{9, 1, 2, 3, 4, 5}, 0, 5),
+                new Change(new int[]{0, 1, 2, 3, 4, 5, 9}, 6, 0),
+                new Change(new int[]{}, 0, 0)
+        };
+        for(Change change : changes){
+            RecipeSet recipes = plainRecipes(change.ids());
+            byte[] delta = RecipeCodec.encodeChanges(old_recipes, 1, recipes, 2, registries);
+            RecipeCodec.Decoded received = RecipeCodec.decode(Unpooled.wrappedBuffer(delta), base, 1, registries);
+
+            assertNotNull(received);
+            assertEquals(2, received.generation());
+            RecipeSet decoded = received.recipes();
+            assertEquals(recipes.recipes, decoded.recipes);
+            //The recipes that didn't change are kept, compiled, instead of being sent again
+            for(int i = 0; i < change.kept_start(); i++){
+                assertSame(base.compiled.get(i), decoded.compiled.get(i));
+            }
+            for(int i = 1; i <= change.kept_end(); i++){
+                assertSame(base.compiled.get(base.compiled.size() - i), decoded.compiled.get(decoded.compiled.size() - i));
+            }
+        }
+    }
+
+    /**The new recipes, and how many of the old ones at the start and at the end they still have*/
+    private record Change(int[] ids, int kept_start, int kept_end) {
+    }
+
+    @Test
+    void changesWithoutTheRecipesReceivedBeforeAreIgnored() {
+        byte[] delta = RecipeCodec.encodeChanges(plainRecipes(0, 1), 1, plainRecipes(0, 2), 2, registries);
+        assertNull(RecipeCodec.decode(Unpooled.wrappedBuffer(delta), null, 0, registries));
+    }
+
+    @Test
+    void changesFromAnotherGenerationAreRejected() {
+        RecipeSet base = RecipeCodec.decode(Unpooled.wrappedBuffer(RecipeCodec.encode(plainRecipes(0, 1), 1, registries)), registries);
+        //The client missed the changes from 1 to 2
+        byte[] delta = RecipeCodec.encodeChanges(plainRecipes(0, 2), 2, plainRecipes(0, 2, 3), 3, registries);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> RecipeCodec.decode(Unpooled.wrappedBuffer(delta), base, 1, registries));
+        assertTrue(e.getMessage().contains("generation 2"), e.getMessage());
+    }
+
+    @Test
+    void sharedComponentsAndNbtAreWrittenOnce() {
+        RecipeSet recipes = RecipeSet.EMPTY;
+        for(int i = 0; i < 50; i++){
+            //Equal, but not the same instances
+            recipes = with(recipes, new CustomBrewRecipeRegister.CustomRecipeComponents(Items.POTION, ITEMS[i % ITEMS.length], Items.POTION,
+                    name("shared"), null, name("output " + i)));
+            recipes = with(recipes, new CustomBrewRecipeRegister.CustomRecipeNBTOnly(Items.POTION, ITEMS[i % ITEMS.length], Items.POTION,
+                    nbt("shared", 0), null, nbt("output", i)));
+        }
+
+        byte[] data = RecipeCodec.encode(recipes, registries);
+        RecipeSet decoded = RecipeCodec.decode(Unpooled.wrappedBuffer(data), registries);
+
+        assertNotNull(decoded);
+        assertSameRecipes(recipes, decoded);
+        //Read once from the pool, so every recipe gets the same value
+        Text name = decoded.recipes_components.get(0).input_components.get(DataComponentTypes.CUSTOM_NAME);
+        for(int i = 1; i < 50; i++){
+            assertSame(name, decoded.recipes_components.get(i).input_components.get(DataComponentTypes.CUSTOM_NAME));
+            assertSame(decoded.recipes_nbt.get(0).input_nbt, decoded.recipes_nbt.get(i).input_nbt);
+        }
+    }
+
+    @Test
+    void unknownRawIdsAreRejected() {
+        RegistryByteBuf buf = new RegistryByteBuf(Unpooled.buffer(), registries);
+        buf.writeVarInt(RecipeCodec.FORMAT_VERSION);
+        //All the recipes of the first generation, an empty pool and a single plain recipe with an item the client doesn't have
+        buf.writeByte(0);
+        buf.writeVarInt(0);
+        buf.writeVarInt(1);
+        buf.writeVarInt(0);
+        buf.writeVarInt(1);
+        buf.writeVarInt(Registries.ITEM.size() + 100);
+        buf.writeVarInt(Registries.ITEM.getRawId(Items.SUGAR));
+        buf.writeVarInt(Registries.ITEM.getRawId(Items.PAPER));
+
+        DecoderException e = assertThrows(DecoderException.class, () -> RecipeCodec.decode(buf, registries));
+        assertTrue(e.getMessage().contains("item"), e.getMessage());
+    }
+
+    private static RecipeSet plainRecipes(int... ids){
+        RecipeSet recipes = RecipeSet.EMPTY;
+        for(int id : ids){
+            recipes = with(recipes, new CustomBrewRecipeRegister.CustomRecipe<>(Items.POTION, ITEMS[id % ITEMS.length], ITEMS[id / ITEMS.length % ITEMS.length]));
+        }
+        return recipes;
+    }
+
+    private static void assertSameRecipes(RecipeSet expected, RecipeSet actual){
+        assertEquals(expected.recipes, actual.recipes);
+        assertEquals(expected.recipes_items, actual.recipes_items);
+        assertEquals(expected.recipes_components, actual.recipes_components);
+        assertEquals(expected.recipes_nbt, actual.recipes_nbt);
+        assertEquals(expected.compiled.size(), actual.compiled.size());
+        assertEquals(expected.compiled_items.size(), actual.compiled_items.size());
+        assertEquals(expected.compiled_components.size(), actual.compiled_components.size());
+        assertEquals(expected.compiled_nbt.size(), actual.compiled_nbt.size());
+    }
+
+    private static ComponentMap name(String name){
+        return ComponentMap.builder().add(DataComponentTypes.CUSTOM_NAME, Text.literal(name)).build();
+    }
+
+    private static NbtCompound nbt(String key, int value){
+        NbtCompound nbt = new NbtCompound();
+        nbt.putInt(key, value);
+        nbt.putString("name", "recipe");
+        return nbt;
+    }
+
+    private static RecipeSet with(RecipeSet recipes, CustomBrewRecipeRegister.CustomRecipe<Item> recipe){
+        return recipes.with(recipe, CompiledRecipe.of(recipe));
+    }
+
+    private static RecipeSet with(RecipeSet recipes, CustomBrewRecipeRegister.CustomRecipeItems recipe){
+        return recipes.with(recipe, CompiledRecipe.of(recipe));
+    }
+
+    private static RecipeSet with(RecipeSet recipes, CustomBrewRecipeRegister.CustomRecipeComponents recipe){
+        return recipes.with(recipe, CompiledRecipe.of(recipe));
+    }
+
+    private static RecipeSet with(RecipeSet recipes, CustomBrewRecipeRegister.CustomRecipeNBTOnly recipe){
+        return recipes.with(recipe, CompiledRecipe.of(recipe));
+    }
+}
@@ -0,0 +1,165 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.component.ComponentMap;
+import net.minecraft.component.DataComponentTypes;
+import net.minecraft.component.type.NbtComponent;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+import net.minecraft.item.Items;
+import net.minecraft.nbt.NbtCompound;
+import net.minecraft.nbt.NbtInt;
+import net.minecraft.text.Text;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**The results of the checks the recipes are compiled into, on real itemstacks.
+ * They are the same as the ones of the checks that ran before the recipes were compiled,
+ * except for the presence recipes, whole-compound nbt recipes and the input slot, which are fixed.*/
+class RecipeMatchingTest {
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+    }
+
+    @AfterEach
+    void restoreRecipes() {
+        CustomBrewRecipeRegister.restoreLocalRecipes();
+    }
+
+    @Test
+    void withoutComponentsOnlyTheItemWithItsDefaultComponentsMatches() {
+        assertTrue(CustomBrewRecipeRegister.equalsComponents(new ItemStack(Items.POTION), Items.POTION, null, null));
+        assertFalse(CustomBrewRecipeRegister.equalsComponents(new ItemStack(Items.PAPER), Items.POTION, null, null));
+        assertFalse(CustomBrewRecipeRegister.equalsComponents(named(Items.POTION, "a"), Items.POTION, null, null));
+    }
+
+    @Test
+    void componentsMustAllBeOnTheItem() {
+        ComponentMap components = names("a");
+        assertTrue(CustomBrewRecipeRegister.equalsComponents(named(Items.POTION, "a"), Items.POTION, components, null));
+        assertFalse(CustomBrewRecipeRegister.equalsComponents(named(Items.POTION, "b"), Items.POTION, components, null));
+        assertFalse(CustomBrewRecipeRegister.equalsComponents(new ItemStack(Items.POTION), Items.POTION, components, null));
+        assertFalse(CustomBrewRecipeRegister.equalsComponents(named(Items.PAPER, "a"), Items.POTION, components, null));
+    }
+
+    @Test
+    void aComponentTypeWithAValueMatchesAnyItemWithIt() {
+        ComponentMap components = names("a");
+        assertTrue(CustomBrewRecipeRegister.equalsComponents(named(Items.PAPER, "a"), Items.POTION, components, DataComponentTypes.CUSTOM_NAME));
+        assertFalse(CustomBrewRecipeRegister.equalsComponents(named(Items.PAPER, "b"), Items.POTION, components, DataComponentTypes.CUSTOM_NAME));
+        assertFalse(CustomBrewRecipeRegister.equalsComponents(new ItemStack(Items.PAPER), Items.POTION, components, DataComponentTypes.CUSTOM_NAME));
+    }
+
+    @Test
+    void aComponentTypeWithoutComponentsMatchesAnyItemHavingIt() {
+        assertTrue(CustomBrewRecipeRegister.equalsComponents(named(Items.PAPER, "a"), Items.POTION, null, DataComponentTypes.CUSTOM_NAME));
+        assertFalse(CustomBrewRecipeRegister.equalsComponents(new ItemStack(Items.PAPER), Items.POTION, null, DataComponentTypes.CUSTOM_NAME));
+    }
+
+    /**The map registered by {@link CustomBrewRecipeRegister#registerCustomRecipeWithComponentPresence}
+     * has no value for the type, so only its presence is checked*/
+    @Test
+    void aComponentTypeMissingFromTheComponentsMatchesAnyItemHavingIt() {
+        ComponentMap presence = ComponentMap.builder().add(DataComponentTypes.CUSTOM_NAME, null).build();
+        assertTrue(CustomBrewRecipeRegister.equalsComponents(named(Items.PAPER, "a"), Items.POTION, presence, DataComponentTypes.CUSTOM_NAME));
+        assertFalse(CustomBrewRecipeRegister.equalsComponents(new ItemStack(Items.PAPER), Items.POTION, presence, DataComponentTypes.CUSTOM_NAME));
+    }
+
+    @Test
+    void presenceRecipesAreFound() {
+        CustomBrewRecipeRegister.CustomRecipeComponents recipe = new CustomBrewRecipeRegister.CustomRecipeComponents(Items.POTION, Items.PAPER, Items.SUGAR,
+                ComponentMap.builder().add(DataComponentTypes.CUSTOM_NAME, null).build(), DataComponentTypes.CUSTOM_NAME,
+                null, null, null);
+        setRecipes(recipe);
+        assertNotNull(CustomBrewRecipeRegister.findCustomRecipe(new ItemStack(Items.PAPER), named(Items.POTION, "any")));
+        assertNull(CustomBrewRecipeRegister.findCustomRecipe(new ItemStack(Items.PAPER), new ItemStack(Items.POTION)));
+    }
+
+    @Test
+    void withoutNbtOnlyTheItemWithoutCustomDataMatches() {
+        assertTrue(CustomBrewRecipeRegister.equalsNbt(new ItemStack(Items.POTION), Items.POTION, null, null));
+        assertFalse(CustomBrewRecipeRegister.equalsNbt(new ItemStack(Items.PAPER), Items.POTION, null, null));
+        assertFalse(CustomBrewRecipeRegister.equalsNbt(withData(Items.POTION, 1), Items.POTION, null, null));
+    }
+
+    @Test
+    void nbtFieldsMatchAnyItem() {
+        assertTrue(CustomBrewRecipeRegister.equalsNbt(withData(Items.PAPER, 1), Items.POTION, null, "level"));
+        assertFalse(CustomBrewRecipeRegister.equalsNbt(new ItemStack(Items.PAPER), Items.POTION, null, "level"));
+        assertTrue(CustomBrewRecipeRegister.equalsNbt(withData(Items.PAPER, 1), Items.POTION, NbtInt.of(1), "level"));
+        assertFalse(CustomBrewRecipeRegister.equalsNbt(withData(Items.PAPER, 2), Items.POTION, NbtInt.of(1), "level"));
+        assertFalse(CustomBrewRecipeRegister.equalsNbt(new ItemStack(Items.PAPER), Items.POTION, NbtInt.of(1), "level"));
+    }
+
+    @Test
+    void theWholeNbtMustBeTheSame() {
+        assertTrue(CustomBrewRecipeRegister.equalsNbt(withData(Items.POTION, 1), Items.POTION, data(1), null));
+        assertFalse(CustomBrewRecipeRegister.equalsNbt(withData(Items.POTION, 2), Items.POTION, data(1), null));
+        assertFalse(CustomBrewRecipeRegister.equalsNbt(withData(Items.PAPER, 1), Items.POTION, data(1), null));
+    }
+
+    @Test
+    void theWholeNbtNeverMatchesAStackWithoutCustomData() {
+        assertFalse(CustomBrewRecipeRegister.equalsNbt(new ItemStack(Items.POTION), Items.POTION, data(1), null));
+        assertFalse(CustomBrewRecipeRegister.equalsNbt(new ItemStack(Items.PAPER), Items.POTION, data(1), null));
+    }
+
+    @Test
+    void theInputOfAComponentRecipeIsCheckedWithItsComponents() {
+        setRecipes(new CustomBrewRecipeRegister.CustomRecipeComponents(Items.POTION, Items.PAPER, Items.POTION, names("input"), null, null));
+        assertTrue(CustomBrewRecipeRegister.isValidCustomInput(named(Items.POTION, "input")));
+        assertFalse(CustomBrewRecipeRegister.isValidCustomInput(new ItemStack(Items.POTION)));
+    }
+
+    @Test
+    void theInputOfAnNbtRecipeIsCheckedWithItsNbt() {
+        CustomBrewRecipeRegister.CustomRecipeNBTOnly recipe = new CustomBrewRecipeRegister.CustomRecipeNBTOnly(Items.POTION, Items.PAPER, Items.POTION, data(1), null, null);
+        CustomBrewRecipeRegister.setSyncedRecipes(RecipeSet.EMPTY.with(recipe, CompiledRecipe.of(recipe)));
+        assertTrue(CustomBrewRecipeRegister.isValidCustomInput(withData(Items.POTION, 1)));
+        assertFalse(CustomBrewRecipeRegister.isValidCustomInput(new ItemStack(Items.POTION)));
+    }
+
+    @Test
+    void theInputOfAPlainRecipeIsCheckedWithItsItem() {
+        CustomBrewRecipeRegister.CustomRecipe<Item> recipe = new CustomBrewRecipeRegister.CustomRecipe<>(Items.POTION, Items.PAPER, Items.SUGAR);
+        CustomBrewRecipeRegister.setSyncedRecipes(RecipeSet.EMPTY.with(recipe, CompiledRecipe.of(recipe)));
+        assertTrue(CustomBrewRecipeRegister.isValidCustomInput(new ItemStack(Items.POTION)));
+        assertFalse(CustomBrewRecipeRegister.isValidCustomInput(new ItemStack(Items.PAPER)));
+    }
+
+    private static void setRecipes(CustomBrewRecipeRegister.CustomRecipeComponents recipe){
+        CustomBrewRecipeRegister.setSyncedRecipes(RecipeSet.EMPTY.with(recipe, CompiledRecipe.of(recipe)));
+    }
+
+    private static ItemStack named(Item item, String name){
+        ItemStack stack = new ItemStack(item);
+        stack.set(DataComponentTypes.CUSTOM_NAME, Text.literal(name));
+        return stack;
+    }
+
+    private static ComponentMap names(String name){
+        return ComponentMap.builder().add(DataComponentTypes.CUSTOM_NAME, Text.literal(name)).build();
+    }
+
+    private static ItemStack withData(Item item, int level){
+        ItemStack stack = new ItemStack(item);
+        stack.set(DataComponentTypes.CUSTOM_DATA, NbtComponent.of(data(level)));
+        return stack;
+    }
+
+    private static NbtCompound data(int level){
+        NbtCompound nbt = new NbtCompound();
+        nbt.putInt("level", level);
+        return nbt;
+    }
+}
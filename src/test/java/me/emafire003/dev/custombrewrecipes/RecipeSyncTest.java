@@ -0,0 +1,73 @@
+package me.emafire003.dev.custombrewrecipes;
+
+import net.minecraft.Bootstrap;
+import net.minecraft.SharedConstants;
+import net.minecraft.item.Item;
+import net.minecraft.item.Items;
+import net.minecraft.registry.DynamicRegistryManager;
+import net.minecraft.registry.Registries;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**What the client does with the recipes it receives*/
+class RecipeSyncTest {
+
+    private static final Item[] ITEMS = {Items.STICK, Items.DIRT, Items.PAPER, Items.SUGAR};
+
+    private static DynamicRegistryManager registries;
+
+    @BeforeAll
+    static void bootstrap() {
+        SharedConstants.createGameVersion();
+        Bootstrap.initialize();
+        registries = DynamicRegistryManager.of(Registries.REGISTRIES);
+    }
+
+    @AfterEach
+    void disconnect() {
+        RecipeSync.onDisconnect();
+    }
+
+    @Test
+    void changesAreAppliedToTheirGeneration() {
+        receive(RecipeCodec.encode(plainRecipes(0, 1), 1, registries));
+        receive(RecipeCodec.encodeChanges(plainRecipes(0, 1), 1, plainRecipes(0, 2), 2, registries));
+        receive(RecipeCodec.encodeChanges(plainRecipes(0, 2), 2, plainRecipes(0, 2, 3), 3, registries));
+
+        assertNotNull(CustomBrewRecipeRegister.getSyncedRecipes());
+        assertEquals(plainRecipes(0, 2, 3).recipes, CustomBrewRecipeRegister.getSyncedRecipes().recipes);
+    }
+
+    @Test
+    void changesFromAnotherGenerationDropTheReceivedRecipes() {
+        receive(RecipeCodec.encode(plainRecipes(0, 1), 1, registries));
+        //The changes from 1 to 2 never arrived
+        receive(RecipeCodec.encodeChanges(plainRecipes(0, 2), 2, plainRecipes(0, 2, 3), 3, registries));
+        assertNull(CustomBrewRecipeRegister.getSyncedRecipes());
+
+        //And the next ones have nothing to be applied to, until all the recipes are sent again
+        receive(RecipeCodec.encodeChanges(plainRecipes(0, 2, 3), 3, plainRecipes(0, 3), 4, registries));
+        assertNull(CustomBrewRecipeRegister.getSyncedRecipes());
+        receive(RecipeCodec.encode(plainRecipes(0, 3), 4, registries));
+        assertNotNull(CustomBrewRecipeRegister.getSyncedRecipes());
+        assertEquals(plainRecipes(0, 3).recipes, CustomBrewRecipeRegister.getSyncedRecipes().recipes);
+    }
+
+    private static void receive(byte[] data){
+        RecipeSync.receive(new RecipeSyncPayload(0, 1, data), registries);
+    }
+
+    private static RecipeSet plainRecipes(int... ids){
+        RecipeSet recipes = RecipeSet.EMPTY;
+        for(int id : ids){
+            CustomBrewRecipeRegister.CustomRecipe<Item> recipe = new CustomBrewRecipeRegister.CustomRecipe<>(Items.POTION, ITEMS[id], Items.POTION);
+            recipes = recipes.with(recipe, CompiledRecipe.of(recipe));
+        }
+        return recipes;
+    }
+}